@@ -0,0 +1,239 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A bounded copy of a response entity, kept in memory or, past a threshold, in a temporary file.
+ *
+ * At most {@code maxBytes} of the entity are copied, the rest is left unread and the buffer is marked truncated.
+ * The entity is read into fixed size chunks taken from a small shared pool; a buffer that stays in memory ends up in a
+ * single array of the exact size of the entity. A spilled file is unlinked as soon as it's written where the platform
+ * allows it, it's kept open until the buffer is closed, and deleted then if it couldn't be unlinked before.
+ */
+class EntityBuffer implements Closeable {
+
+    static final long DEFAULT_MAX_BYTES = 1024 * 1024;
+
+    static final long DEFAULT_SPILL_THRESHOLD = 64 * 1024;
+
+    static final int CHUNK_SIZE = 8192;
+
+    private static final int POOL_SIZE = 64;
+
+    private static final BlockingQueue<byte[]> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private static final String TEMP_FILE_PREFIX = "smallrye-rest-client-";
+
+    private final byte[] bytes;
+
+    private final FileInputStream file;
+
+    // the spilled file, if it couldn't be unlinked while open
+    private final File undeleted;
+
+    private final long length;
+
+    private final boolean truncated;
+
+    private EntityBuffer(byte[] bytes, FileInputStream file, File undeleted, long length, boolean truncated) {
+        this.bytes = bytes;
+        this.file = file;
+        this.undeleted = undeleted;
+        this.length = length;
+        this.truncated = truncated;
+    }
+
+    /**
+     * Copies the entity, the stream is not closed.
+     *
+     * @param entity the entity to copy
+     * @param maxBytes maximum number of bytes to copy
+     * @param spillThreshold number of bytes past which the copy is moved to a temporary file
+     * @return the copy
+     * @throws IOException if reading the entity or writing the temporary file fails
+     */
+    static EntityBuffer read(InputStream entity, long maxBytes, long spillThreshold) throws IOException {
+        // a buffer kept in memory has to fit in an array
+        spillThreshold = Math.min(spillThreshold, Integer.MAX_VALUE - CHUNK_SIZE);
+
+        List<byte[]> chunks = new ArrayList<>();
+        byte[] chunk = acquire();
+        int filled = 0;
+        long total = 0;
+        File spillFile = null;
+        OutputStream spill = null;
+        try {
+            int read;
+            while (total < maxBytes
+                    && (read = entity.read(chunk, filled, (int) Math.min(chunk.length - filled, maxBytes - total))) != -1) {
+                filled += read;
+                total += read;
+                if (filled == chunk.length) {
+                    if (spill == null && total > spillThreshold) {
+                        spillFile = File.createTempFile(TEMP_FILE_PREFIX, ".entity");
+                        spill = new FileOutputStream(spillFile);
+                        for (byte[] full : chunks) {
+                            spill.write(full);
+                            release(full);
+                        }
+                        chunks.clear();
+                    }
+                    if (spill != null) {
+                        spill.write(chunk);
+                    } else {
+                        chunks.add(chunk);
+                        chunk = acquire();
+                    }
+                    filled = 0;
+                }
+            }
+            boolean truncated = total == maxBytes && entity.read() != -1;
+
+            if (spill == null) {
+                byte[] bytes = new byte[(int) total];
+                int offset = 0;
+                for (byte[] full : chunks) {
+                    System.arraycopy(full, 0, bytes, offset, full.length);
+                    offset += full.length;
+                }
+                System.arraycopy(chunk, 0, bytes, offset, filled);
+                return new EntityBuffer(bytes, null, null, total, truncated);
+            }
+
+            spill.write(chunk, 0, filled);
+            spill.close();
+            FileInputStream file = new FileInputStream(spillFile);
+            File undeleted = spillFile.delete() ? null : spillFile;
+            spillFile = null;
+            return new EntityBuffer(null, file, undeleted, total, truncated);
+        } finally {
+            chunks.forEach(EntityBuffer::release);
+            release(chunk);
+            if (spillFile != null) {
+                // failed before the spilled entity could be opened
+                if (spill != null) {
+                    try {
+                        spill.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+                spillFile.delete();
+            }
+        }
+    }
+
+    /**
+     * @return a new stream over the copy, starting at its first byte
+     */
+    InputStream open() {
+        return bytes != null ? new ByteArrayInputStream(bytes) : new FileRegionStream(file.getChannel(), length);
+    }
+
+    /**
+     * Releases the temporary file of a spilled copy, streams opened on it fail from then on
+     */
+    @Override
+    public void close() throws IOException {
+        if (file != null) {
+            try {
+                file.close();
+            } finally {
+                if (undeleted != null) {
+                    undeleted.delete();
+                }
+            }
+        }
+    }
+
+    long length() {
+        return length;
+    }
+
+    boolean isInMemory() {
+        return bytes != null;
+    }
+
+    /**
+     * @return true if the entity was longer than the maximum size and only its beginning was copied
+     */
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    private static byte[] acquire() {
+        byte[] chunk = POOL.poll();
+        return chunk != null ? chunk : new byte[CHUNK_SIZE];
+    }
+
+    private static void release(byte[] chunk) {
+        POOL.offer(chunk);
+    }
+
+    /**
+     * Reads the spilled file with positional reads, streams opened on the same file don't interfere.
+     */
+    private static class FileRegionStream extends InputStream {
+
+        private final FileChannel channel;
+
+        private final long end;
+
+        private long position;
+
+        FileRegionStream(FileChannel channel, long end) {
+            this.channel = channel;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+    }
+}
@@ -32,13 +32,24 @@ import org.eclipse.microprofile.rest.client.ext.ResponseExceptionMapper;
 public class ExceptionMapping implements ClientResponseFilter {
 
     public ExceptionMapping(Set<Object> instances) {
+        this(instances, EntityBuffer.DEFAULT_MAX_BYTES, EntityBuffer.DEFAULT_SPILL_THRESHOLD);
+    }
+
+    /**
+     * @param instances provider instances, the response exception mappers among them are used
+     * @param maxEntityBytes maximum number of bytes of an error entity that are buffered
+     * @param spillThreshold number of bytes past which a buffered error entity is kept in a temporary file
+     */
+    public ExceptionMapping(Set<Object> instances, long maxEntityBytes, long spillThreshold) {
         this.instances = instances;
+        this.maxEntityBytes = maxEntityBytes;
+        this.spillThreshold = spillThreshold;
     }
 
     @Override
     public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) throws IOException {
 
-        Response response = new PartialResponse(responseContext);
+        PartialResponse response = new PartialResponse(responseContext, maxEntityBytes, spillThreshold);
 
         Map<ResponseExceptionMapper, Integer> mappers = new HashMap<>();
         for (Object o : instances) {
@@ -80,9 +91,15 @@ public class ExceptionMapping implements ClientResponseFilter {
                 }
                 throw exception;
             }
+            // nothing holds on to the response
+            response.releaseBuffer();
         }
 
     }
 
     private Set<Object> instances;
+
+    private final long maxEntityBytes;
+
+    private final long spillThreshold;
 }
@@ -24,9 +24,12 @@ import static io.smallrye.restclient.utils.ClientRequestContextUtils.getMethod;
 
 @Priority(Integer.MIN_VALUE)
 public class MethodInjectionFilter implements ClientRequestFilter {
+
+    public static final String INVOKED_METHOD = "org.eclipse.microprofile.rest.client.invokedMethod";
+
     @Override
     public void filter(ClientRequestContext requestContext) {
         Method method = getMethod(requestContext);
-        requestContext.setProperty("org.eclipse.microprofile.rest.client.invokedMethod", method);
+        requestContext.setProperty(INVOKED_METHOD, method);
     }
 }
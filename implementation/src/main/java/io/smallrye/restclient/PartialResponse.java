@@ -15,6 +15,7 @@
  */
 package io.smallrye.restclient;
 
+import org.jboss.logging.Logger;
 import org.jboss.resteasy.specimpl.MultivaluedMapImpl;
 
 import javax.ws.rs.WebApplicationException;
@@ -26,12 +27,10 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.NewCookie;
 import javax.ws.rs.core.Response;
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
 import java.net.URI;
@@ -40,13 +39,25 @@ import java.util.Date;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 public class PartialResponse extends Response implements Serializable {
 
+    private static final Logger LOGGER = Logger.getLogger(PartialResponse.class);
+
     PartialResponse(ClientResponseContext responseContext) {
+        this(responseContext, EntityBuffer.DEFAULT_MAX_BYTES, EntityBuffer.DEFAULT_SPILL_THRESHOLD);
+    }
+
+    /**
+     * @param responseContext the response
+     * @param maxEntityBytes maximum number of bytes kept by {@link #bufferEntity()}
+     * @param spillThreshold number of bytes past which {@link #bufferEntity()} keeps the entity in a temporary file
+     */
+    PartialResponse(ClientResponseContext responseContext, long maxEntityBytes, long spillThreshold) {
         this.responseContext = responseContext;
         this.entityStream = responseContext.getEntityStream();
+        this.maxEntityBytes = maxEntityBytes;
+        this.spillThreshold = spillThreshold;
     }
 
     @Override
@@ -71,21 +82,36 @@ public class PartialResponse extends Response implements Serializable {
     }
 
 
+    /**
+     * Reads a buffered entity at most once, it's kept as a string from then on and its buffer is released
+     */
     @Override
     public synchronized <T> T readEntity(Class<T> entityType) {
 
         if (entityType.isAssignableFrom(String.class)) {
-            return (T) readStringEntity(entityStream);
+            if (bufferedText != null) {
+                return (T) bufferedText;
+            }
+            if (buffer == null) {
+                return (T) readStringEntity(entityStream);
+            }
+            bufferedText = readStringEntity(buffer.open());
+            releaseBuffer();
+            return (T) bufferedText;
         }  else {
             throw notSupported();
         }
     }
 
     public static String readStringEntity(InputStream input) {
-        try {
-            try (BufferedReader buffer = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
-                return buffer.lines().collect(Collectors.joining("\n"));
+        try (Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8)) {
+            StringBuilder result = new StringBuilder();
+            char[] chars = new char[EntityBuffer.CHUNK_SIZE];
+            int read;
+            while ((read = reader.read(chars)) != -1) {
+                result.append(chars, 0, read);
             }
+            return result.toString();
         } catch (IOException e) {
             throw new WebApplicationException("Failed to read entity", e);
         }
@@ -112,22 +138,31 @@ public class PartialResponse extends Response implements Serializable {
         return responseContext.hasEntity();
     }
 
+    /**
+     * Buffers at most the configured maximum size of the entity, a longer entity is cut short.
+     * Buffering again is a no-op.
+     */
     @Override
     public synchronized boolean bufferEntity() {
+        if (buffer != null || bufferedText != null) {
+            return true;
+        }
         try {
-            byte buffer[] = new byte[4096];
-            int read = 0;
-            ByteArrayOutputStream outStream = new ByteArrayOutputStream();
-            while ((read = entityStream.read(buffer)) >= 0) {
-                outStream.write(buffer, 0, read);
+            buffer = EntityBuffer.read(entityStream, maxEntityBytes, spillThreshold);
+            if (buffer.isTruncated()) {
+                LOGGER.debugf("Entity of a response with status %d is longer than %d bytes, only its beginning was kept",
+                        getStatus(), maxEntityBytes);
             }
-            entityStream = new ByteArrayInputStream(outStream.toByteArray());
             return true;
         } catch (Exception any) {
             return false;
         }
     }
 
+    /**
+     * Closes the entity stream. A buffered entity stays readable, e.g. through the exception the response is mapped
+     * to; it's released once it's read.
+     */
     @Override
     public synchronized void close() {
         try {
@@ -137,6 +172,20 @@ public class PartialResponse extends Response implements Serializable {
         }
     }
 
+    /**
+     * Releases the buffered entity, if any, along with its temporary file. Only for a response nothing holds on to.
+     */
+    synchronized void releaseBuffer() {
+        if (buffer != null) {
+            try {
+                buffer.close();
+            } catch (IOException e) {
+                LOGGER.debugf(e, "Unable to release the buffered entity of a response with status %d", getStatus());
+            }
+            buffer = null;
+        }
+    }
+
     @Override
     public MediaType getMediaType() {
         return responseContext.getMediaType();
@@ -221,5 +270,14 @@ public class PartialResponse extends Response implements Serializable {
 
     private InputStream entityStream;
 
+    private transient EntityBuffer buffer;
+
+    // the buffered entity, once read
+    private String bufferedText;
+
+    private final long maxEntityBytes;
+
+    private final long spillThreshold;
+
     private final transient ClientResponseContext responseContext;
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient;
+
+import javax.annotation.Priority;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Providers;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the {@link MessageBodyReader} and {@link MessageBodyWriter} selected for each client interface method.
+ *
+ * For a given method, entity type and media type, the provider lookup always ends with the same reader or writer,
+ * so after the first invocation it's used directly instead of going through all the providers again. As the
+ * innermost reader and writer interceptor, it takes the place of the last {@code proceed()}.
+ * Each client has its own cache, looking providers up in the configuration of the client: the providers registered on
+ * a builder after a client was built don't reach it, so what the cache selected stays valid.
+ */
+@Priority(Integer.MAX_VALUE)
+public class ProviderSelectionCache implements ReaderInterceptor, WriterInterceptor {
+
+    private static final int MAX_ENTRIES = 1024;
+
+    private final Map<Key, MessageBodyReader<Object>> readers = new ConcurrentHashMap<>();
+
+    private final Map<Key, MessageBodyWriter<Object>> writers = new ConcurrentHashMap<>();
+
+    // the Providers context data is only set on the invoking thread, an entity may be written or read on another one
+    private final Providers providers;
+
+    public ProviderSelectionCache(Providers providers) {
+        this.providers = providers;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException {
+        Key key = key(context.getProperty(MethodInjectionFilter.INVOKED_METHOD), context.getType(),
+                context.getGenericType(), context.getMediaType(), context.getAnnotations());
+        if (key == null) {
+            return context.proceed();
+        }
+        MessageBodyReader<Object> reader = readers.get(key);
+        if (reader == null) {
+            reader = (MessageBodyReader<Object>) providers.getMessageBodyReader(context.getType(),
+                    context.getGenericType(), context.getAnnotations(), context.getMediaType());
+            if (reader == null) {
+                // let RESTEasy report the missing reader
+                return context.proceed();
+            }
+            put(readers, key, reader);
+        }
+        return reader.readFrom((Class<Object>) context.getType(), context.getGenericType(), context.getAnnotations(),
+                context.getMediaType(), context.getHeaders(), context.getInputStream());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        Key key = key(context.getProperty(MethodInjectionFilter.INVOKED_METHOD), context.getType(),
+                context.getGenericType(), context.getMediaType(), context.getAnnotations());
+        if (key == null) {
+            context.proceed();
+            return;
+        }
+        MessageBodyWriter<Object> writer = writers.get(key);
+        if (writer == null) {
+            writer = (MessageBodyWriter<Object>) providers.getMessageBodyWriter(context.getType(),
+                    context.getGenericType(), context.getAnnotations(), context.getMediaType());
+            if (writer == null) {
+                context.proceed();
+                return;
+            }
+            put(writers, key, writer);
+        }
+        writer.writeTo(context.getEntity(), context.getType(), context.getGenericType(), context.getAnnotations(),
+                context.getMediaType(), context.getHeaders(), context.getOutputStream());
+    }
+
+    int size() {
+        return readers.size() + writers.size();
+    }
+
+    private static Key key(Object method, Class<?> type, Type genericType, MediaType mediaType,
+                           Annotation[] annotations) {
+        if (!(method instanceof Method) || mediaType == null) {
+            return null;
+        }
+        return new Key((Method) method, type, genericType, mediaType, annotations);
+    }
+
+    private static <T> void put(Map<Key, T> cache, Key key, T provider) {
+        // media types come from the server and may carry arbitrary parameters
+        if (cache.size() >= MAX_ENTRIES) {
+            cache.clear();
+        }
+        cache.put(key, provider);
+    }
+
+    static final class Key {
+
+        private final Method method;
+
+        private final Class<?> type;
+
+        private final Type genericType;
+
+        private final MediaType mediaType;
+
+        private final Annotation[] annotations;
+
+        private final int hash;
+
+        Key(Method method, Class<?> type, Type genericType, MediaType mediaType, Annotation[] annotations) {
+            this.method = method;
+            this.type = type;
+            this.genericType = genericType;
+            this.mediaType = mediaType;
+            this.annotations = annotations;
+            // annotations mostly come from the method, they're left out of the hash
+            this.hash = Objects.hash(method, type, genericType, mediaType);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && method.equals(other.method) && type.equals(other.type)
+                    && Objects.equals(genericType, other.genericType) && mediaType.equals(other.mediaType)
+                    && sameAnnotations(annotations, other.annotations);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        private static boolean sameAnnotations(Annotation[] first, Annotation[] second) {
+            if (first == second) {
+                return true;
+            }
+            int firstLength = first == null ? 0 : first.length;
+            int secondLength = second == null ? 0 : second.length;
+            if (firstLength != secondLength) {
+                return false;
+            }
+            for (int i = 0; i < firstLength; i++) {
+                // the same method hands out copies of the array, holding the same annotation instances
+                if (first[i] != second[i] && !first[i].equals(second[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -16,8 +16,20 @@
 package io.smallrye.restclient;
 
 import io.smallrye.restclient.InvocationContextImpl.InterceptorInvocation;
-import io.smallrye.restclient.async.AsyncInvocationInterceptorHandler;
+import io.smallrye.restclient.async.AsyncContext;
+import io.smallrye.restclient.async.Stages;
+import io.smallrye.restclient.batch.MicroBatcher;
+import io.smallrye.restclient.cache.DiskResponseCache;
+import io.smallrye.restclient.concurrency.ConcurrencyLimiter;
+import io.smallrye.restclient.download.DownloadTarget;
+import io.smallrye.restclient.hedge.Hedging;
+import io.smallrye.restclient.loadbalance.Endpoint;
+import io.smallrye.restclient.loadbalance.LoadBalancer;
+import io.smallrye.restclient.header.AsyncClientHeaders;
+import io.smallrye.restclient.header.AsyncClientHeadersFactory;
 import io.smallrye.restclient.header.ClientHeaderFillingException;
+import io.smallrye.restclient.header.IncomingHeaders;
+import io.smallrye.restclient.singleflight.SingleFlight;
 import org.eclipse.microprofile.rest.client.ext.AsyncInvocationInterceptor;
 import org.eclipse.microprofile.rest.client.ext.AsyncInvocationInterceptorFactory;
 import org.jboss.logging.Logger;
@@ -30,8 +42,11 @@ import javax.enterprise.inject.spi.InterceptionType;
 import javax.enterprise.inject.spi.Interceptor;
 import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.ResponseProcessingException;
+import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.ParamConverter;
 import javax.ws.rs.ext.ParamConverterProvider;
+import java.io.Closeable;
+import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
@@ -39,13 +54,19 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class ProxyInvocationHandler implements InvocationHandler {
@@ -53,7 +74,7 @@ public class ProxyInvocationHandler implements InvocationHandler {
     private static final Logger LOGGER = Logger.getLogger(ProxyInvocationHandler.class);
     public static final Type[] NO_TYPES = {};
 
-    private final Object target;
+    private final Supplier<LoadBalancer> loadBalancer;
 
     private final Set<Object> providerInstances;
 
@@ -67,15 +88,39 @@ public class ProxyInvocationHandler implements InvocationHandler {
 
     private final List<AsyncInvocationInterceptorFactory> asyncInterceptorFactories;
 
+    private final List<AsyncClientHeadersFactory> asyncHeadersFactories;
+
+    private final boolean singleFlight;
+
+    private final Map<Method, ConcurrencyLimiter> concurrencyLimiters;
+
+    private final Map<Method, Hedging> hedgings;
+
+    private final Map<Method, MicroBatcher> batchers;
+
+    private final DiskResponseCache diskCache;
+
     public ProxyInvocationHandler(Class<?> restClientInterface,
-                           Object target,
+                           Supplier<LoadBalancer> loadBalancer,
                            Set<Object> providerInstances,
                            ResteasyClient client,
-                           List<AsyncInvocationInterceptorFactory> asyncInterceptorFactories) {
-        this.target = target;
+                           List<AsyncInvocationInterceptorFactory> asyncInterceptorFactories,
+                           List<AsyncClientHeadersFactory> asyncHeadersFactories,
+                           boolean singleFlight,
+                           Map<Method, ConcurrencyLimiter> concurrencyLimiters,
+                           Map<Method, Hedging> hedgings,
+                           Map<Method, MicroBatcher> batchers,
+                           DiskResponseCache diskCache) {
+        this.loadBalancer = loadBalancer;
         this.providerInstances = providerInstances;
         this.client = client;
         this.asyncInterceptorFactories = asyncInterceptorFactories;
+        this.asyncHeadersFactories = asyncHeadersFactories;
+        this.singleFlight = singleFlight;
+        this.concurrencyLimiters = concurrencyLimiters;
+        this.hedgings = hedgings;
+        this.batchers = batchers;
+        this.diskCache = diskCache;
         this.closed = new AtomicBoolean();
         BeanManager beanManager = getBeanManager(restClientInterface);
         if (beanManager != null) {
@@ -95,8 +140,14 @@ public class ProxyInvocationHandler implements InvocationHandler {
         if (closed.get()) {
             throw new IllegalStateException("RestClientProxy is closed");
         }
+        MicroBatcher batcher = batchers.get(method);
+        if (batcher != null) {
+            return invokeBatched(batcher, proxy, method, args[0]);
+        }
 
-        prepareAsyncInterceptors();
+        AsyncContext asyncContext = CompletionStage.class.isAssignableFrom(method.getReturnType())
+                ? AsyncContext.prepare(asyncInterceptorFactories)
+                : AsyncContext.EMPTY;
 
         boolean replacementNeeded = false;
         Object[] argsReplacement = args != null ? new Object[args.length] : null;
@@ -149,6 +200,233 @@ public class ProxyInvocationHandler implements InvocationHandler {
             args = argsReplacement;
         }
 
+        ConcurrencyLimiter limiter = concurrencyLimiters.get(method);
+        if (limiter != null) {
+            return invokeLimited(limiter, method, args, asyncContext);
+        }
+        return sendHedged(method, args, asyncContext);
+    }
+
+    private Object invokeBatched(MicroBatcher batcher, Object proxy, Method method, Object key) throws Throwable {
+        // the bulk invocation goes through this handler, with the limits and options of the bulk method
+        // the bulk invocation is sent on an executor thread, with the context of the first invocation of the batch
+        CompletableFuture<Object> item = batcher.submit(key,
+                keys -> invoke(proxy, batcher.getBulkMethod(), new Object[]{keys}),
+                () -> AsyncContext.prepare(asyncInterceptorFactories)
+                        .with(IncomingHeaders.binder(IncomingHeaders.capture())));
+        if (CompletionStage.class.isAssignableFrom(method.getReturnType())) {
+            return item;
+        }
+        try {
+            return item.get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object sendHedged(Method method, Object[] args, AsyncContext asyncContext) throws Throwable {
+        Hedging hedging = hedgings.get(method);
+        if (hedging == null) {
+            return send(method, args, asyncContext);
+        }
+        // the hedge is sent on an executor thread, with the incoming headers of this one
+        AsyncInvocationInterceptor incomingHeaders = IncomingHeaders.binder(IncomingHeaders.capture());
+        if (CompletionStage.class.isAssignableFrom(method.getReturnType())) {
+            return hedging.invokeAsync(() -> (CompletionStage<Object>) send(method, args, asyncContext),
+                    AsyncContext.EMPTY.with(incomingHeaders));
+        }
+        // and, for a synchronous invocation, the context propagated by the asynchronous invocation interceptors, such
+        // as the request context
+        return hedging.invoke(() -> send(method, args, asyncContext),
+                AsyncContext.prepare(asyncInterceptorFactories).with(incomingHeaders));
+    }
+
+    private Object send(Method method, Object[] args, AsyncContext asyncContext) throws Throwable {
+        Path downloadTarget = DownloadTarget.find(method, args);
+        if (downloadTarget != null) {
+            return invokeWithDownloadTarget(downloadTarget, method, args, asyncContext);
+        }
+        return proceed(method, args, asyncContext);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object invokeLimited(ConcurrencyLimiter limiter, Method method, Object[] args,
+                                 AsyncContext asyncContext) throws Throwable {
+        if (CompletionStage.class.isAssignableFrom(method.getReturnType())) {
+            CompletableFuture<Void> permit = limiter.acquire();
+            // a queued invocation is sent by the thread releasing a permit, with the incoming headers of this one
+            MultivaluedMap<String, String> incomingHeaders = permit.isDone() ? null : IncomingHeaders.capture();
+            return limiter.submit(permit, () -> {
+                if (incomingHeaders == null) {
+                    return sendLimited(method, args, asyncContext);
+                }
+                IncomingHeaders.bind(incomingHeaders);
+                try {
+                    return sendLimited(method, args, asyncContext.with(IncomingHeaders.binder(incomingHeaders)));
+                } finally {
+                    IncomingHeaders.unbind();
+                }
+            });
+        }
+        limiter.acquireBlocking();
+        long start = System.nanoTime();
+        Throwable failure = null;
+        try {
+            return sendHedged(method, args, asyncContext);
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            limiter.release(System.nanoTime() - start, ConcurrencyLimiter.isDropped(failure));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletionStage<Object> sendLimited(Method method, Object[] args, AsyncContext asyncContext) {
+        try {
+            return (CompletionStage<Object>) sendHedged(method, args, asyncContext);
+        } catch (Throwable e) {
+            return Stages.failed(e);
+        }
+    }
+
+    private Object proceed(Method method, Object[] args, AsyncContext asyncContext) throws Throwable {
+        if (singleFlight) {
+            return invokeInSingleFlight(method, args, asyncContext);
+        }
+        return dispatch(method, args, asyncContext);
+    }
+
+    private Object invokeWithDownloadTarget(Path downloadTarget, Method method, Object[] args,
+                                            AsyncContext asyncContext) throws Throwable {
+        if (CompletionStage.class.isAssignableFrom(method.getReturnType())) {
+            return proceed(method, args, asyncContext.with(DownloadTarget.binder(downloadTarget)));
+        }
+        DownloadTarget.bind(downloadTarget);
+        try {
+            return proceed(method, args, asyncContext);
+        } finally {
+            DownloadTarget.unbind();
+        }
+    }
+
+    private Object dispatch(Method method, Object[] args, AsyncContext asyncContext) throws Throwable {
+        if (!asyncHeadersFactories.isEmpty()) {
+            return invokeWithAsyncHeaders(method, args, asyncContext);
+        }
+        return invokeTarget(method, args, asyncContext);
+    }
+
+    private Object invokeInSingleFlight(Method method, Object[] args, AsyncContext asyncContext) throws Throwable {
+        SingleFlight invocation = new SingleFlight();
+
+        if (CompletionStage.class.isAssignableFrom(method.getReturnType())) {
+            CompletionStage<?> result;
+            // the request filters run on the executor, or on this thread with the non-blocking engine
+            invocation.bind();
+            try {
+                result = (CompletionStage<?>) dispatch(method, args, asyncContext.with(invocation.binder()));
+            } catch (Throwable e) {
+                invocation.finish(e);
+                throw e;
+            } finally {
+                SingleFlight.unbind();
+            }
+            return result.whenComplete((value, failure) -> invocation.finish(failure));
+        }
+
+        Throwable failure = null;
+        invocation.bind();
+        try {
+            return dispatch(method, args, asyncContext);
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            SingleFlight.unbind();
+            invocation.finish(failure);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object invokeWithAsyncHeaders(Method method, Object[] args, AsyncContext asyncContext) throws Throwable {
+        CompletionStage<MultivaluedMap<String, String>> headers;
+        try {
+            headers = AsyncClientHeaders.resolve(method, asyncHeadersFactories);
+        } catch (ClientHeaderFillingException e) {
+            throw e.getCause();
+        }
+
+        if (CompletionStage.class.isAssignableFrom(method.getReturnType())) {
+            // the request is only submitted once the headers are there, no thread waits for them
+            return Stages.compose(headers, resolved -> {
+                // the request filters run on the executor, or on this thread with the non-blocking engine
+                AsyncClientHeaders.bind(resolved);
+                try {
+                    return invokeTargetAsync(method, args, asyncContext.with(AsyncClientHeaders.binder(resolved)));
+                } finally {
+                    AsyncClientHeaders.unbind();
+                }
+            });
+        }
+
+        MultivaluedMap<String, String> resolved;
+        try {
+            resolved = headers.toCompletableFuture().join();
+        } catch (CompletionException e) {
+            throw e.getCause();
+        }
+        AsyncClientHeaders.bind(resolved);
+        try {
+            return invokeTarget(method, args);
+        } finally {
+            AsyncClientHeaders.unbind();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletionStage<Object> invokeTargetAsync(Method method, Object[] args, AsyncContext asyncContext) {
+        try {
+            return (CompletionStage<Object>) invokeTarget(method, args, asyncContext);
+        } catch (Throwable e) {
+            return Stages.failed(e);
+        }
+    }
+
+    private Object invokeTarget(Method method, Object[] args, AsyncContext asyncContext) throws Throwable {
+        // the context of an asynchronous invocation is claimed by the invoker the proxy call ends up in
+        AsyncContext previous = AsyncContext.bind(asyncContext);
+        try {
+            return invokeTarget(method, args);
+        } finally {
+            AsyncContext.bind(previous);
+        }
+    }
+
+    private Object invokeTarget(Method method, Object[] args) throws Throwable {
+        // every request of an invocation, such as a hedge, is balanced on its own
+        Endpoint endpoint = loadBalancer.get().select();
+        endpoint.started();
+        boolean async = false;
+        try {
+            Object result = invokeTarget(endpoint.getTarget(), method, args);
+            if (result instanceof CompletionStage) {
+                async = true;
+                ((CompletionStage<?>) result).whenComplete((value, failure) -> endpoint.finished());
+            }
+            return result;
+        } finally {
+            if (!async) {
+                endpoint.finished();
+            }
+        }
+    }
+
+    private Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
         List<InterceptorInvocation> chain = interceptorChains.get(method);
         if (chain != null) {
             // Invoke business method interceptors
@@ -178,14 +456,6 @@ public class ProxyInvocationHandler implements InvocationHandler {
         }
     }
 
-    private void prepareAsyncInterceptors() {
-        List<AsyncInvocationInterceptor> interceptors = asyncInterceptorFactories.stream()
-                .map(AsyncInvocationInterceptorFactory::newInterceptor)
-                .collect(Collectors.toList());
-        interceptors.forEach(AsyncInvocationInterceptor::prepareContext);
-        AsyncInvocationInterceptorHandler.register(interceptors);
-    }
-
     private Object invokeRestClientProxyMethod(Object proxy, Method method, Object[] args) throws Throwable {
         switch (method.getName()) {
             case "getClient":
@@ -203,6 +473,20 @@ public class ProxyInvocationHandler implements InvocationHandler {
             if (creationalContext != null) {
                 creationalContext.release();
             }
+            if (loadBalancer instanceof Closeable) {
+                try {
+                    ((Closeable) loadBalancer).close();
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to close the endpoints of the client", e);
+                }
+            }
+            if (diskCache != null) {
+                try {
+                    diskCache.release();
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to close the response cache of the client", e);
+                }
+            }
             client.close();
         }
     }
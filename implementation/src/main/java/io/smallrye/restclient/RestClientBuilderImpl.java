@@ -15,6 +15,7 @@
  */
 package io.smallrye.restclient;
 
+import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -25,17 +26,24 @@ import java.net.ProxySelector;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import javax.ws.rs.HttpMethod;
 import javax.ws.rs.Path;
@@ -46,9 +54,44 @@ import javax.ws.rs.core.Configuration;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.ext.ParamConverterProvider;
-
+import javax.ws.rs.ext.Providers;
+
+import io.smallrye.restclient.batch.Batched;
+import io.smallrye.restclient.batch.MicroBatcher;
+import io.smallrye.restclient.cache.DiskResponseCache;
+import io.smallrye.restclient.cache.ResponseCache;
+import io.smallrye.restclient.cache.ResponseCacheFilter;
+import io.smallrye.restclient.compression.ContentEncodingFilter;
+import io.smallrye.restclient.concurrency.ConcurrencyLimiter;
+import io.smallrye.restclient.concurrency.GradientLimit;
+import io.smallrye.restclient.concurrency.LimiterMetrics;
+import io.smallrye.restclient.compression.RequestCompressionInterceptor;
+import io.smallrye.restclient.discovery.DiscoveredEndpoints;
+import io.smallrye.restclient.discovery.ServiceDiscoveries;
+import io.smallrye.restclient.discovery.ServiceDiscovery;
+import io.smallrye.restclient.download.FileDownloadReader;
+import io.smallrye.restclient.header.AsyncClientHeadersFactory;
 import io.smallrye.restclient.header.ClientHeadersRequestFilter;
 import io.smallrye.restclient.header.ClientHeaderProviders;
+import io.smallrye.restclient.loadbalance.Endpoint;
+import io.smallrye.restclient.loadbalance.LoadBalancer;
+import io.smallrye.restclient.priority.InvocationPriority;
+import io.smallrye.restclient.priority.Prioritized;
+import io.smallrye.restclient.priority.PriorityExecutorService;
+import io.smallrye.restclient.limit.ResponseSizeLimitFilter;
+import io.smallrye.restclient.singleflight.SingleFlightFilter;
+import io.smallrye.restclient.timeout.RequestTimeouts;
+import io.smallrye.restclient.stream.JsonElementStreamReader;
+import io.smallrye.restclient.stream.PublisherReader;
+import io.smallrye.restclient.stream.JsonElementStreams;
+import io.smallrye.restclient.engine.AbortableEntityInterceptor;
+import io.smallrye.restclient.engine.ClientEngineBuilder;
+import io.smallrye.restclient.engine.CompletionStageInvokerProvider;
+import io.smallrye.restclient.engine.NonBlockingEngine;
+import io.smallrye.restclient.hedge.HedgeBudget;
+import io.smallrye.restclient.hedge.Hedged;
+import io.smallrye.restclient.hedge.Hedging;
+import io.smallrye.restclient.upload.FileUploadWriter;
 import org.eclipse.microprofile.config.Config;
 import org.eclipse.microprofile.config.ConfigProvider;
 import org.eclipse.microprofile.rest.client.RestClientBuilder;
@@ -56,21 +99,33 @@ import org.eclipse.microprofile.rest.client.RestClientDefinitionException;
 import org.eclipse.microprofile.rest.client.annotation.RegisterProvider;
 import org.eclipse.microprofile.rest.client.ext.AsyncInvocationInterceptorFactory;
 import org.eclipse.microprofile.rest.client.ext.ResponseExceptionMapper;
+import org.jboss.logging.Logger;
 import org.jboss.resteasy.client.jaxrs.ResteasyClient;
 import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
 import org.jboss.resteasy.specimpl.ResteasyUriBuilder;
 
-import io.smallrye.restclient.async.AsyncInvocationInterceptorHandler;
 
 class RestClientBuilderImpl implements RestClientBuilder {
 
+    private static final Logger LOGGER = Logger.getLogger(RestClientBuilderImpl.class);
+
     private static final String RESTEASY_PROPERTY_PREFIX = "resteasy.";
 
     private static final String DEFAULT_MAPPER_PROP = "microprofile.rest.client.disable.default.mapper";
 
     private static final DefaultMediaTypeFilter DEFAULT_MEDIA_TYPE_FILTER = new DefaultMediaTypeFilter();
+    private static final ContentEncodingFilter CONTENT_ENCODING_FILTER = new ContentEncodingFilter();
     public static final MethodInjectionFilter METHOD_INJECTION_FILTER = new MethodInjectionFilter();
     public static final ClientHeadersRequestFilter HEADERS_REQUEST_FILTER = new ClientHeadersRequestFilter();
+    private static final JsonElementStreamReader JSON_ELEMENT_STREAM_READER = new JsonElementStreamReader();
+    private static final FileDownloadReader FILE_DOWNLOAD_READER = new FileDownloadReader();
+    private static final FileUploadWriter FILE_UPLOAD_WRITER = new FileUploadWriter();
+    private static final AbortableEntityInterceptor ABORTABLE_ENTITY_INTERCEPTOR = new AbortableEntityInterceptor();
+
+    private static final int DEFAULT_INITIAL_CONCURRENCY_LIMIT = 20;
+    private static final int DEFAULT_MAX_CONCURRENCY_LIMIT = 1000;
+    private static final Set<String> IDEMPOTENT_METHODS = new HashSet<>(Arrays.asList(
+            HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS, HttpMethod.PUT, HttpMethod.DELETE));
 
     RestClientBuilderImpl() {
         ClientBuilder availableBuilder = ClientBuilder.newBuilder();
@@ -136,7 +191,15 @@ class RestClientBuilderImpl implements RestClientBuilder {
         // Interface validity
         verifyInterface(aClass);
 
-        if (baseURI == null) {
+        RestClientOptions options = new RestClientOptions(aClass, builderDelegate.getConfiguration(), config);
+        Optional<ServiceDiscovery> discovery = options.get(RestClientOptions.DISCOVERY, String.class)
+                .map(ServiceDiscoveries::get);
+        String service = options.get(RestClientOptions.DISCOVERY_SERVICE, String.class, aClass.getName());
+        // the endpoints are resolved before the client is built, so that its HTTP proxy is selected the usual way
+        List<URI> baseUris = discovery.isPresent()
+                ? DiscoveredEndpoints.resolve(discovery.get(), service, config)
+                : baseUris(options);
+        if (baseUris.isEmpty()) {
             throw new IllegalStateException("Neither baseUri nor baseUrl was specified");
         }
 
@@ -152,55 +215,306 @@ class RestClientBuilderImpl implements RestClientBuilder {
             register(DefaultResponseExceptionMapper.class);
         }
 
-        builderDelegate.register(new ExceptionMapping(localProviderInstances), 1);
-
         ClassLoader classLoader = aClass.getClassLoader();
 
-        selectHttpProxy()
+        selectHttpProxy(baseUris.get(0))
                 .ifPresent(proxyAddress -> builderDelegate.defaultProxy(proxyAddress.getHostString(), proxyAddress.getPort()));
 
         // this is rest easy default
         ExecutorService executorService = this.executorService != null ? this.executorService : Executors.newFixedThreadPool(10);
 
-        ExecutorService executor = AsyncInvocationInterceptorHandler.wrapExecutorService(executorService);
-        builderDelegate.executorService(executor);
+        // the context of asynchronous invocations is attached to their own tasks, see AsyncContext
+        builderDelegate.executorService(prioritized(aClass, options, executorService));
         builderDelegate.register(DEFAULT_MEDIA_TYPE_FILTER);
         builderDelegate.register(METHOD_INJECTION_FILTER);
         builderDelegate.register(HEADERS_REQUEST_FILTER);
-
+        builderDelegate.register(JSON_ELEMENT_STREAM_READER);
+        builderDelegate.register(FILE_DOWNLOAD_READER);
+        builderDelegate.register(FILE_UPLOAD_WRITER);
+        builderDelegate.register(ABORTABLE_ENTITY_INTERCEPTOR);
         if (readTimeout != null) {
             builderDelegate.readTimeout(readTimeout, readTimeoutUnit);
         }
         if (connectTimeout != null) {
             builderDelegate.connectTimeout(connectTimeout, connectTimeoutUnit);
         }
+        ClientEngineBuilder engineBuilder = new ClientEngineBuilder();
+        if (options.isEnabled(RestClientOptions.ASYNC_ENGINE)) {
+            if (!NonBlockingEngine.isAvailable()) {
+                throw new IllegalStateException("The non-blocking engine of " + aClass.getName()
+                        + " needs org.apache.httpcomponents:httpasyncclient on the class path");
+            }
+            // the engine applies the context of the async invocation interceptors itself
+            engineBuilder.nonBlocking(options.get(RestClientOptions.ASYNC_ENGINE_MAX_CONNECTIONS, Integer.class,
+                    NonBlockingEngine.DEFAULT_MAX_CONNECTIONS), executorService);
+        }
+        builderDelegate.register(CompletionStageInvokerProvider.class);
+        builderDelegate.httpEngine(engineBuilder.resteasyClientBuilder(builderDelegate).build());
 
         ResteasyClient client = builderDelegate
                 .build();
 
-        T actualClient = client.target(baseURI)
+        // the providers depending on the options of this client go on the client itself, a builder ignores another
+        // instance of a class it already has, and the clients built before don't see what is registered after them
+        client.register(new ExceptionMapping(localProviderInstances,
+                options.get(RestClientOptions.ERROR_ENTITY_MAX_BYTES, Long.class, EntityBuffer.DEFAULT_MAX_BYTES),
+                options.get(RestClientOptions.ERROR_ENTITY_SPILL_THRESHOLD, Long.class, EntityBuffer.DEFAULT_SPILL_THRESHOLD)), 1);
+        if (options.isEnabled(RestClientOptions.COMPRESSION)) {
+            client.register(CONTENT_ENCODING_FILTER);
+        }
+        options.get(RestClientOptions.REQUEST_COMPRESSION_THRESHOLD, Long.class)
+                .ifPresent(threshold -> client.register(new RequestCompressionInterceptor(threshold)));
+        client.register(new PublisherReader(executorService));
+        client.register(new ProviderSelectionCache((Providers) client.getConfiguration()));
+        DiskResponseCache diskCache = registerResponseCache(client, options);
+        registerResponseSizeLimit(client, aClass, options);
+        configureRequestTimeouts(client, aClass, options);
+        boolean singleFlight = options.isEnabled(RestClientOptions.SINGLE_FLIGHT);
+        if (singleFlight) {
+            String headers = options.get(RestClientOptions.SINGLE_FLIGHT_HEADERS, String.class, SingleFlightFilter.DEFAULT_HEADERS);
+            client.register(new SingleFlightFilter(
+                    Arrays.stream(headers.split(",")).map(String::trim).filter(h -> !h.isEmpty()).collect(Collectors.toList()),
+                    options.get(RestClientOptions.SINGLE_FLIGHT_MAX_BYTES, Long.class, SingleFlightFilter.DEFAULT_MAX_BYTES),
+                    options.get(RestClientOptions.SINGLE_FLIGHT_MAX_WAIT, Long.class, SingleFlightFilter.DEFAULT_MAX_WAIT)));
+        }
+
+        // the connection pool of the client keeps the connections of every endpoint apart
+        Function<URI, Object> targets = baseUri -> JsonElementStreams.wrap(aClass, client.target(baseUri)
                 .proxyBuilder(aClass)
                 .classloader(classLoader)
                 .defaultConsumes(MediaType.WILDCARD)
-                .defaultProduces(MediaType.WILDCARD).build();
+                .defaultProduces(MediaType.WILDCARD).build());
+        String strategy = options.get(RestClientOptions.LOAD_BALANCER, String.class, LoadBalancer.ROUND_ROBIN);
+        Supplier<LoadBalancer> loadBalancer;
+        if (discovery.isPresent()) {
+            loadBalancer = new DiscoveredEndpoints(discovery.get(), service, config, strategy, targets, baseUris)
+                    .refreshEvery(options.get(RestClientOptions.DISCOVERY_REFRESH_INTERVAL, Long.class,
+                            DiscoveredEndpoints.DEFAULT_REFRESH_INTERVAL));
+        } else {
+            List<Endpoint> endpoints = new ArrayList<>();
+            for (URI baseUri : baseUris) {
+                endpoints.add(new Endpoint(baseUri, targets.apply(baseUri)));
+            }
+            LoadBalancer fixed = LoadBalancer.create(strategy, endpoints);
+            loadBalancer = () -> fixed;
+        }
 
         Class<?>[] interfaces = new Class<?>[2];
         interfaces[0] = aClass;
         interfaces[1] = RestClientProxy.class;
 
-        T proxy = (T) Proxy.newProxyInstance(classLoader, interfaces, new ProxyInvocationHandler(aClass, actualClient, getLocalProviderInstances(), client, asyncInterceptorFactories));
+        T proxy = (T) Proxy.newProxyInstance(classLoader, interfaces, new ProxyInvocationHandler(aClass, loadBalancer, getLocalProviderInstances(), client, asyncInterceptorFactories, asyncHeadersFactories, singleFlight,
+                concurrencyLimiters(aClass, options), hedgings(aClass, options, executorService),
+                batchers(aClass, options, executorService), diskCache));
         ClientHeaderProviders.registerForClass(aClass, proxy);
         return proxy;
     }
 
-    private Optional<InetSocketAddress> selectHttpProxy() {
-        return ProxySelector.getDefault().select(baseURI).stream()
+    private List<URI> baseUris(RestClientOptions options) {
+        Optional<String> baseUris = options.get(RestClientOptions.BASE_URIS, String.class);
+        if (!baseUris.isPresent()) {
+            return baseURI != null ? Collections.singletonList(baseURI) : Collections.emptyList();
+        }
+        List<URI> uris = new ArrayList<>();
+        for (String uri : baseUris.get().split(",")) {
+            if (!uri.trim().isEmpty()) {
+                try {
+                    uris.add(new URI(uri.trim()));
+                } catch (URISyntaxException e) {
+                    throw new IllegalStateException("The value of URI was invalid " + uri, e);
+                }
+            }
+        }
+        return uris;
+    }
+
+    private Optional<InetSocketAddress> selectHttpProxy(URI baseUri) {
+        return ProxySelector.getDefault().select(baseUri).stream()
                 .filter(proxy -> proxy.type() == java.net.Proxy.Type.HTTP)
                 .map(java.net.Proxy::address)
                 .map(InetSocketAddress.class::cast)
                 .findFirst();
     }
 
+    private static void registerResponseSizeLimit(ResteasyClient client, Class<?> aClass, RestClientOptions options) {
+        long defaultMaxBytes = options.get(RestClientOptions.MAX_RESPONSE_SIZE, Long.class, ResponseSizeLimitFilter.UNLIMITED);
+        Map<Method, Long> maxBytes = new HashMap<>();
+        for (Method method : aClass.getMethods()) {
+            options.get(method, RestClientOptions.MAX_RESPONSE_SIZE, Long.class)
+                    .filter(limit -> limit != defaultMaxBytes)
+                    .ifPresent(limit -> maxBytes.put(method, limit));
+        }
+        if (defaultMaxBytes >= 0 || maxBytes.values().stream().anyMatch(limit -> limit >= 0)) {
+            client.register(new ResponseSizeLimitFilter(maxBytes, defaultMaxBytes));
+        }
+    }
+
+    private Map<Method, ConcurrencyLimiter> concurrencyLimiters(Class<?> aClass, RestClientOptions options) {
+        int clientLimit = options.get(RestClientOptions.CONCURRENCY_LIMIT, Integer.class,
+                options.isEnabled(RestClientOptions.ADAPTIVE_CONCURRENCY_LIMIT) ? DEFAULT_INITIAL_CONCURRENCY_LIMIT : -1);
+        ConcurrencyLimiter clientLimiter = null;
+        if (clientLimit >= 0) {
+            clientLimiter = newConcurrencyLimiter(clientLimit,
+                    options.isEnabled(RestClientOptions.ADAPTIVE_CONCURRENCY_LIMIT),
+                    options.get(RestClientOptions.CONCURRENCY_LIMIT_MAX, Integer.class, DEFAULT_MAX_CONCURRENCY_LIMIT),
+                    options.get(RestClientOptions.CONCURRENCY_LIMIT_QUEUE, Integer.class, 0));
+            LimiterMetrics.register(aClass.getName(), clientLimiter);
+        }
+        Map<Method, ConcurrencyLimiter> limiters = new HashMap<>();
+        for (Method method : aClass.getMethods()) {
+            Optional<Integer> methodLimit = options.getForMethod(method, RestClientOptions.CONCURRENCY_LIMIT, Integer.class);
+            if (methodLimit.isPresent()) {
+                if (methodLimit.get() >= 0) {
+                    ConcurrencyLimiter limiter = newConcurrencyLimiter(methodLimit.get(),
+                            options.get(method, RestClientOptions.ADAPTIVE_CONCURRENCY_LIMIT, Boolean.class).orElse(false),
+                            options.get(method, RestClientOptions.CONCURRENCY_LIMIT_MAX, Integer.class).orElse(DEFAULT_MAX_CONCURRENCY_LIMIT),
+                            options.get(method, RestClientOptions.CONCURRENCY_LIMIT_QUEUE, Integer.class).orElse(0));
+                    LimiterMetrics.register(aClass.getName() + "." + method.getName(), limiter);
+                    limiters.put(method, limiter);
+                }
+            } else if (clientLimiter != null) {
+                limiters.put(method, clientLimiter);
+            }
+        }
+        return limiters;
+    }
+
+    private static Map<Method, Hedging> hedgings(Class<?> aClass, RestClientOptions options, ExecutorService executor) {
+        Map<Method, Hedging> hedgings = new HashMap<>();
+        for (Method method : aClass.getMethods()) {
+            if (!isIdempotent(method)) {
+                continue;
+            }
+            Hedged hedged = method.getAnnotation(Hedged.class);
+            long delay = options.get(method, RestClientOptions.HEDGE_DELAY, Long.class)
+                    .orElse(hedged != null ? hedged.delay() : -1);
+            double percentile = options.get(method, RestClientOptions.HEDGE_DELAY_PERCENTILE, Double.class)
+                    .orElse(hedged != null ? hedged.percentile() : 0);
+            if (delay >= 0 || percentile > 0) {
+                hedgings.put(method, new Hedging(delay, percentile, HedgeBudget.global(), executor));
+            }
+        }
+        return hedgings;
+    }
+
+    private static Map<Method, MicroBatcher> batchers(Class<?> aClass, RestClientOptions options, ExecutorService executor) {
+        Map<Method, MicroBatcher> batchers = new HashMap<>();
+        for (Method method : aClass.getMethods()) {
+            Batched batched = method.getAnnotation(Batched.class);
+            if (batched == null) {
+                continue;
+            }
+            if (method.getParameterCount() != 1) {
+                throw new RestClientDefinitionException("The batched method " + aClass.getName() + "::"
+                        + method.getName() + " has to take a single key parameter");
+            }
+            Method bulkMethod = bulkMethod(aClass, method, batched.value());
+            batchers.put(method, new MicroBatcher(bulkMethod,
+                    options.get(method, RestClientOptions.BATCH_MAX_DELAY, Long.class).orElse(batched.maxDelay()),
+                    options.get(method, RestClientOptions.BATCH_MAX_SIZE, Integer.class).orElse(batched.maxSize()),
+                    executor));
+        }
+        return batchers;
+    }
+
+    private static Method bulkMethod(Class<?> aClass, Method method, String name) {
+        for (Method candidate : aClass.getMethods()) {
+            if (candidate.getName().equals(name) && candidate.getParameterCount() == 1
+                    && candidate.getParameterTypes()[0].isAssignableFrom(List.class)) {
+                Class<?> returnType = candidate.getReturnType();
+                if (List.class.isAssignableFrom(returnType) || Map.class.isAssignableFrom(returnType)
+                        || CompletionStage.class.isAssignableFrom(returnType)) {
+                    return candidate;
+                }
+            }
+        }
+        throw new RestClientDefinitionException("No bulk method " + name + " for " + aClass.getName() + "::"
+                + method.getName() + ", it has to take a List of keys and return a List or a Map of the items");
+    }
+
+    private static ExecutorService prioritized(Class<?> aClass, RestClientOptions options, ExecutorService executor) {
+        Prioritized clientPriority = aClass.getAnnotation(Prioritized.class);
+        Map<Method, InvocationPriority> priorities = new HashMap<>();
+        for (Method method : aClass.getMethods()) {
+            Prioritized methodPriority = method.getAnnotation(Prioritized.class);
+            Optional<InvocationPriority> priority = options.get(method, RestClientOptions.PRIORITY, String.class)
+                    .map(RestClientBuilderImpl::parsePriority);
+            if (priority.isPresent()) {
+                priorities.put(method, priority.get());
+            } else if (methodPriority != null || clientPriority != null) {
+                priorities.put(method, methodPriority != null ? methodPriority.value() : clientPriority.value());
+            }
+        }
+        if (priorities.isEmpty()) {
+            return executor;
+        }
+        return new PriorityExecutorService(executor, PriorityExecutorService.parallelismOf(executor),
+                options.get(RestClientOptions.PRIORITY_SHED_THRESHOLD, Long.class, -1L), priorities);
+    }
+
+    private static InvocationPriority parsePriority(String value) {
+        try {
+            return InvocationPriority.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value of " + RestClientOptions.PROPERTY_PREFIX
+                    + RestClientOptions.PRIORITY + ": " + value, e);
+        }
+    }
+
+    private static boolean isIdempotent(Method method) {
+        for (Annotation annotation : method.getAnnotations()) {
+            HttpMethod httpMethod = annotation.annotationType().getAnnotation(HttpMethod.class);
+            if (httpMethod != null) {
+                return IDEMPOTENT_METHODS.contains(httpMethod.value());
+            }
+        }
+        return false;
+    }
+
+    private static ConcurrencyLimiter newConcurrencyLimiter(int limit, boolean adaptive, int maxLimit, int maxQueued) {
+        return adaptive
+                ? new ConcurrencyLimiter(new GradientLimit(limit, 1, maxLimit), maxQueued)
+                : new ConcurrencyLimiter(limit, maxQueued);
+    }
+
+    private static void configureRequestTimeouts(ResteasyClient client, Class<?> aClass, RestClientOptions options) {
+        long defaultTimeout = options.get(RestClientOptions.REQUEST_TIMEOUT, Long.class, RequestTimeouts.NONE);
+        Map<Method, Long> timeouts = new HashMap<>();
+        for (Method method : aClass.getMethods()) {
+            options.get(method, RestClientOptions.REQUEST_TIMEOUT, Long.class)
+                    .filter(timeout -> timeout != defaultTimeout)
+                    .ifPresent(timeout -> timeouts.put(method, timeout));
+        }
+        if (defaultTimeout >= 0 || timeouts.values().stream().anyMatch(timeout -> timeout >= 0)) {
+            client.property(RequestTimeouts.PROPERTY, new RequestTimeouts(timeouts, defaultTimeout));
+        }
+    }
+
+    /**
+     * @return the disk cache of the client, to be released when it's closed, null if it has none
+     */
+    private static DiskResponseCache registerResponseCache(ResteasyClient client, RestClientOptions options) {
+        Optional<String> directory = options.get(RestClientOptions.RESPONSE_CACHE_DIRECTORY, String.class);
+        if (!options.isEnabled(RestClientOptions.RESPONSE_CACHE) && !directory.isPresent()) {
+            return null;
+        }
+        ResponseCache responseCache = new ResponseCache(
+                options.get(RestClientOptions.RESPONSE_CACHE_MAX_BYTES, Long.class, ResponseCache.DEFAULT_MAX_BYTES),
+                options.get(RestClientOptions.RESPONSE_CACHE_MAX_ENTRY_BYTES, Long.class, ResponseCache.DEFAULT_MAX_ENTRY_BYTES));
+        DiskResponseCache diskCache = null;
+        if (directory.isPresent()) {
+            try {
+                diskCache = DiskResponseCache.open(Paths.get(directory.get()),
+                        options.get(RestClientOptions.RESPONSE_CACHE_DISK_MAX_BYTES, Long.class, DiskResponseCache.DEFAULT_MAX_BYTES),
+                        options.get(RestClientOptions.RESPONSE_CACHE_DISK_MAX_ENTRY_BYTES, Long.class, DiskResponseCache.DEFAULT_MAX_ENTRY_BYTES));
+            } catch (IOException e) {
+                LOGGER.warnf(e, "Unable to use %s as a response cache, responses will only be cached in memory", directory.get());
+            }
+        }
+        client.register(new ResponseCacheFilter(responseCache, diskCache));
+        return diskCache;
+    }
+
     private boolean isMapperDisabled() {
         boolean disabled = false;
         Optional<Boolean> defaultMapperProp = config.getOptionalValue(DEFAULT_MAPPER_PROP, Boolean.class);
@@ -367,6 +681,8 @@ class RestClientBuilderImpl implements RestClientBuilder {
             register(o, Priorities.USER);
         } else if (o instanceof AsyncInvocationInterceptorFactory) {
             asyncInterceptorFactories.add((AsyncInvocationInterceptorFactory) o);
+        } else if (o instanceof AsyncClientHeadersFactory) {
+            asyncHeadersFactories.add((AsyncClientHeadersFactory) o);
         } else {
             builderDelegate.register(o);
         }
@@ -399,6 +715,8 @@ class RestClientBuilderImpl implements RestClientBuilder {
 
         } else if (o instanceof AsyncInvocationInterceptorFactory) {
             asyncInterceptorFactories.add((AsyncInvocationInterceptorFactory) o);
+        } else if (o instanceof AsyncClientHeadersFactory) {
+            asyncHeadersFactories.add((AsyncClientHeadersFactory) o);
         } else {
             builderDelegate.register(o, i);
         }
@@ -480,4 +798,6 @@ class RestClientBuilderImpl implements RestClientBuilder {
     private Set<Object> localProviderInstances = new HashSet<>();
 
     private final List<AsyncInvocationInterceptorFactory> asyncInterceptorFactories = new ArrayList<>();
+
+    private final List<AsyncClientHeadersFactory> asyncHeadersFactories = new ArrayList<>();
 }
@@ -146,7 +146,11 @@ public class RestClientDelegateBean implements Bean<Object>, PassivationCapable
         Optional<String> baseUriFromConfig = getOptionalProperty(REST_URI_FORMAT, String.class);
         Optional<String> baseUrlFromConfig = getOptionalProperty(REST_URL_FORMAT, String.class);
 
-        if (baseUriFromConfig.isPresent()) {
+        Optional<String> baseUris = baseUriFromConfig.isPresent() ? baseUriFromConfig : baseUrlFromConfig;
+        if (baseUris.isPresent() && baseUris.get().contains(",")) {
+            // several base URIs, balanced by the client
+            builder.property(RestClientOptions.PROPERTY_PREFIX + RestClientOptions.BASE_URIS, baseUris.get());
+        } else if (baseUriFromConfig.isPresent()) {
             builder.baseUri(uriFromString(baseUriFromConfig.get()));
         } else if (baseUrlFromConfig.isPresent()) {
             builder.baseUrl(urlFromString(baseUrlFromConfig, baseUrlFromConfig.get()));
@@ -0,0 +1,302 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient;
+
+import org.eclipse.microprofile.config.Config;
+
+import javax.ws.rs.core.Configuration;
+import java.lang.reflect.Method;
+import java.util.Optional;
+
+/**
+ * Options of SmallRye Rest Client that go beyond MicroProfile Rest Client.
+ *
+ * An option can be set for a client interface in MicroProfile Config, as {@code <interface name>/mp-rest/<option>},
+ * or on a {@link org.eclipse.microprofile.rest.client.RestClientBuilder} as a property named
+ * {@code io.smallrye.restclient.<option>}. The builder property takes precedence.
+ *
+ * Options read with {@link #get(Method, String, Class)} can also be set for the methods of a given name, as
+ * {@code <interface name>/mp-rest/<method name>/<option>} or {@code io.smallrye.restclient.<method name>/<option>}.
+ */
+public class RestClientOptions {
+
+    public static final String PROPERTY_PREFIX = "io.smallrye.restclient.";
+
+    private static final String CONFIG_KEY_FORMAT = "%s/mp-rest/%s";
+
+    /**
+     * Enables the in-memory response cache, boolean
+     */
+    public static final String RESPONSE_CACHE = "responseCache";
+
+    /**
+     * Maximum size of the in-memory response cache in bytes
+     */
+    public static final String RESPONSE_CACHE_MAX_BYTES = "responseCacheMaxBytes";
+
+    /**
+     * Maximum size of a single response body stored in the in-memory response cache, in bytes
+     */
+    public static final String RESPONSE_CACHE_MAX_ENTRY_BYTES = "responseCacheMaxEntryBytes";
+
+    /**
+     * Directory of the persistent response cache, enables the cache on disk in addition to the one in memory
+     */
+    public static final String RESPONSE_CACHE_DIRECTORY = "responseCacheDirectory";
+
+    /**
+     * Maximum size of the persistent response cache in bytes
+     */
+    public static final String RESPONSE_CACHE_DISK_MAX_BYTES = "responseCacheDiskMaxBytes";
+
+    /**
+     * Maximum size of a single response body stored in the persistent response cache, in bytes
+     */
+    public static final String RESPONSE_CACHE_DISK_MAX_ENTRY_BYTES = "responseCacheDiskMaxEntryBytes";
+
+    /**
+     * Lets identical concurrent GET and HEAD invocations share a single request, boolean
+     */
+    public static final String SINGLE_FLIGHT = "singleFlight";
+
+    /**
+     * Comma separated names of the request headers that have to be equal for invocations to share a request
+     */
+    public static final String SINGLE_FLIGHT_HEADERS = "singleFlightHeaders";
+
+    /**
+     * Maximum size of a response body shared by invocations, in bytes
+     */
+    public static final String SINGLE_FLIGHT_MAX_BYTES = "singleFlightMaxBytes";
+
+    /**
+     * Maximum time a thread waits for the response of an identical request, in milliseconds, after which the
+     * invocation sends its own request
+     */
+    public static final String SINGLE_FLIGHT_MAX_WAIT = "singleFlightMaxWait";
+
+    /**
+     * Maximum number of bytes of an error response entity buffered for response exception mappers
+     */
+    public static final String ERROR_ENTITY_MAX_BYTES = "errorEntityMaxBytes";
+
+    /**
+     * Number of bytes past which a buffered error response entity is moved to a temporary file
+     */
+    public static final String ERROR_ENTITY_SPILL_THRESHOLD = "errorEntitySpillThreshold";
+
+    /**
+     * Asks for gzip or deflate compressed responses and decodes them, boolean
+     */
+    public static final String COMPRESSION = "compression";
+
+    /**
+     * Gzip compresses request bodies longer than the given number of bytes
+     */
+    public static final String REQUEST_COMPRESSION_THRESHOLD = "requestCompressionThreshold";
+
+    /**
+     * Maximum size of a response body in bytes, a longer response fails with a
+     * {@link io.smallrye.restclient.limit.ResponseTooLargeException}. Can be set per method, negative for no limit
+     */
+    public static final String MAX_RESPONSE_SIZE = "maxResponseSize";
+
+    /**
+     * Sends the requests of methods returning a {@link java.util.concurrent.CompletionStage} with non-blocking I/O,
+     * instead of blocking a thread of the executor per request, boolean. Needs Apache HttpAsyncClient
+     */
+    public static final String ASYNC_ENGINE = "asyncEngine";
+
+    /**
+     * Maximum number of connections of the non-blocking engine, per host and in total
+     */
+    public static final String ASYNC_ENGINE_MAX_CONNECTIONS = "asyncEngineMaxConnections";
+
+    /**
+     * Maximum duration of an invocation of a method returning a {@link java.util.concurrent.CompletionStage}, in
+     * milliseconds, past which it fails with a {@link io.smallrye.restclient.timeout.RequestTimeoutException} and its
+     * exchange is aborted. Can be set per method, negative for no timeout
+     */
+    public static final String REQUEST_TIMEOUT = "requestTimeout";
+
+    /**
+     * Maximum number of concurrent invocations, shared by the methods of the client unless set for a method, which
+     * then has a limit of its own, see also {@link #ADAPTIVE_CONCURRENCY_LIMIT}. An invocation past the limit waits or fails with a
+     * {@link io.smallrye.restclient.concurrency.ConcurrencyLimitException}. Negative for no limit
+     */
+    public static final String CONCURRENCY_LIMIT = "concurrencyLimit";
+
+    /**
+     * Maximum number of invocations waiting for the concurrency limit, 0 by default. Can be set per method
+     */
+    public static final String CONCURRENCY_LIMIT_QUEUE = "concurrencyLimitQueue";
+
+    /**
+     * Adjusts the concurrency limits from the round-trip times of the invocations, boolean. The concurrency limit is
+     * then the initial one. Can be set per method
+     */
+    public static final String ADAPTIVE_CONCURRENCY_LIMIT = "adaptiveConcurrencyLimit";
+
+    /**
+     * Maximum of an adaptive concurrency limit. Can be set per method
+     */
+    public static final String CONCURRENCY_LIMIT_MAX = "concurrencyLimitMax";
+
+    /**
+     * Delay after which an invocation of an idempotent method is hedged with a second request, in milliseconds, see
+     * {@link io.smallrye.restclient.hedge.Hedging}. With a hedge delay percentile, the delay until the percentile is
+     * known. Can be set per method, negative to disable hedging
+     */
+    public static final String HEDGE_DELAY = "hedgeDelay";
+
+    /**
+     * Percentile of the recent latency of a method used as its hedge delay, e.g. 95. Can be set per method
+     */
+    public static final String HEDGE_DELAY_PERCENTILE = "hedgeDelayPercentile";
+
+    /**
+     * Maximum time an invocation of a {@link io.smallrye.restclient.batch.Batched} method waits for others to join its
+     * batch, in milliseconds. Can be set per method
+     */
+    public static final String BATCH_MAX_DELAY = "batchMaxDelay";
+
+    /**
+     * Maximum number of distinct keys in a batch of a {@link io.smallrye.restclient.batch.Batched} method. Can be set
+     * per method
+     */
+    public static final String BATCH_MAX_SIZE = "batchMaxSize";
+
+    /**
+     * Priority of the asynchronous invocations on a saturated executor, {@code HIGH}, {@code NORMAL} or {@code LOW},
+     * see {@link io.smallrye.restclient.priority.PriorityExecutorService}. Can be set per method
+     */
+    public static final String PRIORITY = "priority";
+
+    /**
+     * Time after which a low priority invocation still waiting for the executor is shed, in milliseconds, negative
+     * to never shed
+     */
+    public static final String PRIORITY_SHED_THRESHOLD = "priorityShedThreshold";
+
+    /**
+     * Comma separated base URIs of the client, whose invocations are balanced over them. Takes precedence over the
+     * base URI of the builder
+     */
+    public static final String BASE_URIS = "baseUris";
+
+    /**
+     * Strategy selecting the base URI of an invocation with several base URIs, {@code round-robin} by default,
+     * see {@link io.smallrye.restclient.loadbalance.LoadBalancer}
+     */
+    public static final String LOAD_BALANCER = "loadBalancer";
+
+    /**
+     * Name of the {@link io.smallrye.restclient.discovery.ServiceDiscovery} resolving the base URIs of the client,
+     * e.g. {@code config} or {@code file}. Takes precedence over the base URIs
+     */
+    public static final String DISCOVERY = "discovery";
+
+    /**
+     * Name of the service resolved by the discovery, the name of the client interface by default
+     */
+    public static final String DISCOVERY_SERVICE = "discoveryService";
+
+    /**
+     * Time between two resolutions of the base URIs by the discovery, in milliseconds
+     */
+    public static final String DISCOVERY_REFRESH_INTERVAL = "discoveryRefreshInterval";
+
+    private final String clientName;
+
+    private final Configuration configuration;
+
+    private final Config config;
+
+    RestClientOptions(Class<?> clientInterface, Configuration configuration, Config config) {
+        this.clientName = clientInterface.getName();
+        this.configuration = configuration;
+        this.config = config;
+    }
+
+    /**
+     * @param option the name of the option
+     * @param type type of the value
+     * @param <T> type of the value
+     * @return the value of the option, if set
+     */
+    public <T> Optional<T> get(String option, Class<T> type) {
+        Object property = configuration.getProperty(PROPERTY_PREFIX + option);
+        if (property != null) {
+            return Optional.of(convert(option, property, type));
+        }
+        return config.getOptionalValue(String.format(CONFIG_KEY_FORMAT, clientName, option), type);
+    }
+
+    /**
+     * @param method the client method
+     * @param option the name of the option
+     * @param type type of the value
+     * @param <T> type of the value
+     * @return the value of the option for the method if set, the value for the client otherwise
+     */
+    public <T> Optional<T> get(Method method, String option, Class<T> type) {
+        Optional<T> value = getForMethod(method, option, type);
+        return value.isPresent() ? value : get(option, type);
+    }
+
+    /**
+     * @param method the client method
+     * @param option the name of the option
+     * @param type type of the value
+     * @param <T> type of the value
+     * @return the value of the option for the method, if set for the method itself
+     */
+    public <T> Optional<T> getForMethod(Method method, String option, Class<T> type) {
+        return get(method.getName() + "/" + option, type);
+    }
+
+    public <T> T get(String option, Class<T> type, T defaultValue) {
+        return get(option, type).orElse(defaultValue);
+    }
+
+    public boolean isEnabled(String option) {
+        return get(option, Boolean.class, Boolean.FALSE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T convert(String option, Object value, Class<T> type) {
+        if (type.isInstance(value)) {
+            return (T) value;
+        }
+        String stringValue = String.valueOf(value).trim();
+        try {
+            if (type == Boolean.class) {
+                return (T) Boolean.valueOf(stringValue);
+            } else if (type == Integer.class) {
+                return (T) Integer.valueOf(stringValue);
+            } else if (type == Long.class) {
+                return (T) Long.valueOf(stringValue);
+            } else if (type == Double.class) {
+                return (T) Double.valueOf(stringValue);
+            } else if (type == String.class) {
+                return (T) stringValue;
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value of " + PROPERTY_PREFIX + option + ": " + value, e);
+        }
+        throw new IllegalArgumentException("Unsupported type of " + PROPERTY_PREFIX + option + ": " + type);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.async;
+
+import org.eclipse.microprofile.rest.client.ext.AsyncInvocationInterceptor;
+import org.eclipse.microprofile.rest.client.ext.AsyncInvocationInterceptorFactory;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable snapshot of the {@link AsyncInvocationInterceptor}s of an asynchronous invocation, with their context
+ * prepared on the calling thread.
+ *
+ * The snapshot is attached to the very task or request of its invocation: the invoker wraps the task it submits with
+ * it, or sets it as the {@link #PROPERTY} request property for the parts of the invocation that don't run on the
+ * executor of the client. The executor itself carries no state, so other tasks never see the context.
+ *
+ * The RESTEasy proxy has no way to pass anything to the invoker along with the arguments, so the snapshot crosses
+ * the proxy call bound to the calling thread with {@link #bind}, for the duration of that call only, and is claimed
+ * by the first invoker that runs within it.
+ */
+public final class AsyncContext {
+
+    /**
+     * Request property holding the context of an asynchronous invocation
+     */
+    public static final String PROPERTY = AsyncContext.class.getName();
+
+    public static final AsyncContext EMPTY = new AsyncContext(new AsyncInvocationInterceptor[0]);
+
+    private static final ThreadLocal<AsyncContext> bound = new ThreadLocal<>();
+
+    private final AsyncInvocationInterceptor[] interceptors;
+
+    private AsyncContext(AsyncInvocationInterceptor[] interceptors) {
+        this.interceptors = interceptors;
+    }
+
+    /**
+     * Creates the interceptors of an invocation and prepares their context, on the calling thread
+     *
+     * @param factories the factories of the interceptors
+     * @return the snapshot of the prepared interceptors
+     */
+    public static AsyncContext prepare(List<AsyncInvocationInterceptorFactory> factories) {
+        if (factories.isEmpty()) {
+            return EMPTY;
+        }
+        AsyncInvocationInterceptor[] interceptors = new AsyncInvocationInterceptor[factories.size()];
+        for (int i = 0; i < interceptors.length; i++) {
+            interceptors[i] = factories.get(i).newInterceptor();
+        }
+        for (AsyncInvocationInterceptor interceptor : interceptors) {
+            interceptor.prepareContext();
+        }
+        return new AsyncContext(interceptors);
+    }
+
+    /**
+     * @param interceptor an interceptor whose context is prepared already
+     * @return a snapshot with the interceptors of this one and the given one
+     */
+    public AsyncContext with(AsyncInvocationInterceptor interceptor) {
+        AsyncInvocationInterceptor[] extended = Arrays.copyOf(interceptors, interceptors.length + 1);
+        extended[interceptors.length] = interceptor;
+        return new AsyncContext(extended);
+    }
+
+    public boolean isEmpty() {
+        return interceptors.length == 0;
+    }
+
+    /**
+     * Applies the context of the interceptors to the current thread, in order
+     */
+    public void apply() {
+        for (AsyncInvocationInterceptor interceptor : interceptors) {
+            interceptor.applyContext();
+        }
+    }
+
+    /**
+     * Removes the context of the interceptors from the current thread, in order
+     */
+    public void remove() {
+        for (AsyncInvocationInterceptor interceptor : interceptors) {
+            interceptor.removeContext();
+        }
+    }
+
+    /**
+     * @param task a task of the invocation
+     * @return the task, run with the context applied
+     */
+    public Runnable wrap(Runnable task) {
+        if (isEmpty()) {
+            return task;
+        }
+        return () -> {
+            apply();
+            try {
+                task.run();
+            } finally {
+                remove();
+            }
+        };
+    }
+
+    /**
+     * Binds a context to the current thread, for the invoker of the proxy call about to be made. The previous
+     * context has to be bound again once the call returns.
+     *
+     * @param context the context, null to unbind
+     * @return the context bound before, or null
+     */
+    public static AsyncContext bind(AsyncContext context) {
+        AsyncContext previous = bound.get();
+        if (context == null) {
+            bound.remove();
+        } else {
+            bound.set(context);
+        }
+        return previous;
+    }
+
+    /**
+     * Takes the context bound to the current thread, so that no other invocation gets it
+     *
+     * @return the bound context, empty if there's none
+     */
+    public static AsyncContext claim() {
+        AsyncContext context = bound.get();
+        if (context == null) {
+            return EMPTY;
+        }
+        bound.remove();
+        return context;
+    }
+}
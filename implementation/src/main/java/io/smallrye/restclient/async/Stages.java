@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.async;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Utilities for the {@link CompletionStage}s returned by client methods
+ */
+public final class Stages {
+
+    /**
+     * Like {@link CompletionStage#thenCompose}, except that cancelling the returned stage cancels the stage it waits
+     * for, the first one or the composed one, so that the cancellation reaches the invocation.
+     *
+     * @param first the first stage
+     * @param next function of the result of the first stage returning the composed stage
+     * @param <T> type of the result of the first stage
+     * @param <U> type of the result of the composed stage
+     * @return a stage completed with the composed stage
+     */
+    public static <T, U> CompletableFuture<U> compose(CompletionStage<T> first, Function<T, CompletionStage<U>> next) {
+        CompletableFuture<U> result = new CompletableFuture<>();
+        AtomicReference<CompletionStage<U>> composed = new AtomicReference<>();
+        first.whenComplete((value, failure) -> {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+                return;
+            }
+            if (result.isDone()) {
+                // cancelled while waiting for the first stage
+                return;
+            }
+            CompletionStage<U> stage;
+            try {
+                stage = next.apply(value);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            composed.set(stage);
+            if (result.isCancelled()) {
+                cancel(stage);
+            }
+            stage.whenComplete((composedValue, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(composedValue);
+                }
+            });
+        });
+        result.whenComplete((value, failure) -> {
+            if (result.isCancelled()) {
+                cancel(first);
+                CompletionStage<U> stage = composed.get();
+                if (stage != null) {
+                    cancel(stage);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @param failure the failure
+     * @param <T> type of the result
+     * @return a stage completed with the given failure
+     */
+    public static <T> CompletableFuture<T> failed(Throwable failure) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        result.completeExceptionally(failure);
+        return result;
+    }
+
+    /**
+     * Cancels a stage, if it can be cancelled
+     *
+     * @param stage the stage
+     */
+    public static void cancel(CompletionStage<?> stage) {
+        try {
+            stage.toCompletableFuture().cancel(false);
+        } catch (UnsupportedOperationException ignored) {
+            // a stage that can't be cancelled runs to completion
+        }
+    }
+
+    private Stages() {
+    }
+}
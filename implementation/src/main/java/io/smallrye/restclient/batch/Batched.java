@@ -0,0 +1,65 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.batch;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Batches the concurrent invocations of a single-item client method into invocations of a bulk method of the same
+ * interface, see {@link MicroBatcher}.
+ *
+ * The single-item method takes a single parameter, the key of the item, and returns the item or a
+ * {@link java.util.concurrent.CompletionStage} of it. The bulk method takes a {@link java.util.List} of keys, and
+ * returns either a {@code List} of the items in the order of the keys or a {@link java.util.Map} of the items by key,
+ * possibly as a {@code CompletionStage}.
+ *
+ * <pre>
+ * &#64;GET
+ * &#64;Path("/items/{id}")
+ * &#64;Batched("batchGet")
+ * Item get(&#64;PathParam("id") String id);
+ *
+ * &#64;POST
+ * &#64;Path("/items:batchGet")
+ * CompletionStage&lt;Map&lt;String, Item&gt;&gt; batchGet(List&lt;String&gt; ids);
+ * </pre>
+ *
+ * The {@code batchMaxDelay} and {@code batchMaxSize} options of the method take precedence over the annotation.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Batched {
+
+    /**
+     * @return name of the bulk method
+     */
+    String value();
+
+    /**
+     * @return maximum time an invocation waits for others to join its batch, in milliseconds
+     */
+    long maxDelay() default 10;
+
+    /**
+     * @return maximum number of distinct keys in a batch, a full batch is sent right away
+     */
+    int maxSize() default 100;
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.batch;
+
+import io.smallrye.restclient.async.AsyncContext;
+import io.smallrye.restclient.timeout.HashedWheelTimer;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Gathers the invocations of a single-item method made within a short window into a single invocation of its bulk
+ * method, and routes the items of the bulk response back to the invocations.
+ *
+ * A batch is sent once it holds the maximum number of distinct keys, or once its first invocation has waited for the
+ * maximum delay, whichever comes first. Invocations of the same key within a batch share the key and its item.
+ * The bulk invocation is sent on the executor of the client, as the thread completing the batch may be the one of
+ * the timer, with the context captured on the thread of the first invocation of the batch. An item missing from a
+ * {@link Map} response is null.
+ */
+public class MicroBatcher {
+
+    /**
+     * Sends a bulk invocation
+     */
+    public interface Bulk {
+
+        /**
+         * @param keys the distinct keys of the batch
+         * @return the result of the bulk method
+         */
+        Object send(List<Object> keys) throws Throwable;
+    }
+
+    private final Method bulkMethod;
+
+    private final long maxDelayMillis;
+
+    private final int maxSize;
+
+    private final Executor executor;
+
+    private Batch current;
+
+    /**
+     * @param bulkMethod the bulk method
+     * @param maxDelayMillis maximum time an invocation waits for others to join its batch, in milliseconds
+     * @param maxSize maximum number of distinct keys in a batch
+     * @param executor executor the bulk invocations are sent on
+     */
+    public MicroBatcher(Method bulkMethod, long maxDelayMillis, int maxSize, Executor executor) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The maximum size of a batch has to be positive: " + maxSize);
+        }
+        this.bulkMethod = bulkMethod;
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxSize = maxSize;
+        this.executor = executor;
+    }
+
+    public Method getBulkMethod() {
+        return bulkMethod;
+    }
+
+    /**
+     * Adds an invocation to the current batch
+     *
+     * @param key the key of the invocation
+     * @param bulk sends the bulk invocation of the batch, the one of the first invocation of the batch is used
+     * @return a stage completed with the item of the key
+     */
+    public CompletableFuture<Object> submit(Object key, Bulk bulk) {
+        return submit(key, bulk, () -> AsyncContext.EMPTY);
+    }
+
+    /**
+     * Adds an invocation to the current batch
+     *
+     * @param key the key of the invocation
+     * @param bulk sends the bulk invocation of the batch, the one of the first invocation of the batch is used
+     * @param context captures the context of the calling thread, the bulk invocation is sent with the one of the first
+     * invocation of the batch
+     * @return a stage completed with the item of the key
+     */
+    public CompletableFuture<Object> submit(Object key, Bulk bulk, Supplier<AsyncContext> context) {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        Batch full = null;
+        synchronized (this) {
+            Batch batch = current;
+            if (batch == null) {
+                batch = new Batch(bulk, context.get());
+                current = batch;
+                if (maxSize > 1) {
+                    Batch scheduled = batch;
+                    batch.timeout = HashedWheelTimer.shared().schedule(() -> expire(scheduled), maxDelayMillis,
+                            TimeUnit.MILLISECONDS);
+                }
+            }
+            batch.invocations.computeIfAbsent(key, k -> new ArrayList<>(1)).add(result);
+            if (batch.invocations.size() >= maxSize) {
+                current = null;
+                full = batch;
+            }
+        }
+        if (full != null) {
+            if (full.timeout != null) {
+                full.timeout.cancel();
+            }
+            send(full);
+        }
+        return result;
+    }
+
+    private void expire(Batch batch) {
+        synchronized (this) {
+            if (current != batch) {
+                // sent when full
+                return;
+            }
+            current = null;
+        }
+        send(batch);
+    }
+
+    private void send(Batch batch) {
+        try {
+            executor.execute(batch.context.wrap(batch::send));
+        } catch (RejectedExecutionException e) {
+            batch.fail(e);
+        }
+    }
+
+    private static final class Batch {
+
+        final Map<Object, List<CompletableFuture<Object>>> invocations = new LinkedHashMap<>();
+
+        final Bulk bulk;
+
+        final AsyncContext context;
+
+        HashedWheelTimer.Timeout timeout;
+
+        Batch(Bulk bulk, AsyncContext context) {
+            this.bulk = bulk;
+            this.context = context;
+        }
+
+        void send() {
+            List<Object> keys = new ArrayList<>(invocations.keySet());
+            Object response;
+            try {
+                response = bulk.send(keys);
+            } catch (Throwable e) {
+                fail(e);
+                return;
+            }
+            if (response instanceof CompletionStage) {
+                ((CompletionStage<?>) response).whenComplete((items, failure) -> {
+                    if (failure != null) {
+                        fail(failure instanceof CompletionException && failure.getCause() != null
+                                ? failure.getCause()
+                                : failure);
+                    } else {
+                        route(keys, items);
+                    }
+                });
+            } else {
+                route(keys, response);
+            }
+        }
+
+        void route(List<Object> keys, Object items) {
+            if (items instanceof Map) {
+                Map<?, ?> byKey = (Map<?, ?>) items;
+                invocations.forEach((key, results) -> complete(results, byKey.get(key)));
+            } else if (items instanceof List && ((List<?>) items).size() == keys.size()) {
+                List<?> inOrder = (List<?>) items;
+                for (int i = 0; i < keys.size(); i++) {
+                    complete(invocations.get(keys.get(i)), inOrder.get(i));
+                }
+            } else {
+                fail(new IllegalStateException("The bulk response has to be a map of the items by key or a list of "
+                        + keys.size() + " items in the order of the keys, got " + describe(items)));
+            }
+        }
+
+        void fail(Throwable failure) {
+            invocations.values().stream().flatMap(Collection::stream).forEach(f -> f.completeExceptionally(failure));
+        }
+
+        private static void complete(List<CompletableFuture<Object>> results, Object item) {
+            results.forEach(result -> result.complete(item));
+        }
+
+        private static String describe(Object items) {
+            if (items instanceof List) {
+                return ((List<?>) items).size() + " items";
+            }
+            return items == null ? "null" : items.getClass().getName();
+        }
+    }
+}
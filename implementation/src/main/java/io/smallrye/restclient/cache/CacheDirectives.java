@@ -0,0 +1,102 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.cache;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Directives of a {@code Cache-Control} header relevant for a private client cache
+ */
+class CacheDirectives {
+
+    static final CacheDirectives NONE = new CacheDirectives();
+
+    boolean noStore;
+    boolean noCache;
+    boolean mustRevalidate;
+    long maxAge = -1;
+    long staleWhileRevalidate = -1;
+
+    static CacheDirectives parse(String headerValue) {
+        return headerValue == null
+                ? NONE
+                : parse(Collections.singletonList(headerValue));
+    }
+
+    static CacheDirectives parse(List<String> headerValues) {
+        if (headerValues == null || headerValues.isEmpty()) {
+            return NONE;
+        }
+        CacheDirectives result = new CacheDirectives();
+        for (String headerValue : headerValues) {
+            for (String directive : headerValue.split(",")) {
+                result.apply(directive.trim());
+            }
+        }
+        return result;
+    }
+
+    private void apply(String directive) {
+        String name = directive;
+        String value = null;
+        int equals = directive.indexOf('=');
+        if (equals > 0) {
+            name = directive.substring(0, equals).trim();
+            value = unquote(directive.substring(equals + 1).trim());
+        }
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "no-store":
+                noStore = true;
+                break;
+            case "no-cache":
+                noCache = true;
+                break;
+            case "must-revalidate":
+            case "proxy-revalidate":
+                mustRevalidate = true;
+                break;
+            case "max-age":
+                maxAge = seconds(value);
+                break;
+            case "stale-while-revalidate":
+                staleWhileRevalidate = seconds(value);
+                break;
+            default:
+                // other directives do not matter for a private cache
+        }
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    private static long seconds(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            // RFC 7234: an invalid delta-seconds makes the response stale
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Body of a cached response, held either on the heap or in a file of a {@link DiskResponseCache}
+ */
+interface CachedBody {
+
+    CachedBody EMPTY = new Bytes(new byte[0]);
+
+    long length();
+
+    /**
+     * @return a new stream over the body, to be closed by the caller
+     * @throws IOException if the body is no longer available
+     */
+    InputStream open() throws IOException;
+
+    boolean isInMemory();
+
+    final class Bytes implements CachedBody {
+
+        final byte[] bytes;
+
+        Bytes(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public long length() {
+            return bytes.length;
+        }
+
+        @Override
+        public InputStream open() {
+            return new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public boolean isInMemory() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.cache;
+
+import io.smallrye.restclient.header.ClientHeaderMap;
+import org.jboss.resteasy.util.DateUtil;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A response stored in the {@link ResponseCache}, together with its freshness information
+ */
+class CachedResponse {
+
+    private static final String AGE = "Age";
+
+    private static final String[] NOT_STORED_HEADERS = {"Connection", "Keep-Alive", "Transfer-Encoding", AGE};
+
+    private static final String[] NO_VARY = {};
+
+    // status of the entry stored under the URI of responses that vary, see variants(String[], long)
+    private static final int VARIANTS = 0;
+
+    final int status;
+    final MultivaluedMap<String, String> headers;
+    final CachedBody body;
+    final long storedAt;
+    final long expiresAt;
+    final long staleUntil;
+    final String[] varyNames;
+    final String[] varyValues;
+
+    private final long weight;
+
+    private final AtomicBoolean revalidating = new AtomicBoolean();
+
+    CachedResponse(int status, MultivaluedMap<String, String> headers, CachedBody body, long storedAt, long expiresAt,
+                   long staleUntil, String[] varyNames, String[] varyValues) {
+        this.status = status;
+        this.headers = headers;
+        this.body = body;
+        this.storedAt = storedAt;
+        this.expiresAt = expiresAt;
+        this.staleUntil = staleUntil;
+        this.varyNames = varyNames;
+        this.varyValues = varyValues;
+        this.weight = computeWeight();
+    }
+
+    /**
+     * @return the response to store, without a body yet, or null if the response must not be stored
+     */
+    static CachedResponse create(ClientRequestContext request, int status, MultivaluedMap<String, String> responseHeaders,
+                                 long now) {
+        CacheDirectives directives = CacheDirectives.parse(responseHeaders.get(HttpHeaders.CACHE_CONTROL));
+        if (directives.noStore) {
+            return null;
+        }
+        String[] varyNames = varyNames(responseHeaders.get(HttpHeaders.VARY));
+        if (varyNames == null) {
+            return null;
+        }
+        long lifetime = freshnessLifetime(directives, responseHeaders, now);
+        ClientHeaderMap headers = ClientHeaderMap.copyOf(responseHeaders);
+        for (String name : NOT_STORED_HEADERS) {
+            headers.remove(name);
+        }
+        if (lifetime <= 0 && !hasValidator(headers)) {
+            return null;
+        }
+        long expiresAt = now + lifetime;
+        long staleUntil = directives.mustRevalidate || directives.noCache || directives.staleWhileRevalidate <= 0
+                ? expiresAt
+                : expiresAt + directives.staleWhileRevalidate * 1000;
+        return new CachedResponse(status, headers, CachedBody.EMPTY, now, expiresAt, staleUntil, varyNames,
+                varyValues(request, varyNames));
+    }
+
+    /**
+     * Create the entry stored under the URI of the responses that vary on request headers, in place of a response.
+     * It names the headers, so that the key of the variant of a request can be computed before a response is found,
+     * see {@link #variantKey(String, ClientRequestContext)}.
+     *
+     * @param varyNames names of the request headers the responses vary on
+     * @param generation distinguishes the variants of this entry from the ones of an earlier, invalidated entry
+     */
+    static CachedResponse variants(String[] varyNames, long generation) {
+        return new CachedResponse(VARIANTS, new ClientHeaderMap(1), CachedBody.EMPTY, generation, Long.MAX_VALUE,
+                Long.MAX_VALUE, varyNames, new String[varyNames.length]);
+    }
+
+    boolean isVariants() {
+        return status == VARIANTS;
+    }
+
+    boolean hasVaryNames(String[] names) {
+        return Arrays.equals(varyNames, names);
+    }
+
+    /**
+     * @param key key of this variants entry
+     * @param request the request
+     * @return the key of the variant matching the request
+     */
+    String variantKey(String key, ClientRequestContext request) {
+        StringBuilder variantKey = new StringBuilder(key).append('#').append(storedAt);
+        for (String name : varyNames) {
+            String value = request.getHeaderString(name);
+            // header values can't contain line breaks, so they can't be confused with the separators
+            variantKey.append('\n').append(name).append(value == null ? "" : ":" + value);
+        }
+        return variantKey.toString();
+    }
+
+    CachedResponse withBody(CachedBody newBody) {
+        return new CachedResponse(status, headers, newBody, storedAt, expiresAt, staleUntil, varyNames, varyValues);
+    }
+
+    /**
+     * Create a fresh copy of this response, updated with the headers of a 304 (Not Modified) response
+     */
+    CachedResponse refresh(MultivaluedMap<String, String> notModifiedHeaders, long now) {
+        ClientHeaderMap merged = ClientHeaderMap.copyOf(headers);
+        notModifiedHeaders.forEach((name, values) -> {
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                merged.put(name, values);
+            }
+        });
+        CacheDirectives directives = CacheDirectives.parse(merged.get(HttpHeaders.CACHE_CONTROL));
+        long expiresAt = now + Math.max(0, freshnessLifetime(directives, merged, now));
+        for (String name : NOT_STORED_HEADERS) {
+            merged.remove(name);
+        }
+        long staleUntil = directives.mustRevalidate || directives.noCache || directives.staleWhileRevalidate <= 0
+                ? expiresAt
+                : expiresAt + directives.staleWhileRevalidate * 1000;
+        return new CachedResponse(status, merged, body, now, expiresAt, staleUntil, varyNames, varyValues);
+    }
+
+    boolean isFresh(long now) {
+        return now < expiresAt;
+    }
+
+    boolean isUsableWhileRevalidating(long now) {
+        return now < staleUntil;
+    }
+
+    boolean matches(ClientRequestContext request) {
+        for (int i = 0; i < varyNames.length; i++) {
+            if (!Objects.equals(varyValues[i], request.getHeaderString(varyNames[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    String getETag() {
+        return headers.getFirst(HttpHeaders.ETAG);
+    }
+
+    String getLastModified() {
+        return headers.getFirst(HttpHeaders.LAST_MODIFIED);
+    }
+
+    /**
+     * @return age of the response in seconds, to be sent in the {@code Age} header
+     */
+    long age(long now) {
+        return Math.max(0, (now - storedAt) / 1000);
+    }
+
+    /**
+     * @return true if the caller is the one to revalidate the response in the background
+     */
+    boolean startRevalidation() {
+        return revalidating.compareAndSet(false, true);
+    }
+
+    void revalidationFinished() {
+        revalidating.set(false);
+    }
+
+    /**
+     * @return approximate memory footprint of the response, in bytes
+     */
+    long weight() {
+        return weight;
+    }
+
+    private long computeWeight() {
+        long weight = body.length() + 64;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            weight += header.getKey().length() * 2 + 32;
+            for (String value : header.getValue()) {
+                weight += value.length() * 2 + 16;
+            }
+        }
+        return weight;
+    }
+
+    private static long freshnessLifetime(CacheDirectives directives, MultivaluedMap<String, String> headers, long now) {
+        if (directives.noCache) {
+            return 0;
+        }
+        long lifetime;
+        if (directives.maxAge >= 0) {
+            lifetime = directives.maxAge * 1000;
+        } else {
+            String expires = headers.getFirst(HttpHeaders.EXPIRES);
+            if (expires == null) {
+                return 0;
+            }
+            long expiresAt = parseDate(expires, Long.MIN_VALUE);
+            if (expiresAt == Long.MIN_VALUE) {
+                return 0;
+            }
+            String date = headers.getFirst(HttpHeaders.DATE);
+            lifetime = expiresAt - (date == null ? now : parseDate(date, now));
+        }
+        String age = headers.getFirst(AGE);
+        if (age != null) {
+            try {
+                lifetime -= Long.parseLong(age.trim()) * 1000;
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return lifetime;
+    }
+
+    private static boolean hasValidator(MultivaluedMap<String, String> headers) {
+        return headers.containsKey(HttpHeaders.ETAG) || headers.containsKey(HttpHeaders.LAST_MODIFIED);
+    }
+
+    private static long parseDate(String value, long defaultValue) {
+        try {
+            return DateUtil.parseDate(value).getTime();
+        } catch (RuntimeException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @return names of the request headers the response varies on, null if it varies on everything
+     */
+    private static String[] varyNames(List<String> vary) {
+        if (vary == null || vary.isEmpty()) {
+            return NO_VARY;
+        }
+        Set<String> names = new LinkedHashSet<>();
+        for (String value : vary) {
+            for (String name : value.split(",")) {
+                name = name.trim();
+                if ("*".equals(name)) {
+                    return null;
+                }
+                if (!name.isEmpty()) {
+                    names.add(name.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return names.toArray(new String[0]);
+    }
+
+    private static String[] varyValues(ClientRequestContext request, String[] varyNames) {
+        String[] values = new String[varyNames.length];
+        for (int i = 0; i < varyNames.length; i++) {
+            values[i] = request.getHeaderString(varyNames[i]);
+        }
+        return values;
+    }
+}
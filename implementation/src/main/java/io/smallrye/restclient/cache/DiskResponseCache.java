@@ -0,0 +1,626 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.cache;
+
+import io.smallrye.restclient.header.ClientHeaderMap;
+import org.jboss.logging.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent store of cached responses, kept in a directory so that it survives restarts.
+ *
+ * Each response is stored in two files, {@code <id>.meta} with the status, headers and freshness information,
+ * and {@code <id>.body} with the body. The entries are listed in the memory-mapped file {@code index}, a fixed
+ * number of slots holding the hash of the key, the id of the files, their size and the time of the last access,
+ * counted by a logical clock kept in the index.
+ * The least recently used entries are removed when the total size exceeds the limit.
+ *
+ * Bodies are written to and read from the files as streams, they are never loaded onto the heap as a whole.
+ * A directory can only be used by a single process at a time.
+ */
+public class DiskResponseCache implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(DiskResponseCache.class);
+
+    public static final long DEFAULT_MAX_BYTES = 1024L * 1024 * 1024;
+
+    public static final long DEFAULT_MAX_ENTRY_BYTES = 64L * 1024 * 1024;
+
+    public static final int DEFAULT_MAX_ENTRIES = 8192;
+
+    private static final Map<Path, DiskResponseCache> OPEN_CACHES = new ConcurrentHashMap<>();
+
+    private static final String INDEX_FILE = "index";
+    private static final String BODY_SUFFIX = ".body";
+    private static final String META_SUFFIX = ".meta";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private static final int MAGIC = 0x53524331;
+
+    // index header: magic (int), number of slots (int), next id (long), access clock (long)
+    private static final int HEADER_SIZE = 24;
+    private static final int NEXT_ID_OFFSET = 8;
+    private static final int CLOCK_OFFSET = 16;
+
+    // slot: key hash (long), id (long, 0 for a free slot), size (long), last access (long)
+    private static final int SLOT_SIZE = 32;
+    private static final int HASH_OFFSET = 0;
+    private static final int ID_OFFSET = 8;
+    private static final int SIZE_OFFSET = 16;
+    private static final int ACCESS_OFFSET = 24;
+
+    private final Path directory;
+
+    private final long maxBytes;
+
+    private final long maxEntryBytes;
+
+    private final int maxEntries;
+
+    private final FileChannel indexChannel;
+
+    private final FileLock indexLock;
+
+    private final MappedByteBuffer index;
+
+    private final Map<Long, Integer> slotsByHash = new HashMap<>();
+
+    private long currentBytes;
+
+    // clients the cache was opened for and not released by yet, guarded by OPEN_CACHES
+    private int users;
+
+    /**
+     * Get the cache stored in the given directory, opening it if it's not open yet. Clients that use the same
+     * directory share the cache, the limits of the first one apply. Every client has to {@link #release()} it.
+     *
+     * @param directory the directory to store the responses in, created if it does not exist
+     * @param maxBytes maximum total size of the stored responses, in bytes
+     * @param maxEntryBytes maximum size of a single response body, in bytes
+     * @return the cache
+     * @throws IOException if the directory cannot be used as a cache
+     */
+    public static DiskResponseCache open(Path directory, long maxBytes, long maxEntryBytes) throws IOException {
+        Path key = directory.toAbsolutePath().normalize();
+        synchronized (OPEN_CACHES) {
+            DiskResponseCache cache = OPEN_CACHES.get(key);
+            if (cache == null) {
+                cache = new DiskResponseCache(key, maxBytes, maxEntryBytes, DEFAULT_MAX_ENTRIES);
+                OPEN_CACHES.put(key, cache);
+            }
+            cache.users++;
+            return cache;
+        }
+    }
+
+    DiskResponseCache(Path directory, long maxBytes, long maxEntryBytes, int maxEntries) throws IOException {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Disk response cache size must be positive, was " + maxBytes);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+        this.maxEntries = maxEntries;
+
+        Files.createDirectories(directory);
+        indexChannel = FileChannel.open(directory.resolve(INDEX_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            indexLock = lock(indexChannel, directory);
+            long indexSize = HEADER_SIZE + (long) maxEntries * SLOT_SIZE;
+            boolean reuse = indexChannel.size() == indexSize;
+            index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexSize);
+            if (reuse && index.getInt(0) == MAGIC && index.getInt(4) == maxEntries) {
+                loadIndex();
+            } else {
+                initIndex();
+            }
+            deleteUnindexedFiles();
+        } catch (IOException | RuntimeException e) {
+            indexChannel.close();
+            throw e;
+        }
+    }
+
+    long getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    /**
+     * @return the stored response for the key, with its body in a file, or null if there's none
+     */
+    synchronized CachedResponse get(String key) {
+        Integer slot = slotsByHash.get(hash(key));
+        if (slot == null) {
+            return null;
+        }
+        long id = index.getLong(slotOffset(slot) + ID_OFFSET);
+        CachedResponse response;
+        try {
+            response = readMeta(key, id);
+        } catch (IOException e) {
+            LOGGER.debugf(e, "Unable to read cached response %s of %s", id, key);
+            free(slot);
+            return null;
+        }
+        if (response != null) {
+            index.putLong(slotOffset(slot) + ACCESS_OFFSET, tick());
+        }
+        return response;
+    }
+
+    /**
+     * Store a response. A body on the heap is written to a new file, a body obtained from this cache is reused.
+     *
+     * @return true if the response was stored
+     */
+    boolean put(String key, CachedResponse response) {
+        CachedBody body = response.body;
+        if (body.length() > maxEntryBytes) {
+            remove(key);
+            return false;
+        }
+        long id;
+        boolean newBody;
+        if (body instanceof FileBody && ((FileBody) body).cache == this) {
+            id = ((FileBody) body).id;
+            newBody = false;
+        } else {
+            id = nextId();
+            newBody = true;
+        }
+        try {
+            if (newBody) {
+                try (InputStream in = body.open()) {
+                    Files.copy(in, bodyPath(id));
+                }
+            } else if (!Files.exists(bodyPath(id))) {
+                // evicted meanwhile
+                return false;
+            }
+            synchronized (this) {
+                writeMeta(key, id, response);
+                long size = body.length() + Files.size(metaPath(id));
+                index(hash(key), id, size);
+            }
+            return true;
+        } catch (IOException e) {
+            LOGGER.debugf(e, "Unable to store response of %s", key);
+            if (newBody) {
+                deleteFiles(id);
+            }
+            return false;
+        }
+    }
+
+    synchronized void remove(String key) {
+        Integer slot = slotsByHash.get(hash(key));
+        if (slot != null) {
+            free(slot);
+        }
+    }
+
+    /**
+     * @return a writer of a new body file, to copy a response body to the cache without holding it on the heap
+     */
+    BodyWriter newBody() throws IOException {
+        return new BodyWriter(nextId());
+    }
+
+    public synchronized int size() {
+        return slotsByHash.size();
+    }
+
+    public synchronized long getSizeInBytes() {
+        return currentBytes;
+    }
+
+    /**
+     * Remove all the stored responses
+     */
+    public synchronized void clear() {
+        for (Integer slot : slotsByHash.values().toArray(new Integer[0])) {
+            free(slot);
+        }
+    }
+
+    /**
+     * Releases the cache for a client that no longer uses it, closing it once no client does
+     */
+    public void release() throws IOException {
+        synchronized (OPEN_CACHES) {
+            if (--users <= 0) {
+                close();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // the directory is unlocked by the time the cache can be opened again
+        synchronized (OPEN_CACHES) {
+            OPEN_CACHES.remove(directory, this);
+            synchronized (this) {
+                index.force();
+                indexLock.release();
+                indexChannel.close();
+            }
+        }
+    }
+
+    private static FileLock lock(FileChannel channel, Path directory) throws IOException {
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            throw new IOException("Response cache directory " + directory + " is used by another process");
+        }
+        return lock;
+    }
+
+    private void initIndex() {
+        for (int i = 0; i < index.capacity(); i += 8) {
+            index.putLong(i, 0L);
+        }
+        index.putInt(0, MAGIC);
+        index.putInt(4, maxEntries);
+        index.putLong(NEXT_ID_OFFSET, 1L);
+        index.putLong(CLOCK_OFFSET, 0L);
+    }
+
+    private void loadIndex() {
+        for (int slot = 0; slot < maxEntries; slot++) {
+            int offset = slotOffset(slot);
+            long id = index.getLong(offset + ID_OFFSET);
+            if (id == 0) {
+                continue;
+            }
+            if (!Files.exists(metaPath(id)) || !Files.exists(bodyPath(id))
+                    || slotsByHash.containsKey(index.getLong(offset + HASH_OFFSET))) {
+                free(slot);
+                continue;
+            }
+            slotsByHash.put(index.getLong(offset + HASH_OFFSET), slot);
+            currentBytes += index.getLong(offset + SIZE_OFFSET);
+        }
+    }
+
+    /**
+     * Delete files of entries that were being written or removed when the previous process stopped
+     */
+    private void deleteUnindexedFiles() throws IOException {
+        Set<String> indexed = new HashSet<>();
+        for (Integer slot : slotsByHash.values()) {
+            long id = index.getLong(slotOffset(slot) + ID_OFFSET);
+            indexed.add(id + BODY_SUFFIX);
+            indexed.add(id + META_SUFFIX);
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (!name.equals(INDEX_FILE) && !indexed.contains(name)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private synchronized long nextId() {
+        long id = index.getLong(NEXT_ID_OFFSET);
+        index.putLong(NEXT_ID_OFFSET, id + 1);
+        return id;
+    }
+
+    private long tick() {
+        long time = index.getLong(CLOCK_OFFSET) + 1;
+        index.putLong(CLOCK_OFFSET, time);
+        return time;
+    }
+
+    private void index(long hash, long id, long size) {
+        Integer slot = slotsByHash.get(hash);
+        if (slot != null) {
+            int offset = slotOffset(slot);
+            long previousId = index.getLong(offset + ID_OFFSET);
+            if (previousId != id) {
+                deleteFiles(previousId);
+            }
+            currentBytes -= index.getLong(offset + SIZE_OFFSET);
+        } else {
+            slot = freeSlot();
+            slotsByHash.put(hash, slot);
+        }
+        int offset = slotOffset(slot);
+        index.putLong(offset + HASH_OFFSET, hash);
+        index.putLong(offset + ID_OFFSET, id);
+        index.putLong(offset + SIZE_OFFSET, size);
+        index.putLong(offset + ACCESS_OFFSET, tick());
+        currentBytes += size;
+
+        while (currentBytes > maxBytes && slotsByHash.size() > 1) {
+            free(leastRecentlyUsed(slot));
+        }
+    }
+
+    private int freeSlot() {
+        for (int slot = 0; slot < maxEntries; slot++) {
+            if (index.getLong(slotOffset(slot) + ID_OFFSET) == 0) {
+                return slot;
+            }
+        }
+        int evicted = leastRecentlyUsed(-1);
+        free(evicted);
+        return evicted;
+    }
+
+    private int leastRecentlyUsed(int excludedSlot) {
+        int result = -1;
+        long oldest = Long.MAX_VALUE;
+        for (Integer slot : slotsByHash.values()) {
+            long access = index.getLong(slotOffset(slot) + ACCESS_OFFSET);
+            if (slot != excludedSlot && access < oldest) {
+                oldest = access;
+                result = slot;
+            }
+        }
+        return result;
+    }
+
+    private void free(int slot) {
+        int offset = slotOffset(slot);
+        long hash = index.getLong(offset + HASH_OFFSET);
+        if (Integer.valueOf(slot).equals(slotsByHash.get(hash))) {
+            slotsByHash.remove(hash);
+            currentBytes -= index.getLong(offset + SIZE_OFFSET);
+        }
+        deleteFiles(index.getLong(offset + ID_OFFSET));
+        index.putLong(offset + ID_OFFSET, 0L);
+    }
+
+    private void deleteFiles(long id) {
+        // a body being read stays readable on systems that allow to delete open files, elsewhere it's left
+        // to be removed on the next start
+        try {
+            Files.deleteIfExists(metaPath(id));
+            Files.deleteIfExists(bodyPath(id));
+        } catch (IOException e) {
+            LOGGER.debugf(e, "Unable to delete cached response %s", id);
+        }
+    }
+
+    private void writeMeta(String key, long id, CachedResponse response) throws IOException {
+        Path tmp = directory.resolve(id + META_SUFFIX + TMP_SUFFIX);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            writeString(out, key);
+            out.writeInt(response.status);
+            out.writeLong(response.storedAt);
+            out.writeLong(response.expiresAt);
+            out.writeLong(response.staleUntil);
+            out.writeLong(response.body.length());
+            out.writeInt(response.varyNames.length);
+            for (int i = 0; i < response.varyNames.length; i++) {
+                writeString(out, response.varyNames[i]);
+                writeString(out, response.varyValues[i]);
+            }
+            out.writeInt(response.headers.size());
+            for (Map.Entry<String, List<String>> header : response.headers.entrySet()) {
+                writeString(out, header.getKey());
+                out.writeInt(header.getValue().size());
+                for (String value : header.getValue()) {
+                    writeString(out, value);
+                }
+            }
+        }
+        Files.move(tmp, metaPath(id), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the response, or null if the entry belongs to another key with the same hash
+     */
+    private CachedResponse readMeta(String key, long id) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(metaPath(id))))) {
+            if (!key.equals(readString(in))) {
+                return null;
+            }
+            int status = in.readInt();
+            long storedAt = in.readLong();
+            long expiresAt = in.readLong();
+            long staleUntil = in.readLong();
+            long bodyLength = in.readLong();
+            int varyCount = in.readInt();
+            String[] varyNames = new String[varyCount];
+            String[] varyValues = new String[varyCount];
+            for (int i = 0; i < varyCount; i++) {
+                varyNames[i] = readString(in);
+                varyValues[i] = readString(in);
+            }
+            ClientHeaderMap headers = new ClientHeaderMap();
+            int headerCount = in.readInt();
+            for (int i = 0; i < headerCount; i++) {
+                String name = readString(in);
+                int valueCount = in.readInt();
+                for (int j = 0; j < valueCount; j++) {
+                    headers.add(name, readString(in));
+                }
+            }
+            return new CachedResponse(status, headers, new FileBody(this, id, bodyLength), storedAt, expiresAt,
+                    staleUntil, varyNames, varyValues);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Path bodyPath(long id) {
+        return directory.resolve(id + BODY_SUFFIX);
+    }
+
+    private Path metaPath(long id) {
+        return directory.resolve(id + META_SUFFIX);
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the key, collisions are detected by the key stored in the meta file
+     */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * A body stored in a file of this cache
+     */
+    static final class FileBody implements CachedBody {
+
+        private final DiskResponseCache cache;
+        private final long id;
+        private final long length;
+
+        private FileBody(DiskResponseCache cache, long id, long length) {
+            this.cache = cache;
+            this.id = id;
+            this.length = length;
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public InputStream open() throws IOException {
+            return Files.newInputStream(cache.bodyPath(id));
+        }
+
+        @Override
+        public boolean isInMemory() {
+            return false;
+        }
+    }
+
+    /**
+     * Writes a response body to a new file, up to the maximum entry size
+     */
+    final class BodyWriter {
+
+        private final long id;
+        private final OutputStream out;
+        private long written;
+
+        private BodyWriter(long id) throws IOException {
+            this.id = id;
+            this.out = new BufferedOutputStream(Files.newOutputStream(bodyPath(id)));
+        }
+
+        /**
+         * @return false if the body became too big to be stored
+         */
+        boolean write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            written += length;
+            return written <= maxEntryBytes;
+        }
+
+        /**
+         * @return the complete body, to be stored with {@link #put(String, CachedResponse)}
+         */
+        CachedBody finish() throws IOException {
+            out.close();
+            return new FileBody(DiskResponseCache.this, id, written);
+        }
+
+        /**
+         * Give up storing the body
+         *
+         * @return a stream over the bytes written so far, the file is deleted when it's closed
+         */
+        InputStream abandon() throws IOException {
+            out.close();
+            Path file = bodyPath(id);
+            return new FilterInputStream(Files.newInputStream(file)) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            };
+        }
+
+        void discard() {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+            deleteFiles(id);
+        }
+    }
+}
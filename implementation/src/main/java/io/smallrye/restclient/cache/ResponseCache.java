@@ -0,0 +1,99 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory store of cached responses of a single rest client, evicting the least recently used responses
+ * when the total size exceeds the limit.
+ */
+public class ResponseCache {
+
+    public static final long DEFAULT_MAX_BYTES = 10 * 1024 * 1024;
+
+    public static final long DEFAULT_MAX_ENTRY_BYTES = 1024 * 1024;
+
+    private final long maxBytes;
+
+    private final long maxEntryBytes;
+
+    private final LinkedHashMap<String, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long currentBytes;
+
+    /**
+     * @param maxBytes maximum total size of the cached responses, in bytes
+     * @param maxEntryBytes maximum size of a single cached response body, in bytes
+     */
+    public ResponseCache(long maxBytes, long maxEntryBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Response cache size must be positive, was " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+    }
+
+    long getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    synchronized CachedResponse get(String key) {
+        return entries.get(key);
+    }
+
+    synchronized void put(String key, CachedResponse response) {
+        long weight = response.weight();
+        if (weight > maxBytes) {
+            remove(key);
+            return;
+        }
+        CachedResponse previous = entries.put(key, response);
+        if (previous != null) {
+            currentBytes -= previous.weight();
+        }
+        currentBytes += weight;
+
+        Iterator<Map.Entry<String, CachedResponse>> eldest = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && eldest.hasNext()) {
+            CachedResponse evicted = eldest.next().getValue();
+            eldest.remove();
+            currentBytes -= evicted.weight();
+        }
+    }
+
+    synchronized void remove(String key) {
+        CachedResponse removed = entries.remove(key);
+        if (removed != null) {
+            currentBytes -= removed.weight();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getSizeInBytes() {
+        return currentBytes;
+    }
+}
@@ -0,0 +1,358 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.cache;
+
+import org.jboss.logging.Logger;
+
+import javax.annotation.Priority;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+
+/**
+ * Caches responses to GET requests, following the caching rules of RFC 7234 for a private cache.
+ *
+ * Fresh responses are served without contacting the server. Stale responses with a validator are revalidated with a
+ * conditional request, and a 304 (Not Modified) answer is replaced with the cached response. Within the
+ * {@code stale-while-revalidate} window, the stale response is served right away and revalidated in the background.
+ *
+ * Responses that vary on request headers are stored per variant, under a key that includes the values of those
+ * headers. The entry of their URI only names the headers, see {@link CachedResponse#variants(String[], long)}.
+ *
+ * Responses are kept in a {@link ResponseCache} on the heap and, if configured, in a {@link DiskResponseCache} that
+ * survives restarts. Bodies too big for the heap are copied to the disk cache and served from there as streams.
+ *
+ * As a request filter, it runs after all the other filters, so that the headers the response varies on are final.
+ * As a response filter, it runs before all the other filters, so that they never see a 304 of a revalidation.
+ */
+@Priority(Integer.MAX_VALUE)
+public class ResponseCacheFilter implements ClientRequestFilter, ClientResponseFilter {
+
+    private static final Logger LOGGER = Logger.getLogger(ResponseCacheFilter.class);
+
+    private static final String VALIDATED_PROPERTY = ResponseCacheFilter.class.getName() + ".validated";
+    private static final String VALIDATED_KEY_PROPERTY = ResponseCacheFilter.class.getName() + ".validatedKey";
+    private static final String HIT_PROPERTY = ResponseCacheFilter.class.getName() + ".hit";
+    private static final String BACKGROUND_PROPERTY = ResponseCacheFilter.class.getName() + ".background";
+
+    private final ResponseCache cache;
+
+    private final DiskResponseCache diskCache;
+
+    public ResponseCacheFilter(ResponseCache cache) {
+        this(cache, null);
+    }
+
+    /**
+     * @param cache the cache on the heap
+     * @param diskCache the cache on disk, may be null
+     */
+    public ResponseCacheFilter(ResponseCache cache, DiskResponseCache diskCache) {
+        this.cache = cache;
+        this.diskCache = diskCache;
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext) {
+        if (!HttpMethod.GET.equals(requestContext.getMethod())) {
+            return;
+        }
+        CacheDirectives requestDirectives = CacheDirectives.parse(requestContext.getHeaderString(HttpHeaders.CACHE_CONTROL));
+        if (requestDirectives.noStore) {
+            return;
+        }
+        String key = key(requestContext);
+        CachedResponse cached = lookup(key);
+        if (cached != null && cached.isVariants()) {
+            key = cached.variantKey(key, requestContext);
+            cached = lookup(key);
+        }
+        if (cached == null || !cached.matches(requestContext)) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (requestContext.getProperty(BACKGROUND_PROPERTY) == null && !requestDirectives.noCache) {
+            boolean fresh = cached.isFresh(now);
+            if (fresh || cached.isUsableWhileRevalidating(now)) {
+                InputStream body;
+                try {
+                    body = cached.body.length() > 0 ? cached.body.open() : null;
+                } catch (IOException e) {
+                    LOGGER.debugf(e, "Cached response of %s is no longer available", key);
+                    remove(key);
+                    return;
+                }
+                if (!fresh && cached.startRevalidation()) {
+                    revalidateInBackground(requestContext, cached);
+                }
+                serve(requestContext, cached, body, now);
+                return;
+            }
+        }
+        addConditionalHeaders(requestContext, key, cached);
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) throws IOException {
+        if (requestContext.getProperty(HIT_PROPERTY) != null) {
+            return;
+        }
+        String method = requestContext.getMethod();
+        int status = responseContext.getStatus();
+        if (!HttpMethod.GET.equals(method)) {
+            // RFC 7234, 4.4: a successful unsafe request invalidates the cached response
+            if (!HttpMethod.HEAD.equals(method) && !HttpMethod.OPTIONS.equals(method) && status < 400) {
+                remove(key(requestContext));
+            }
+            return;
+        }
+
+        String key = key(requestContext);
+        long now = System.currentTimeMillis();
+        CachedResponse validated = (CachedResponse) requestContext.getProperty(VALIDATED_PROPERTY);
+        if (validated != null && status == Response.Status.NOT_MODIFIED.getStatusCode()) {
+            key = (String) requestContext.getProperty(VALIDATED_KEY_PROPERTY);
+            CachedResponse refreshed = validated.refresh(responseContext.getHeaders(), now);
+            InputStream body;
+            try {
+                body = refreshed.body.open();
+            } catch (IOException e) {
+                remove(key);
+                throw e;
+            }
+            store(key, refreshed);
+            replace(responseContext, refreshed, body);
+            return;
+        }
+        if (!isCacheable(status)) {
+            return;
+        }
+        CachedResponse response = CachedResponse.create(requestContext, status, responseContext.getHeaders(), now);
+        if (response == null) {
+            remove(key);
+            return;
+        }
+        if (response.varyNames.length > 0) {
+            key = variants(key, response.varyNames, now).variantKey(key, requestContext);
+        }
+        CachedBody body = readBody(responseContext);
+        if (body != null) {
+            store(key, response.withBody(body));
+        } else {
+            remove(key);
+        }
+    }
+
+    /**
+     * @return the variants entry of the URI for the given request headers, stored if there was none
+     */
+    private CachedResponse variants(String key, String[] varyNames, long now) {
+        CachedResponse variants = lookup(key);
+        if (variants == null || !variants.isVariants() || !variants.hasVaryNames(varyNames)) {
+            variants = CachedResponse.variants(varyNames, now);
+            store(key, variants);
+        }
+        return variants;
+    }
+
+    private CachedResponse lookup(String key) {
+        CachedResponse cached = cache.get(key);
+        if (cached == null && diskCache != null) {
+            cached = diskCache.get(key);
+        }
+        return cached;
+    }
+
+    private void store(String key, CachedResponse response) {
+        if (response.body.isInMemory()) {
+            cache.put(key, response);
+        } else {
+            cache.remove(key);
+        }
+        if (diskCache != null) {
+            diskCache.put(key, response);
+        }
+    }
+
+    private void remove(String key) {
+        cache.remove(key);
+        if (diskCache != null) {
+            diskCache.remove(key);
+        }
+    }
+
+    private void serve(ClientRequestContext requestContext, CachedResponse cached, InputStream body, long now) {
+        Response.ResponseBuilder response = Response.status(cached.status);
+        cached.headers.forEach((name, values) -> values.forEach(value -> response.header(name, value)));
+        response.header("Age", cached.age(now));
+        if (body != null) {
+            response.entity(body);
+        }
+        requestContext.setProperty(HIT_PROPERTY, Boolean.TRUE);
+        requestContext.abortWith(response.build());
+    }
+
+    private void addConditionalHeaders(ClientRequestContext requestContext, String key, CachedResponse cached) {
+        MultivaluedMap<String, Object> headers = requestContext.getHeaders();
+        if (headers.containsKey(HttpHeaders.IF_NONE_MATCH) || headers.containsKey(HttpHeaders.IF_MODIFIED_SINCE)) {
+            // the caller validates on its own, it has to get the 304
+            return;
+        }
+        String etag = cached.getETag();
+        String lastModified = cached.getLastModified();
+        if (etag != null) {
+            headers.putSingle(HttpHeaders.IF_NONE_MATCH, etag);
+        }
+        if (lastModified != null) {
+            headers.putSingle(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+        }
+        if (etag != null || lastModified != null) {
+            requestContext.setProperty(VALIDATED_PROPERTY, cached);
+            requestContext.setProperty(VALIDATED_KEY_PROPERTY, key);
+        }
+    }
+
+    private void revalidateInBackground(ClientRequestContext requestContext, CachedResponse cached) {
+        try {
+            Invocation.Builder request = requestContext.getClient().target(requestContext.getUri()).request();
+            requestContext.getHeaders().forEach((name, values) -> values.forEach(value -> request.header(name, value)));
+            request.property(BACKGROUND_PROPERTY, Boolean.TRUE);
+            request.async().get(new InvocationCallback<Response>() {
+                @Override
+                public void completed(Response response) {
+                    cached.revalidationFinished();
+                    response.close();
+                }
+
+                @Override
+                public void failed(Throwable throwable) {
+                    cached.revalidationFinished();
+                    LOGGER.debugf(throwable, "Background revalidation of %s failed", requestContext.getUri());
+                }
+            });
+        } catch (RuntimeException e) {
+            cached.revalidationFinished();
+            LOGGER.debugf(e, "Unable to start background revalidation of %s", requestContext.getUri());
+        }
+    }
+
+    private void replace(ClientResponseContext responseContext, CachedResponse cached, InputStream body) {
+        responseContext.setStatus(cached.status);
+        MultivaluedMap<String, String> headers = responseContext.getHeaders();
+        headers.clear();
+        cached.headers.forEach((name, values) -> headers.put(name, new ArrayList<>(values)));
+        responseContext.setEntityStream(body);
+    }
+
+    /**
+     * Read the whole body, unless it's too big to be cached. Bodies that fit on the heap are read into memory,
+     * bigger ones are copied to the disk cache. The entity stream of the response is replaced so that the body can
+     * still be read by the client.
+     *
+     * @return the body, or null if it's too big to be cached
+     */
+    private CachedBody readBody(ClientResponseContext responseContext) throws IOException {
+        // hasEntity() is false for a body without a Content-Type
+        InputStream entityStream = responseContext.getEntityStream();
+        int length = responseContext.getLength();
+        if (entityStream == null || length == 0) {
+            return CachedBody.EMPTY;
+        }
+        long memoryLimit = cache.getMaxEntryBytes();
+        long limit = diskCache == null ? memoryLimit : Math.max(memoryLimit, diskCache.getMaxEntryBytes());
+        if (length > limit) {
+            return null;
+        }
+        if (length > memoryLimit) {
+            return spool(responseContext, new byte[0], entityStream);
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream(length > 0 ? length : 1024);
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = entityStream.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+            if (body.size() > memoryLimit) {
+                if (diskCache != null) {
+                    return spool(responseContext, body.toByteArray(), entityStream);
+                }
+                responseContext.setEntityStream(new SequenceInputStream(new ByteArrayInputStream(body.toByteArray()), entityStream));
+                return null;
+            }
+        }
+        byte[] result = body.toByteArray();
+        responseContext.setEntityStream(new ByteArrayInputStream(result));
+        return new CachedBody.Bytes(result);
+    }
+
+    private CachedBody spool(ClientResponseContext responseContext, byte[] prefix, InputStream entityStream) throws IOException {
+        DiskResponseCache.BodyWriter writer = diskCache.newBody();
+        try {
+            boolean fits = writer.write(prefix, 0, prefix.length);
+            byte[] buffer = new byte[8192];
+            int read;
+            while (fits && (read = entityStream.read(buffer)) != -1) {
+                fits = writer.write(buffer, 0, read);
+            }
+            if (!fits) {
+                responseContext.setEntityStream(new SequenceInputStream(writer.abandon(), entityStream));
+                return null;
+            }
+            CachedBody body = writer.finish();
+            responseContext.setEntityStream(body.open());
+            return body;
+        } catch (IOException e) {
+            writer.discard();
+            throw e;
+        }
+    }
+
+    private static boolean isCacheable(int status) {
+        // RFC 7231, 6.1: status codes cacheable by default
+        switch (status) {
+            case 200:
+            case 203:
+            case 204:
+            case 300:
+            case 301:
+            case 404:
+            case 405:
+            case 410:
+            case 414:
+            case 501:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static String key(ClientRequestContext requestContext) {
+        return requestContext.getUri().toString();
+    }
+}
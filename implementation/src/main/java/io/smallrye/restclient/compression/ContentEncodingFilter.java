@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.compression;
+
+import javax.annotation.Priority;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import java.io.InputStream;
+
+/**
+ * Asks for gzip or deflate compressed responses and decodes them.
+ *
+ * {@code Accept-Encoding} is only added to requests that don't have one already. A compressed response gets its entity
+ * stream wrapped with a decoder, which inflates the body as it's read, and loses its {@code Content-Encoding} and
+ * {@code Content-Length} headers. The response cache and single flight run before, so they keep compressed bodies.
+ */
+@Priority(Priorities.ENTITY_CODER)
+public class ContentEncodingFilter implements ClientRequestFilter, ClientResponseFilter {
+
+    static final String GZIP = "gzip";
+
+    static final String X_GZIP = "x-gzip";
+
+    static final String DEFLATE = "deflate";
+
+    private static final String ACCEPTED_ENCODINGS = GZIP + ", " + DEFLATE;
+
+    @Override
+    public void filter(ClientRequestContext requestContext) {
+        if (!requestContext.getHeaders().containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+            requestContext.getHeaders().putSingle(HttpHeaders.ACCEPT_ENCODING, ACCEPTED_ENCODINGS);
+        }
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) {
+        String encoding = responseContext.getHeaderString(HttpHeaders.CONTENT_ENCODING);
+        if (encoding == null || HttpMethod.HEAD.equals(requestContext.getMethod())) {
+            return;
+        }
+        // hasEntity() is false for a body without a Content-Type
+        InputStream entityStream = responseContext.getEntityStream();
+        if (entityStream == null) {
+            return;
+        }
+        encoding = encoding.trim().toLowerCase();
+        boolean gzip = GZIP.equals(encoding) || X_GZIP.equals(encoding);
+        if (!gzip && !DEFLATE.equals(encoding)) {
+            return;
+        }
+        responseContext.setEntityStream(new DecodingInputStream(entityStream, gzip));
+        responseContext.getHeaders().remove(HttpHeaders.CONTENT_ENCODING);
+        responseContext.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.compression;
+
+import io.smallrye.restclient.engine.Abortable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Inflates a gzip or deflate encoded body as it's read.
+ *
+ * The decoder is only set up on the first read, so that wrapping a stream never blocks and an empty body stays empty.
+ * Deflate bodies are accepted both with the zlib wrapper RFC 7230 asks for and raw, as some servers send them.
+ */
+class DecodingInputStream extends InputStream implements Abortable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final InputStream encoded;
+
+    private final boolean gzip;
+
+    private InputStream decoded;
+
+    DecodingInputStream(InputStream encoded, boolean gzip) {
+        this.encoded = encoded;
+        this.gzip = gzip;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return decoded().read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        return decoded().read(b, off, len);
+    }
+
+    @Override
+    public int available() throws IOException {
+        return decoded == null ? 0 : decoded.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (decoded != null) {
+            decoded.close();
+        } else {
+            encoded.close();
+        }
+    }
+
+    @Override
+    public void abort() throws IOException {
+        Abortable.abort(encoded);
+    }
+
+    private InputStream decoded() throws IOException {
+        if (decoded == null) {
+            PushbackInputStream in = new PushbackInputStream(encoded, 2);
+            int first = in.read();
+            if (first == -1) {
+                decoded = in;
+            } else if (gzip) {
+                in.unread(first);
+                decoded = new GZIPInputStream(in, BUFFER_SIZE);
+            } else {
+                int second = in.read();
+                if (second != -1) {
+                    in.unread(second);
+                }
+                in.unread(first);
+                decoded = new InflaterInputStream(in, new Inflater(!isZlibHeader(first, second)), BUFFER_SIZE) {
+                    @Override
+                    public void close() throws IOException {
+                        // the inflater isn't owned by the stream, it has to be released explicitly
+                        inf.end();
+                        super.close();
+                    }
+                };
+            }
+        }
+        return decoded;
+    }
+
+    private static boolean isZlibHeader(int first, int second) {
+        // compression method 8 (deflate) and a header checksum that's a multiple of 31
+        return second != -1 && (first & 0x0F) == 8 && ((first << 8) | second) % 31 == 0;
+    }
+}
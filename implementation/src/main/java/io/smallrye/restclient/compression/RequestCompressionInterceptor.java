@@ -0,0 +1,146 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.compression;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compresses request bodies longer than a threshold.
+ *
+ * The first {@code threshold} bytes of a body are held back; a body that ends within them is sent as is, a longer one
+ * is compressed and gets a {@code Content-Encoding: gzip} header. Bodies that already have a
+ * {@code Content-Encoding} are left alone.
+ */
+@Priority(Priorities.ENTITY_CODER)
+public class RequestCompressionInterceptor implements WriterInterceptor {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int threshold;
+
+    /**
+     * @param threshold number of bytes a body has to exceed to be compressed
+     */
+    public RequestCompressionInterceptor(long threshold) {
+        this.threshold = (int) Math.max(0, Math.min(threshold, Integer.MAX_VALUE - 8));
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        if (context.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            context.proceed();
+            return;
+        }
+        CompressingOutputStream compressing = new CompressingOutputStream(context.getOutputStream(), threshold,
+                context.getHeaders());
+        context.setOutputStream(compressing);
+        context.proceed();
+        compressing.finish();
+    }
+
+    static class CompressingOutputStream extends OutputStream {
+
+        private final OutputStream out;
+
+        private final MultivaluedMap<String, Object> headers;
+
+        private final int threshold;
+
+        private byte[] pending;
+
+        private int pendingLength;
+
+        private GZIPOutputStream gzip;
+
+        private boolean finished;
+
+        CompressingOutputStream(OutputStream out, int threshold, MultivaluedMap<String, Object> headers) {
+            this.out = out;
+            this.headers = headers;
+            this.threshold = threshold;
+            this.pending = new byte[Math.min(threshold, BUFFER_SIZE)];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (gzip != null) {
+                gzip.write(b, off, len);
+            } else if (pendingLength + len <= threshold) {
+                if (pendingLength + len > pending.length) {
+                    pending = Arrays.copyOf(pending, (int) Math.min(threshold, Math.max(2L * pending.length, pendingLength + len)));
+                }
+                System.arraycopy(b, off, pending, pendingLength, len);
+                pendingLength += len;
+            } else {
+                headers.putSingle(HttpHeaders.CONTENT_ENCODING, ContentEncodingFilter.GZIP);
+                gzip = new GZIPOutputStream(out, BUFFER_SIZE) {
+                    @Override
+                    public void finish() throws IOException {
+                        super.finish();
+                        // close() would release the deflater, but the underlying stream has to stay open
+                        def.end();
+                    }
+                };
+                gzip.write(pending, 0, pendingLength);
+                gzip.write(b, off, len);
+                pending = null;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (gzip != null) {
+                gzip.flush();
+            }
+        }
+
+        /**
+         * Completes the body, without closing the underlying stream.
+         */
+        void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (gzip != null) {
+                gzip.finish();
+            } else {
+                out.write(pending, 0, pendingLength);
+                pending = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.concurrency;
+
+import javax.ws.rs.ProcessingException;
+
+/**
+ * Rejects an invocation when the concurrency limit of its client method is reached and no more invocations can wait.
+ *
+ * The invocation is rejected before anything is sent.
+ */
+public class ConcurrencyLimitException extends ProcessingException {
+
+    private final int limit;
+
+    public ConcurrencyLimitException(int limit) {
+        super("The limit of " + limit + " concurrent invocations is reached");
+        this.limit = limit;
+    }
+
+    /**
+     * @return the maximum number of concurrent invocations
+     */
+    public int getLimit() {
+        return limit;
+    }
+}
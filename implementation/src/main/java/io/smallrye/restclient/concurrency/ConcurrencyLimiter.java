@@ -0,0 +1,287 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.concurrency;
+
+import io.smallrye.restclient.async.Stages;
+import io.smallrye.restclient.timeout.RequestTimeoutException;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounds the number of invocations in flight, without locks.
+ *
+ * An invocation takes a permit while there are fewer invocations in flight than the limit. Past it, the invocation
+ * waits in a bounded queue for the permit of an invocation that completes; when the queue is full as well, it's
+ * rejected right away with a {@link ConcurrencyLimitException}.
+ *
+ * Permits and waiting invocations are counted with atomic integers; a released permit goes to the longest waiting
+ * invocation, if any.
+ *
+ * The limit is either fixed or adjusted by a {@link GradientLimit} from the round-trip times of the invocations, as
+ * reported by {@link #release(long, boolean)}. Invocations in flight past a lowered limit run to completion, new ones
+ * wait or are rejected until they're back under it.
+ */
+public class ConcurrencyLimiter {
+
+    private final GradientLimit adaptiveLimit;
+
+    private final int maxQueued;
+
+    private volatile int limit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final Queue<CompletableFuture<Void>> waiting = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param limit maximum number of invocations in flight
+     * @param maxQueued maximum number of invocations waiting for a permit, 0 to reject any invocation past the limit
+     */
+    public ConcurrencyLimiter(int limit, int maxQueued) {
+        this.adaptiveLimit = null;
+        this.limit = limit;
+        this.maxQueued = Math.max(maxQueued, 0);
+    }
+
+    /**
+     * @param adaptiveLimit the algorithm adjusting the limit
+     * @param maxQueued maximum number of invocations waiting for a permit, 0 to reject any invocation past the limit
+     */
+    public ConcurrencyLimiter(GradientLimit adaptiveLimit, int maxQueued) {
+        this.adaptiveLimit = adaptiveLimit;
+        this.limit = adaptiveLimit.getLimit();
+        this.maxQueued = Math.max(maxQueued, 0);
+    }
+
+    /**
+     * @return whether a permit was taken
+     */
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Takes a permit, or waits for one in the queue.
+     *
+     * Cancelling the returned future leaves the queue; a permit granted in the meantime is released.
+     *
+     * @return a future completed once the permit is taken, completed already if one was free, failed with a
+     * {@link ConcurrencyLimitException} if the queue is full
+     */
+    public CompletableFuture<Void> acquire() {
+        if (tryAcquire()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            CompletableFuture<Void> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new ConcurrencyLimitException(limit));
+            return rejected;
+        }
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        permit.whenComplete((granted, failure) -> {
+            if (permit.isCancelled() && waiting.remove(permit)) {
+                queued.decrementAndGet();
+            }
+        });
+        waiting.add(permit);
+        // a permit may have been released between the failed attempt and the queueing
+        grantWaiting();
+        return permit;
+    }
+
+    /**
+     * Sends an asynchronous invocation once it has a permit, and releases the permit when the invocation completes.
+     *
+     * A queued invocation is sent by the thread releasing a permit, no thread waits for it. Cancelling the returned
+     * stage leaves the queue, or cancels the invocation once it's sent; a permit granted to an invocation cancelled
+     * before it could be sent is released.
+     *
+     * @param invocation sends the invocation
+     * @param <T> type of the result of the invocation
+     * @return a stage completed with the result of the invocation, failed with a {@link ConcurrencyLimitException} if
+     * the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletionStage<T>> invocation) {
+        return submit(acquire(), invocation);
+    }
+
+    /**
+     * Sends an asynchronous invocation with a permit asked for already, see {@link #submit(Supplier)}
+     *
+     * @param permit the permit, as returned by {@link #acquire()}
+     * @param invocation sends the invocation
+     * @param <T> type of the result of the invocation
+     * @return a stage completed with the result of the invocation
+     */
+    public <T> CompletableFuture<T> submit(CompletableFuture<Void> permit, Supplier<CompletionStage<T>> invocation) {
+        // a granted permit goes either to the invocation or back to the limiter, whichever claims it first
+        AtomicBoolean claimed = new AtomicBoolean();
+        CompletableFuture<T> result = Stages.compose(permit, granted -> {
+            if (!claimed.compareAndSet(false, true)) {
+                return Stages.failed(new CancellationException());
+            }
+            long start = System.nanoTime();
+            CompletionStage<T> stage;
+            try {
+                stage = invocation.get();
+            } catch (Throwable e) {
+                release(System.nanoTime() - start, isDropped(e));
+                return Stages.failed(e);
+            }
+            stage.whenComplete((value, failure) -> release(System.nanoTime() - start, isDropped(failure)));
+            return stage;
+        });
+        // cancelled between the grant and the sending of the invocation
+        Runnable releaseUnused = () -> {
+            if (result.isDone() && permit.isDone() && !permit.isCompletedExceptionally()
+                    && claimed.compareAndSet(false, true)) {
+                release();
+            }
+        };
+        permit.whenComplete((granted, failure) -> releaseUnused.run());
+        result.whenComplete((value, failure) -> releaseUnused.run());
+        return result;
+    }
+
+    /**
+     * Takes a permit, waiting for one in the queue if needed
+     *
+     * @throws ConcurrencyLimitException if the queue is full
+     */
+    public void acquireBlocking() {
+        CompletableFuture<Void> permit = acquire();
+        try {
+            permit.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (!permit.cancel(false) && !permit.isCompletedExceptionally()) {
+                // granted in the meantime
+                release();
+            }
+            throw new ProcessingException("Interrupted while waiting for a permit", e);
+        } catch (ExecutionException e) {
+            throw (ConcurrencyLimitException) e.getCause();
+        }
+    }
+
+    /**
+     * Releases a permit, handing it over to a waiting invocation if there's one
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+        grantWaiting();
+    }
+
+    /**
+     * Releases the permit of a completed invocation, adjusting an adaptive limit
+     *
+     * @param rttNanos time the invocation took, from the moment it got its permit, in nanoseconds
+     * @param dropped whether the invocation failed in a way that tells the server is overloaded, e.g. it timed out
+     */
+    public void release(long rttNanos, boolean dropped) {
+        if (adaptiveLimit != null) {
+            limit = adaptiveLimit.update(rttNanos, inFlight.get(), dropped);
+        }
+        release();
+    }
+
+    /**
+     * @return whether the limit is adjusted from the round-trip times
+     */
+    public boolean isAdaptive() {
+        return adaptiveLimit != null;
+    }
+
+    /**
+     * @return the maximum number of invocations in flight
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return the number of invocations in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return the number of invocations waiting for a permit
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * @param failure failure of an invocation, null if it succeeded
+     * @return whether the failure tells the server is overloaded: a request timeout, an I/O error such as a read
+     * timeout, or a 429 or 503 response
+     */
+    public static boolean isDropped(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause()
+                : failure;
+        if (cause instanceof RequestTimeoutException) {
+            return true;
+        }
+        if (cause instanceof WebApplicationException) {
+            Response response = ((WebApplicationException) cause).getResponse();
+            return response != null && (response.getStatus() == 429
+                    || response.getStatus() == Response.Status.SERVICE_UNAVAILABLE.getStatusCode());
+        }
+        return cause instanceof ProcessingException && cause.getCause() instanceof IOException;
+    }
+
+    private void grantWaiting() {
+        while (!waiting.isEmpty() && tryAcquire()) {
+            CompletableFuture<Void> permit = waiting.poll();
+            if (permit == null) {
+                // taken by a concurrent release
+                inFlight.decrementAndGet();
+                continue;
+            }
+            queued.decrementAndGet();
+            if (!permit.complete(null)) {
+                // cancelled while waiting
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
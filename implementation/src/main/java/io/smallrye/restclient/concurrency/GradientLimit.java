@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.concurrency;
+
+/**
+ * Adjusts a concurrency limit to the latency of the invocations.
+ *
+ * The round-trip time of each invocation is compared with a long-term average. While it stays close to the average,
+ * the limit grows by about its square root, leaving room for a queue of that size at the server; as the round-trip
+ * time goes up, the server is queueing more than that and the limit shrinks in proportion, by half at most. A dropped
+ * invocation, e.g. one that timed out or was turned down as overloaded, cuts the limit by a tenth.
+ *
+ * Samples taken while less than half of the limit is in use don't say anything about the capacity of the server and
+ * are ignored.
+ */
+public class GradientLimit {
+
+    private static final double TOLERANCE = 1.5;
+
+    private static final double SMOOTHING = 0.2;
+
+    private static final double BACKOFF = 0.9;
+
+    private static final int LONG_WINDOW = 100;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private double limit;
+
+    private double longRtt;
+
+    /**
+     * @param initialLimit limit until the first samples come in
+     * @param minLimit minimum limit
+     * @param maxLimit maximum limit
+     */
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = Math.max(minLimit, 1);
+        this.maxLimit = Math.max(maxLimit, this.minLimit);
+        this.limit = Math.min(Math.max(initialLimit, this.minLimit), this.maxLimit);
+    }
+
+    /**
+     * @return the current limit
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @param rttNanos round-trip time of a completed invocation, in nanoseconds
+     * @param inFlight number of invocations in flight when it completed, including itself
+     * @param dropped whether the invocation was dropped
+     * @return the new limit
+     */
+    public synchronized int update(long rttNanos, int inFlight, boolean dropped) {
+        if (dropped) {
+            limit = Math.max(minLimit, limit * BACKOFF);
+            return (int) limit;
+        }
+        double rtt = Math.max(rttNanos, 1);
+        if (longRtt == 0) {
+            longRtt = rtt;
+        } else {
+            longRtt += (rtt - longRtt) / LONG_WINDOW;
+            if (longRtt / rtt > 2) {
+                // the latency dropped a lot, e.g. the server recovered, catch up faster
+                longRtt *= 0.95;
+            }
+        }
+        if (inFlight < limit / 2) {
+            return (int) limit;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / rtt));
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = Math.min(maxLimit, Math.max(minLimit, limit * (1 - SMOOTHING) + target * SMOOTHING));
+        return (int) limit;
+    }
+}
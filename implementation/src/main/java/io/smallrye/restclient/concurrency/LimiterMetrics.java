@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.concurrency;
+
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.jboss.logging.Logger;
+
+import javax.enterprise.inject.Instance;
+import javax.enterprise.inject.spi.CDI;
+
+/**
+ * Exposes the limit and the number of invocations in flight of concurrency limiters as MicroProfile Metrics gauges,
+ * in the application registry.
+ *
+ * Nothing is registered when MicroProfile Metrics or CDI isn't there.
+ */
+public final class LimiterMetrics {
+
+    private static final Logger LOGGER = Logger.getLogger(LimiterMetrics.class);
+
+    private static final String PREFIX = "io.smallrye.restclient.";
+
+    private static final boolean METRICS_AVAILABLE = isMetricsAvailable();
+
+    /**
+     * Registers the gauges {@code io.smallrye.restclient.<name>.concurrencyLimit} and
+     * {@code io.smallrye.restclient.<name>.inFlight}, replacing those of a limiter registered with the same name.
+     *
+     * @param name name of the limited client or method
+     * @param limiter the limiter
+     */
+    public static void register(String name, ConcurrencyLimiter limiter) {
+        if (METRICS_AVAILABLE) {
+            Registration.register(PREFIX + name, limiter);
+        }
+    }
+
+    private static boolean isMetricsAvailable() {
+        try {
+            Class.forName("org.eclipse.microprofile.metrics.MetricRegistry", false, LimiterMetrics.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Only loaded when MicroProfile Metrics is available
+     */
+    private static final class Registration {
+
+        static void register(String name, ConcurrencyLimiter limiter) {
+            MetricRegistry registry = registry();
+            if (registry == null) {
+                return;
+            }
+            register(registry, name + ".concurrencyLimit", limiter::getLimit);
+            register(registry, name + ".inFlight", limiter::getInFlight);
+        }
+
+        private static void register(MetricRegistry registry, String name, Gauge<Integer> gauge) {
+            // a client built again replaces the gauges of the previous one
+            registry.remove(name);
+            registry.register(name, gauge);
+        }
+
+        private static MetricRegistry registry() {
+            try {
+                Instance<MetricRegistry> registry = CDI.current().select(MetricRegistry.class);
+                return registry.isUnsatisfied() || registry.isAmbiguous() ? null : registry.get();
+            } catch (IllegalStateException e) {
+                LOGGER.debug("CDI container is not available, concurrency limits are not exposed as metrics");
+                return null;
+            }
+        }
+    }
+
+    private LimiterMetrics() {
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.discovery;
+
+import org.eclipse.microprofile.config.Config;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads the instances of a service from the comma separated URIs of the {@code <service>/mp-rest/endpoints} config
+ * property.
+ */
+class ConfigDiscovery implements ServiceDiscovery {
+
+    static final String NAME = "config";
+
+    private static final String KEY_FORMAT = "%s/mp-rest/endpoints";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<URI> resolve(String service, Config config) {
+        return config.getOptionalValue(String.format(KEY_FORMAT, service), String.class)
+                .map(uris -> parse(uris.split(",")))
+                .orElse(Collections.emptyList());
+    }
+
+    static List<URI> parse(String[] values) {
+        List<URI> uris = new ArrayList<>();
+        for (String value : values) {
+            String uri = value.trim();
+            if (!uri.isEmpty() && !uri.startsWith("#")) {
+                uris.add(URI.create(uri));
+            }
+        }
+        return uris;
+    }
+}
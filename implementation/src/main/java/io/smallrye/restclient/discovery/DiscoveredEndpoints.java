@@ -0,0 +1,198 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.discovery;
+
+import io.smallrye.restclient.loadbalance.Endpoint;
+import io.smallrye.restclient.loadbalance.LoadBalancer;
+import org.eclipse.microprofile.config.Config;
+import org.jboss.logging.Logger;
+
+import java.io.Closeable;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The endpoints of a client resolved by a {@link ServiceDiscovery}, as a {@link LoadBalancer} that's replaced
+ * whenever the resolved set changes.
+ *
+ * The set is resolved again on a background thread, every refresh interval, so invocations only ever read the
+ * current load balancer. A new set is swapped in at once, keeping the endpoints, and their outstanding invocations,
+ * of the URIs it shares with the previous one: only the targets of new URIs are created. A failed or empty resolution
+ * keeps the current set.
+ *
+ * The refresh stops once closed, or once the client holding it is garbage collected.
+ */
+public class DiscoveredEndpoints implements Supplier<LoadBalancer>, Closeable {
+
+    public static final long DEFAULT_REFRESH_INTERVAL = 30000;
+
+    private static final Logger LOGGER = Logger.getLogger(DiscoveredEndpoints.class);
+
+    private final ServiceDiscovery discovery;
+
+    private final String service;
+
+    private final Config config;
+
+    private final String strategy;
+
+    private final Function<URI, Object> targets;
+
+    private volatile LoadBalancer loadBalancer;
+
+    private volatile ScheduledFuture<?> refresh;
+
+    /**
+     * @param discovery the discovery
+     * @param service name of the service
+     * @param config the configuration of the client
+     * @param strategy load balancing strategy, see {@link LoadBalancer#create(String, List)}
+     * @param targets creates the target of an endpoint from its URI
+     * @param uris the endpoints resolved initially, see {@link #resolve(ServiceDiscovery, String, Config)}
+     */
+    public DiscoveredEndpoints(ServiceDiscovery discovery, String service, Config config, String strategy,
+                               Function<URI, Object> targets, List<URI> uris) {
+        this.discovery = discovery;
+        this.service = service;
+        this.config = config;
+        this.strategy = strategy;
+        this.targets = targets;
+        this.loadBalancer = LoadBalancer.create(strategy, endpoints(uris, new HashMap<>()));
+    }
+
+    /**
+     * Resolves the endpoints a client starts with.
+     *
+     * @param discovery the discovery
+     * @param service name of the service
+     * @param config the configuration of the client
+     * @return the distinct URIs of the instances of the service
+     * @throws IllegalStateException if the service can't be resolved, or has no instances
+     */
+    public static List<URI> resolve(ServiceDiscovery discovery, String service, Config config) {
+        List<URI> uris;
+        try {
+            uris = distinct(discovery.resolve(service, config));
+        } catch (Exception e) {
+            throw new IllegalStateException("The " + discovery.getName() + " service discovery failed to resolve "
+                    + service, e);
+        }
+        if (uris.isEmpty()) {
+            throw new IllegalStateException("The " + discovery.getName() + " service discovery found no instances of "
+                    + service);
+        }
+        return uris;
+    }
+
+    /**
+     * Starts refreshing the endpoints in the background.
+     *
+     * @param interval time between the end of a resolution and the next one, in milliseconds
+     * @return this
+     */
+    public DiscoveredEndpoints refreshEvery(long interval) {
+        // the task only holds on to this weakly, so that a client that's never closed can still be collected
+        WeakReference<DiscoveredEndpoints> reference = new WeakReference<>(this);
+        refresh = Scheduler.INSTANCE.scheduleWithFixedDelay(() -> {
+            DiscoveredEndpoints endpoints = reference.get();
+            if (endpoints == null) {
+                // failing the task ends its schedule
+                throw new IllegalStateException("The client of the endpoints was garbage collected");
+            }
+            try {
+                endpoints.refresh();
+            } catch (RuntimeException e) {
+                LOGGER.warnf(e, "Failed to refresh the endpoints of %s", endpoints.service);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    @Override
+    public LoadBalancer get() {
+        return loadBalancer;
+    }
+
+    /**
+     * Resolves the endpoints, and switches to them if they changed.
+     */
+    public void refresh() {
+        List<URI> uris;
+        try {
+            uris = distinct(discovery.resolve(service, config));
+        } catch (Exception e) {
+            LOGGER.warnf(e, "The %s service discovery failed to resolve %s, keeping its current endpoints",
+                    discovery.getName(), service);
+            return;
+        }
+        if (uris.isEmpty()) {
+            LOGGER.warnf("The %s service discovery found no instances of %s, keeping its current endpoints",
+                    discovery.getName(), service);
+            return;
+        }
+        LoadBalancer current = loadBalancer;
+        Map<URI, Endpoint> known = new HashMap<>();
+        for (Endpoint endpoint : current.getEndpoints()) {
+            known.put(endpoint.getUri(), endpoint);
+        }
+        if (known.keySet().equals(new LinkedHashSet<>(uris))) {
+            return;
+        }
+        LOGGER.debugf("Endpoints of %s changed to %s", service, uris);
+        loadBalancer = LoadBalancer.create(strategy, endpoints(uris, known));
+    }
+
+    @Override
+    public void close() {
+        ScheduledFuture<?> refresh = this.refresh;
+        if (refresh != null) {
+            refresh.cancel(false);
+        }
+    }
+
+    private List<Endpoint> endpoints(List<URI> uris, Map<URI, Endpoint> known) {
+        List<Endpoint> endpoints = new ArrayList<>(uris.size());
+        for (URI uri : uris) {
+            Endpoint endpoint = known.get(uri);
+            endpoints.add(endpoint != null ? endpoint : new Endpoint(uri, targets.apply(uri)));
+        }
+        return endpoints;
+    }
+
+    private static List<URI> distinct(List<URI> uris) {
+        return uris == null ? new ArrayList<>() : new ArrayList<>(new LinkedHashSet<>(uris));
+    }
+
+    private static class Scheduler {
+
+        static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "smallrye-rest-client-discovery");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.discovery;
+
+import org.eclipse.microprofile.config.Config;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads the instances of a service from the file named by the {@code <service>/mp-rest/endpointsFile} config
+ * property, one URI per line, with {@code #} comments. The file is read again on every refresh, so editing it changes
+ * the endpoints of running clients.
+ */
+class FileDiscovery implements ServiceDiscovery {
+
+    static final String NAME = "file";
+
+    private static final String KEY_FORMAT = "%s/mp-rest/endpointsFile";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<URI> resolve(String service, Config config) throws IOException {
+        Optional<String> file = config.getOptionalValue(String.format(KEY_FORMAT, service), String.class);
+        if (!file.isPresent()) {
+            return Collections.emptyList();
+        }
+        List<String> lines = Files.readAllLines(Paths.get(file.get()), StandardCharsets.UTF_8);
+        return ConfigDiscovery.parse(lines.toArray(new String[0]));
+    }
+}
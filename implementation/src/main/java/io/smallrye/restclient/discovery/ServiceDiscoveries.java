@@ -0,0 +1,61 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.discovery;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
+
+/**
+ * The {@link ServiceDiscovery} implementations, the built-in ones and the ones registered via Service Loader
+ * mechanism, by name. A registered discovery replaces a built-in one of the same name.
+ */
+public final class ServiceDiscoveries {
+
+    private static final Map<String, ServiceDiscovery> discoveries;
+
+    static {
+        discoveries = loadDiscoveries();
+    }
+
+    private static Map<String, ServiceDiscovery> loadDiscoveries() {
+        Map<String, ServiceDiscovery> discoveries = new TreeMap<>();
+        discoveries.put(ConfigDiscovery.NAME, new ConfigDiscovery());
+        discoveries.put(FileDiscovery.NAME, new FileDiscovery());
+        for (ServiceDiscovery discovery : ServiceLoader.load(ServiceDiscovery.class)) {
+            discoveries.put(discovery.getName(), discovery);
+        }
+        return Collections.unmodifiableMap(discoveries);
+    }
+
+    /**
+     * @param name name of a discovery
+     * @return the discovery
+     * @throws IllegalStateException if there's no discovery of the name
+     */
+    public static ServiceDiscovery get(String name) {
+        ServiceDiscovery discovery = discoveries.get(name.trim());
+        if (discovery == null) {
+            throw new IllegalStateException("No service discovery named " + name + ", the known ones are "
+                    + discoveries.keySet());
+        }
+        return discovery;
+    }
+
+    private ServiceDiscoveries() {
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.discovery;
+
+import org.eclipse.microprofile.config.Config;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Resolves the base URIs of the instances of a service, for clients whose endpoints come from a discovery source
+ * rather than from a fixed base URI.
+ *
+ * Implementations are registered via Service Loader mechanism, and selected by name with the {@code discovery}
+ * option of a client. The built-in {@code config} and {@code file} discoveries read the endpoints from MicroProfile
+ * Config or from a file, e.g. as a local stand-in for a discovery server.
+ *
+ * A discovery is only called in the background, never while an invocation is sent, see {@link DiscoveredEndpoints},
+ * so it may block.
+ */
+public interface ServiceDiscovery {
+
+    /**
+     * @return the name of the discovery, the value of the {@code discovery} option selecting it
+     */
+    String getName();
+
+    /**
+     * @param service name of the service, the {@code discoveryService} option of the client or the name of its
+     * interface
+     * @param config the configuration of the client
+     * @return the base URIs of the instances of the service
+     * @throws Exception if the instances can't be resolved, the client then keeps the ones it has
+     */
+    List<URI> resolve(String service, Config config) throws Exception;
+}
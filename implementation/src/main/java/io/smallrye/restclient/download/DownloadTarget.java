@@ -0,0 +1,113 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.download;
+
+import org.eclipse.microprofile.rest.client.ext.AsyncInvocationInterceptor;
+
+import javax.ws.rs.core.Context;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+
+/**
+ * The file a response body is downloaded to, given as a {@link Path} parameter annotated with {@link Context} of the
+ * client method. RESTEasy leaves such parameters out of the request.
+ *
+ * The target is bound to the thread that reads the response, either directly (synchronous methods) or through an
+ * {@link AsyncInvocationInterceptor} applied on the executor thread (asynchronous methods).
+ */
+public class DownloadTarget {
+
+    private static final ThreadLocal<Path> target = new ThreadLocal<>();
+
+    /**
+     * @param method the invoked client method
+     * @param args the arguments of the invocation
+     * @return the download target among the arguments, or null if there's none
+     */
+    public static Path find(Method method, Object[] args) {
+        if (args == null) {
+            return null;
+        }
+        int index = index(method);
+        return index >= 0 ? (Path) args[index] : null;
+    }
+
+    /**
+     * @param method a client method
+     * @return whether the method has a download target parameter
+     */
+    public static boolean hasTarget(Method method) {
+        return index(method) >= 0;
+    }
+
+    public static void bind(Path path) {
+        target.set(path);
+    }
+
+    public static void unbind() {
+        target.remove();
+    }
+
+    /**
+     * @param path the download target
+     * @return an interceptor binding the target to the thread that executes an asynchronous invocation
+     */
+    public static AsyncInvocationInterceptor binder(Path path) {
+        return new AsyncInvocationInterceptor() {
+            @Override
+            public void prepareContext() {
+            }
+
+            @Override
+            public void applyContext() {
+                bind(path);
+            }
+
+            @Override
+            public void removeContext() {
+                unbind();
+            }
+        };
+    }
+
+    static Path current() {
+        return target.get();
+    }
+
+    private static int index(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        Annotation[][] annotations = method.getParameterAnnotations();
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == Path.class && isContext(annotations[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isContext(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation.annotationType() == Context.class) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private DownloadTarget() {
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.download;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Downloads a response body to a file, for client methods returning a {@link Path} or a {@link FileChannel}.
+ *
+ * The body is moved to the file with {@link FileChannel#transferFrom}, through a small reused buffer, it's never
+ * held on the heap as a whole. The file is the {@link DownloadTarget} of the invocation if there's one, or a new
+ * temporary file otherwise. A returned {@link FileChannel} is positioned at the start of the file, a temporary file
+ * is deleted when the channel is closed.
+ */
+public class FileDownloadReader implements MessageBodyReader<Object> {
+
+    private static final String TEMP_FILE_PREFIX = "smallrye-rest-client-";
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == Path.class || type == FileChannel.class;
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                           MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        Path target = DownloadTarget.current();
+        boolean temporary = target == null;
+        if (temporary) {
+            target = Files.createTempFile(TEMP_FILE_PREFIX, ".download");
+        }
+
+        Set<StandardOpenOption> options = EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        boolean returnChannel = FileChannel.class.equals(type);
+        if (returnChannel) {
+            options.add(StandardOpenOption.READ);
+            if (temporary) {
+                options.add(StandardOpenOption.DELETE_ON_CLOSE);
+            }
+        }
+
+        FileChannel file = FileChannel.open(target, options);
+        try {
+            transfer(entityStream, file);
+            if (returnChannel) {
+                return file.position(0);
+            }
+            file.close();
+            return target;
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            if (temporary) {
+                Files.deleteIfExists(target);
+            }
+            throw e;
+        }
+    }
+
+    static void transfer(InputStream body, FileChannel file) throws IOException {
+        ReadableByteChannel source = Channels.newChannel(body);
+        long position = 0;
+        long transferred;
+        // transferFrom stops at the end of the body or once count bytes are transferred
+        while ((transferred = file.transferFrom(source, position, Long.MAX_VALUE - position)) > 0) {
+            position += transferred;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The connection of a response, or a response entity stream, that can be cut off without reading the rest of the body.
+ *
+ * RESTEasy wraps response entity streams in a stream of its own, so the connection is reached through the
+ * {@link #PROPERTY} request property rather than the stream. {@link AbortableEntityInterceptor} makes the entity
+ * streams message body readers get {@code Abortable}. Streams wrapping one should implement it too, by aborting the
+ * wrapped stream.
+ */
+public interface Abortable {
+
+    /**
+     * Request property holding the {@code Abortable} connection of the response
+     */
+    String PROPERTY = Abortable.class.getName();
+
+    /**
+     * Closes the connection the stream reads from. A read blocked on another thread fails.
+     *
+     * @throws IOException if closing the connection fails
+     */
+    void abort() throws IOException;
+
+    /**
+     * Aborts the given stream if it's {@link Abortable}, closes it otherwise.
+     *
+     * @param stream a response entity stream
+     * @throws IOException if closing the stream fails
+     */
+    static void abort(InputStream stream) throws IOException {
+        if (stream instanceof Abortable) {
+            ((Abortable) stream).abort();
+        } else {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.engine;
+
+import javax.annotation.Priority;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Hands message body readers an {@link Abortable} entity stream, when the connection of the response can be aborted.
+ *
+ * It runs before all the other reader interceptors, so that the streams they wrap around it can abort it too.
+ */
+@Priority(Integer.MIN_VALUE)
+public class AbortableEntityInterceptor implements ReaderInterceptor {
+
+    @Override
+    public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException {
+        Object connection = context.getProperty(Abortable.PROPERTY);
+        if (connection instanceof Abortable && !(context.getInputStream() instanceof Abortable)) {
+            context.setInputStream(new AbortableInputStream(context.getInputStream(), (Abortable) connection));
+        }
+        return context.proceed();
+    }
+
+    private static class AbortableInputStream extends FilterInputStream implements Abortable {
+
+        private final Abortable connection;
+
+        AbortableInputStream(InputStream in, Abortable connection) {
+            super(in);
+            this.connection = connection;
+        }
+
+        @Override
+        public void abort() throws IOException {
+            connection.abort();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.engine;
+
+import java.io.IOException;
+
+/**
+ * Lets an invocation running a blocking exchange be cancelled from another thread.
+ *
+ * The engine attaches the connection of the exchange once the request is prepared. Cancelling aborts the attached
+ * connection, or the one attached later, so that the thread running the exchange fails fast and the connection is
+ * discarded instead of being held until the response arrives or the read timeout fires.
+ *
+ * The cancellation of an invocation is either a request property, or bound to the thread that sends a synchronous
+ * invocation with {@link #bind(Cancellation)}.
+ */
+public class Cancellation {
+
+    /**
+     * Name of the request property holding the cancellation of an invocation
+     */
+    static final String PROPERTY = Cancellation.class.getName();
+
+    private static final ThreadLocal<Cancellation> threadBound = new ThreadLocal<>();
+
+    private Abortable connection;
+
+    private boolean cancelled;
+
+    /**
+     * Binds a cancellation to the invocations sent by the current thread, until {@link #unbind()}
+     *
+     * @param cancellation the cancellation
+     */
+    public static void bind(Cancellation cancellation) {
+        threadBound.set(cancellation);
+    }
+
+    public static void unbind() {
+        threadBound.remove();
+    }
+
+    /**
+     * @return the cancellation bound to the current thread, if any
+     */
+    static Cancellation current() {
+        return threadBound.get();
+    }
+
+    /**
+     * Aborts the exchange of the invocation, or makes it fail before it's sent
+     */
+    public void cancel() {
+        Abortable toAbort;
+        synchronized (this) {
+            cancelled = true;
+            toAbort = connection;
+        }
+        abort(toAbort);
+    }
+
+    void attach(Abortable connection) {
+        boolean abort;
+        synchronized (this) {
+            this.connection = connection;
+            abort = cancelled;
+        }
+        if (abort) {
+            abort(connection);
+        }
+    }
+
+    private static void abort(Abortable connection) {
+        if (connection != null) {
+            try {
+                connection.abort();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
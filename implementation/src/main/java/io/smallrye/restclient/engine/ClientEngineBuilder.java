@@ -0,0 +1,207 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.engine;
+
+import io.smallrye.restclient.ProviderSelectionCache;
+import io.smallrye.restclient.upload.FileUploadWriter;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.Configurable;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.jboss.resteasy.client.jaxrs.ClientHttpEngine;
+import org.jboss.resteasy.client.jaxrs.ClientHttpEngineBuilder43;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient43Engine;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.ext.WriterInterceptor;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.Executor;
+
+/**
+ * Builds the default Apache HttpClient engine, with a few additions.
+ *
+ * {@link FileUploadWriter} entities are streamed: the stock engine writes every request body to a buffer, spilling to
+ * a temporary file past 1MB, only to learn its length before sending it. The length of a file upload is known from
+ * the start, so its body is written straight to the connection with a {@code Content-Length} header instead. That's
+ * only done when no {@link javax.ws.rs.ext.WriterInterceptor} is in play, as an interceptor may change the body and
+ * its headers.
+ *
+ * The connection of a response can be aborted, through the {@link Abortable} request property: closing a response
+ * entity stream reads the rest of the body so that the connection can be reused, which never ends for an endless body
+ * such as an event stream. Aborting closes the connection instead.
+ *
+ * Optionally, asynchronous invocations go through a {@link NonBlockingEngine}, with the same timeouts, proxy and SSL
+ * setup.
+ */
+public class ClientEngineBuilder extends ClientHttpEngineBuilder43 {
+
+    private Executor nonBlockingExecutor;
+
+    private int nonBlockingMaxConnections;
+
+    /**
+     * Sends asynchronous invocations through a {@link NonBlockingEngine}.
+     *
+     * @param maxConnections maximum number of open connections of asynchronous invocations
+     * @param executor executor the responses of asynchronous invocations are processed on
+     * @return this builder
+     */
+    public ClientEngineBuilder nonBlocking(int maxConnections, Executor executor) {
+        this.nonBlockingMaxConnections = maxConnections;
+        this.nonBlockingExecutor = executor;
+        return this;
+    }
+
+    @Override
+    protected ClientHttpEngine createEngine(HttpClientConnectionManager cm, RequestConfig.Builder rcBuilder,
+                                            HttpHost defaultProxy, int responseBufferSize, HostnameVerifier verifier,
+                                            SSLContext theContext) {
+        HttpClient httpClient = HttpClientBuilder.create()
+                .setConnectionManager(cm)
+                .setDefaultRequestConfig(rcBuilder.build())
+                .setProxy(defaultProxy)
+                .disableContentCompression()
+                .build();
+        ApacheHttpClient43Engine engine = new ClientEngine(httpClient);
+        engine.setResponseBufferSize(responseBufferSize);
+        engine.setHostnameVerifier(verifier);
+        engine.setSslContext(theContext);
+        if (nonBlockingExecutor == null) {
+            return engine;
+        }
+        return NonBlockingEngine.create(engine, rcBuilder.build(), defaultProxy, verifier, theContext,
+                nonBlockingMaxConnections, nonBlockingExecutor);
+    }
+
+    private static class ClientEngine extends ApacheHttpClient43Engine {
+
+        ClientEngine(HttpClient httpClient) {
+            super(httpClient, true);
+        }
+
+        @Override
+        protected HttpEntity buildEntity(ClientInvocation request) throws IOException {
+            Object entity = request.getEntity();
+            if (!isUpload(request)) {
+                return super.buildEntity(request);
+            }
+            UploadEntity upload = new UploadEntity(request, FileUploadWriter.size(entity));
+            if (request.getHeaders().getMediaType() != null) {
+                upload.setContentType(request.getHeaders().getMediaType().toString());
+            }
+            upload.setChunked(request.isChunked());
+            return upload;
+        }
+
+        @Override
+        protected void loadHttpMethod(ClientInvocation request, HttpRequestBase httpMethod) throws Exception {
+            super.loadHttpMethod(request, httpMethod);
+            request.getMutableProperties().put(Abortable.PROPERTY, (Abortable) httpMethod::abort);
+            Cancellation cancellation = (Cancellation) request.getMutableProperties().get(Cancellation.PROPERTY);
+            if (cancellation == null) {
+                cancellation = Cancellation.current();
+            }
+            if (cancellation != null) {
+                // a cancelled request is aborted before it's sent, HttpClient then fails it right away
+                cancellation.attach(httpMethod::abort);
+            }
+        }
+
+        @Override
+        protected void setRedirectRequired(ClientInvocation request, HttpRequestBase httpMethod) {
+            setRedirectsEnabled(httpMethod, true);
+        }
+
+        @Override
+        protected void setRedirectNotRequired(ClientInvocation request, HttpRequestBase httpMethod) {
+            setRedirectsEnabled(httpMethod, false);
+        }
+
+        // the engine of the client may be a NonBlockingEngine wrapping this one, so the configuration is taken from
+        // this engine's client rather than from the client's engine
+        private void setRedirectsEnabled(HttpRequestBase httpMethod, boolean enabled) {
+            RequestConfig config = httpMethod.getConfig() != null
+                    ? httpMethod.getConfig()
+                    : ((Configurable) httpClient).getConfig();
+            httpMethod.setConfig(RequestConfig.copy(config).setRedirectsEnabled(enabled).build());
+        }
+    }
+
+    /**
+     * @return whether the body of the request is a {@link FileUploadWriter} entity no writer interceptor changes
+     */
+    static boolean isUpload(ClientInvocation request) {
+        if (!FileUploadWriter.isUploadable(request.getEntity().getClass())) {
+            return false;
+        }
+        for (WriterInterceptor interceptor : request.getWriterInterceptors()) {
+            // the cache only selects the writer, it leaves the body alone
+            if (!(interceptor instanceof ProviderSelectionCache)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the request body through the usual RESTEasy writer lookup, only when HttpClient sends it.
+     */
+    private static class UploadEntity extends AbstractHttpEntity {
+
+        private final ClientInvocation request;
+        private final long length;
+
+        UploadEntity(ClientInvocation request, long length) {
+            this.request = request;
+            this.length = length;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            // FileUploadWriter leaves channel and buffer positions untouched
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return length;
+        }
+
+        @Override
+        public InputStream getContent() {
+            throw new UnsupportedOperationException("File uploads can only be written");
+        }
+
+        @Override
+        public void writeTo(OutputStream outstream) throws IOException {
+            request.writeRequestBody(outstream);
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.engine;
+
+import io.smallrye.restclient.async.AsyncContext;
+import io.smallrye.restclient.priority.PriorityExecutorService;
+import io.smallrye.restclient.timeout.HashedWheelTimer;
+import io.smallrye.restclient.timeout.RequestTimeoutException;
+import io.smallrye.restclient.timeout.RequestTimeouts;
+import org.eclipse.microprofile.rest.client.ext.AsyncInvocationInterceptor;
+import org.jboss.resteasy.client.jaxrs.AsyncClientHttpEngine;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocationBuilder;
+import org.jboss.resteasy.client.jaxrs.internal.CompletionStageRxInvokerImpl;
+import org.jboss.resteasy.client.jaxrs.internal.proxy.ClientInvoker;
+
+import javax.ws.rs.client.CompletionStageRxInvoker;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.RxInvokerProvider;
+import javax.ws.rs.client.SyncInvoker;
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides the invokers of client methods returning a {@link CompletionStage}.
+ *
+ * Cancelling a stage returned by the invokers cuts off its HTTP exchange: the connection is closed and discarded, a
+ * blocked thread fails right away, and an invocation that hasn't started yet isn't sent at all.
+ *
+ * With the {@link NonBlockingEngine}, the invokers submit the invocation to the engine and return the stage it
+ * completes, instead of blocking a thread of the executor on a synchronous invocation.
+ *
+ * The {@link AsyncContext} of the invocation, with the context of its {@link AsyncInvocationInterceptor}s, is claimed
+ * from the calling thread and applied to the task submitted to the executor, or handed over to the engine, which
+ * applies it where the response is processed.
+ *
+ * On a {@link PriorityExecutorService}, the task of a blocking invocation waits for the executor with the priority of
+ * its method.
+ */
+public class CompletionStageInvokerProvider implements RxInvokerProvider<CompletionStageRxInvoker> {
+
+    private static final GenericType<Response> RESPONSE = new GenericType<>(Response.class);
+
+    @Override
+    public boolean isProviderFor(Class<?> clazz) {
+        return CompletionStageRxInvoker.class.equals(clazz);
+    }
+
+    @Override
+    public CompletionStageRxInvoker getRxInvoker(SyncInvoker syncInvoker, ExecutorService executorService) {
+        return new Invoker((ClientInvocationBuilder) syncInvoker, executorService);
+    }
+
+    private static class Invoker extends CompletionStageRxInvokerImpl {
+
+        private final ClientInvocationBuilder builder;
+
+        Invoker(ClientInvocationBuilder builder, ExecutorService executor) {
+            super(builder, executor);
+            this.builder = builder;
+        }
+
+        @Override
+        public CompletionStage<Response> method(String name) {
+            return method(name, null, RESPONSE);
+        }
+
+        @Override
+        public <T> CompletionStage<T> method(String name, Class<T> responseType) {
+            return method(name, null, new GenericType<>(responseType));
+        }
+
+        @Override
+        public <T> CompletionStage<T> method(String name, GenericType<T> responseType) {
+            return method(name, null, responseType);
+        }
+
+        @Override
+        public CompletionStage<Response> method(String name, Entity<?> entity) {
+            return method(name, entity, RESPONSE);
+        }
+
+        @Override
+        public <T> CompletionStage<T> method(String name, Entity<?> entity, Class<T> responseType) {
+            return method(name, entity, new GenericType<>(responseType));
+        }
+
+        @Override
+        public <T> CompletionStage<T> method(String name, Entity<?> entity, GenericType<T> responseType) {
+            ClientInvocation invocation = (ClientInvocation) builder.build(name, entity);
+            AsyncContext context = AsyncContext.claim();
+            long timeout = requestTimeout(invocation);
+            if (invocation.getClient().httpEngine() instanceof AsyncClientHttpEngine) {
+                CompletionStage<T> result = submit(invocation, responseType, context);
+                // the engine cuts off the exchange of an invocation completed by the timeout
+                return timeout < 0 ? result : withTimeout(result.toCompletableFuture(), timeout, null, executor());
+            }
+            Cancellation cancellation = new Cancellation();
+            invocation.property(Cancellation.PROPERTY, cancellation);
+            CompletableFuture<T> result = new CompletableFuture<>();
+            // the context covers the completion of the stage as well, and the dependent stages run along with it
+            Runnable task = context.wrap(() -> {
+                if (result.isDone()) {
+                    // cancelled or timed out while waiting for the executor
+                    return;
+                }
+                try {
+                    result.complete(invocation.invoke(responseType));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+            Executor executor = executor();
+            try {
+                if (executor instanceof PriorityExecutorService) {
+                    PriorityExecutorService priorityExecutor = (PriorityExecutorService) executor;
+                    ClientInvoker invoker = invocation.getClientInvoker();
+                    priorityExecutor.execute(task, priorityExecutor.priorityOf(invoker != null ? invoker.getMethod() : null),
+                            result::completeExceptionally);
+                } else {
+                    executor.execute(task);
+                }
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(e);
+            }
+            result.whenComplete((value, failure) -> {
+                if (result.isCancelled()) {
+                    cancellation.cancel();
+                }
+            });
+            return timeout < 0 ? result : withTimeout(result, timeout, cancellation::cancel, executor);
+        }
+
+        private Executor executor() {
+            return getExecutor() != null ? getExecutor() : ForkJoinPool.commonPool();
+        }
+
+        private static long requestTimeout(ClientInvocation invocation) {
+            Object timeouts = invocation.getConfiguration().getProperty(RequestTimeouts.PROPERTY);
+            if (!(timeouts instanceof RequestTimeouts)) {
+                return RequestTimeouts.NONE;
+            }
+            ClientInvoker invoker = invocation.getClientInvoker();
+            return ((RequestTimeouts) timeouts).get(invoker != null ? invoker.getMethod() : null);
+        }
+
+        /**
+         * Fails the invocation with a {@link RequestTimeoutException} if it's still running after the timeout, then
+         * runs the abort of its exchange, if any. Both run on the executor, so that the stages depending on the
+         * invocation never run on the thread of the shared timer.
+         */
+        private static <T> CompletableFuture<T> withTimeout(CompletableFuture<T> result, long timeoutMillis,
+                                                            Runnable abort, Executor executor) {
+            Runnable expire = () -> {
+                if (result.completeExceptionally(new RequestTimeoutException(timeoutMillis)) && abort != null) {
+                    abort.run();
+                }
+            };
+            HashedWheelTimer.Timeout timeout = HashedWheelTimer.shared().schedule(() -> {
+                try {
+                    executor.execute(expire);
+                } catch (RejectedExecutionException e) {
+                    // the invocation times out all the same
+                    expire.run();
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+            result.whenComplete((value, failure) -> timeout.cancel());
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> CompletionStage<T> submit(ClientInvocation invocation, GenericType<T> responseType,
+                                              AsyncContext context) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            try {
+                invocation.property(AsyncContext.PROPERTY, context);
+                invocation.property(DeferredResponse.PROPERTY, new DeferredResponse());
+                Future<T> future = invocation.submit(responseType);
+                if (future instanceof CompletionStage) {
+                    return (CompletionStage<T>) future;
+                }
+                // an invocation aborted or failed by a request filter is done already
+                result.complete(future.get());
+            } catch (ExecutionException e) {
+                result.completeExceptionally(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(e);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.engine;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Lets a request filter hand an asynchronous invocation a response that comes from elsewhere, such as the identical
+ * request of another invocation, without blocking the thread running the filters until it's there.
+ *
+ * The invokers of {@link CompletionStageInvokerProvider} set it on the invocations they submit to the
+ * {@link NonBlockingEngine}. Once a filter defers the response, the engine waits for it instead of sending the request,
+ * and the response goes through the response filters and readers as usual. A deferred response completed with null
+ * sends the request after all.
+ */
+public class DeferredResponse {
+
+    /**
+     * Name of the request property holding the deferred response of an invocation
+     */
+    static final String PROPERTY = DeferredResponse.class.getName();
+
+    private volatile CompletionStage<Response> response;
+
+    /**
+     * @param requestContext the request
+     * @return the deferred response of the request, or null if the invocation waits for its response on the thread
+     * running the filters
+     */
+    public static DeferredResponse of(ClientRequestContext requestContext) {
+        Object property = requestContext.getProperty(PROPERTY);
+        return property instanceof DeferredResponse ? (DeferredResponse) property : null;
+    }
+
+    /**
+     * @param response the response of the invocation, or null to send the request once completed
+     */
+    public void defer(CompletionStage<Response> response) {
+        this.response = response;
+    }
+
+    CompletionStage<Response> get() {
+        return response;
+    }
+}
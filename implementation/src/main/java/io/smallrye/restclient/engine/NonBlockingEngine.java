@@ -0,0 +1,360 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.engine;
+
+import io.smallrye.restclient.async.AsyncContext;
+import io.smallrye.restclient.upload.FileUploadWriter;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.eclipse.microprofile.rest.client.ext.AsyncInvocationInterceptor;
+import org.jboss.resteasy.client.jaxrs.AsyncClientHttpEngine;
+import org.jboss.resteasy.client.jaxrs.ClientHttpEngine;
+import org.jboss.resteasy.client.jaxrs.internal.AbortedResponse;
+import org.jboss.resteasy.client.jaxrs.internal.ClientInvocation;
+import org.jboss.resteasy.client.jaxrs.internal.ClientResponse;
+import org.jboss.resteasy.util.CaseInsensitiveMap;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Sends asynchronous invocations through a non-blocking HttpClient, so that no thread waits for their responses.
+ * Synchronous invocations keep going through the blocking engine.
+ *
+ * The request filters run on the thread that submits an invocation. {@link FileUploadWriter} entities are streamed to
+ * the connection as it takes them, other request bodies are written to memory first, as the blocking engine does.
+ * Once the headers of the response have arrived, the response filters, the entity reading and the completion run on
+ * the executor of the client, with the context of the {@link AsyncInvocationInterceptor}s of the invocation applied.
+ * The body streams in through a bounded buffer while it's read, see {@link PipedResponseConsumer}, so a maximum
+ * response size aborts the exchange as soon as it's exceeded. Failing the future of an invocation before its
+ * exchange is over, e.g. cancelling it, closes the connection of the exchange. When the executor rejects the
+ * processing of a response, the invocation fails on the I/O thread.
+ *
+ * A request filter may defer the response of an invocation to another one, see {@link DeferredResponse}. The engine
+ * then waits for that response, without sending the request.
+ */
+public class NonBlockingEngine implements AsyncClientHttpEngine, Closeable {
+
+    public static final int DEFAULT_MAX_CONNECTIONS = 100;
+
+    private final ClientHttpEngine blockingEngine;
+
+    private final CloseableHttpAsyncClient httpClient;
+
+    private final Executor executor;
+
+    private NonBlockingEngine(ClientHttpEngine blockingEngine, CloseableHttpAsyncClient httpClient, Executor executor) {
+        this.blockingEngine = blockingEngine;
+        this.httpClient = httpClient;
+        this.executor = executor;
+        httpClient.start();
+    }
+
+    /**
+     * @param blockingEngine engine of synchronous invocations
+     * @param requestConfig timeouts of the requests
+     * @param proxy proxy to send requests through, may be null
+     * @param verifier verifier of host names
+     * @param sslContext SSL context, null for the default one
+     * @param maxConnections maximum number of open connections
+     * @param executor executor responses are processed on
+     * @return an engine sending asynchronous invocations through a non-blocking client
+     */
+    static ClientHttpEngine create(ClientHttpEngine blockingEngine, RequestConfig requestConfig, HttpHost proxy,
+                                   HostnameVerifier verifier, SSLContext sslContext, int maxConnections,
+                                   Executor executor) {
+        CloseableHttpAsyncClient httpClient = HttpAsyncClients.custom()
+                .setDefaultRequestConfig(requestConfig)
+                .setProxy(proxy)
+                .setSSLHostnameVerifier(verifier)
+                .setSSLContext(sslContext)
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .build();
+        return new NonBlockingEngine(blockingEngine, httpClient, executor);
+    }
+
+    /**
+     * @return whether the non-blocking HttpClient is available
+     */
+    public static boolean isAvailable() {
+        try {
+            Class.forName("org.apache.http.impl.nio.client.HttpAsyncClients", false,
+                    NonBlockingEngine.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    @Override
+    public ClientResponse invoke(ClientInvocation request) {
+        return blockingEngine.invoke(request);
+    }
+
+    @Override
+    public <T> Future<T> submit(ClientInvocation request, boolean buffered, InvocationCallback<T> callback,
+                                ResultExtractor<T> extractor) {
+        AsyncContext context = (AsyncContext) request.getMutableProperties().get(AsyncContext.PROPERTY);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        DeferredResponse deferred = (DeferredResponse) request.getMutableProperties().get(DeferredResponse.PROPERTY);
+        CompletionStage<Response> deferredResponse = deferred != null ? deferred.get() : null;
+        if (deferredResponse == null) {
+            send(request, callback, extractor, context, result);
+            return result;
+        }
+        deferredResponse.whenComplete((response, failure) -> {
+            if (result.isDone()) {
+                // cancelled or timed out
+                if (response != null) {
+                    response.close();
+                }
+            } else if (failure != null) {
+                fail(callback, result, failure);
+            } else if (response == null) {
+                send(request, callback, extractor, context, result);
+            } else {
+                process(new AbortedResponse(request.getClientConfiguration(), response), callback, extractor, context,
+                        result);
+            }
+        });
+        return result;
+    }
+
+    private <T> void send(ClientInvocation request, InvocationCallback<T> callback, ResultExtractor<T> extractor,
+                          AsyncContext context, CompletableFuture<T> result) {
+        HttpRequestBase httpRequest;
+        try {
+            httpRequest = createRequest(request);
+        } catch (RuntimeException e) {
+            fail(callback, result, e);
+            return;
+        }
+        PipedResponseConsumer consumer = new PipedResponseConsumer(response -> {
+            if (!result.isDone()) {
+                process(new StreamedResponse(request, response), callback, extractor, context, result);
+            }
+            // cancelled or timed out otherwise, the exchange is being cancelled
+        });
+        request.getMutableProperties().put(Abortable.PROPERTY, consumer);
+        Future<HttpResponse> exchange = httpClient.execute(HttpAsyncMethods.create(httpRequest), consumer, null,
+                new FutureCallback<HttpResponse>() {
+                    @Override
+                    public void completed(HttpResponse response) {
+                        // the response was handed over once its headers were in
+                    }
+
+                    @Override
+                    public void failed(Exception e) {
+                        // the failures of a response that was handed over go to the reader of its body
+                        if (!consumer.isDispatched()) {
+                            ProcessingException failure = new ProcessingException("Unable to invoke request", e);
+                            execute(() -> fail(callback, result, failure), rejected -> fail(callback, result, failure));
+                        }
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        if (!consumer.isDispatched()) {
+                            result.cancel(false);
+                        }
+                    }
+                });
+        consumer.setExchange(exchange);
+        // failing the invocation otherwise, e.g. cancelling it, closes the connection of the exchange
+        result.whenComplete((value, failure) -> {
+            if (failure != null && !exchange.isDone()) {
+                exchange.cancel(true);
+            }
+        });
+    }
+
+    private <T> void process(ClientResponse response, InvocationCallback<T> callback, ResultExtractor<T> extractor,
+                             AsyncContext context, CompletableFuture<T> result) {
+        Runnable process = () -> {
+            try {
+                T value = extractor.extractResult(response);
+                if (callback != null) {
+                    callback.completed(value);
+                }
+                result.complete(value);
+            } catch (Throwable e) {
+                fail(callback, result, e);
+            }
+        };
+        execute(context != null ? context.wrap(process) : process, rejected -> {
+            try {
+                response.close();
+            } catch (RuntimeException ignored) {
+            }
+            fail(callback, result, new ProcessingException("Unable to process the response", rejected));
+        });
+    }
+
+    private void execute(Runnable task, Consumer<RejectedExecutionException> rejected) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejected.accept(e);
+        }
+    }
+
+    private static <T> void fail(InvocationCallback<T> callback, CompletableFuture<T> result, Throwable e) {
+        if (callback != null) {
+            callback.failed(e);
+        }
+        result.completeExceptionally(e);
+    }
+
+    private static HttpRequestBase createRequest(ClientInvocation request) {
+        RequestBuilder builder = RequestBuilder.create(request.getMethod()).setUri(request.getUri());
+        if (request.getEntity() != null && ClientEngineBuilder.isUpload(request)) {
+            UploadContentProducer upload;
+            try {
+                upload = new UploadContentProducer(request.getEntity());
+            } catch (IOException e) {
+                throw new ProcessingException("Unable to read the size of the request body", e);
+            }
+            if (request.getHeaders().getMediaType() != null) {
+                upload.setContentType(request.getHeaders().getMediaType().toString());
+            }
+            upload.setChunked(request.isChunked());
+            builder.setEntity(upload);
+        } else if (request.getEntity() != null) {
+            // the writers may still change the headers, they're only copied after the body is written
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            request.getDelegatingOutputStream().setDelegate(body);
+            try {
+                request.writeRequestBody(request.getEntityStream());
+            } catch (IOException e) {
+                throw new ProcessingException("Unable to write the request body", e);
+            }
+            builder.setEntity(new ByteArrayEntity(body.toByteArray()));
+        }
+        for (Map.Entry<String, List<String>> header : request.getHeaders().asMap().entrySet()) {
+            // set from the entity by HttpClient
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(header.getKey())
+                    || HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(header.getKey())) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                builder.addHeader(header.getKey(), value);
+            }
+        }
+        return (HttpRequestBase) builder.build();
+    }
+
+    @Override
+    public SSLContext getSslContext() {
+        return blockingEngine.getSslContext();
+    }
+
+    @Override
+    public HostnameVerifier getHostnameVerifier() {
+        return blockingEngine.getHostnameVerifier();
+    }
+
+    @Override
+    public void close() {
+        try {
+            httpClient.close();
+        } catch (IOException ignored) {
+        }
+        blockingEngine.close();
+    }
+
+    /**
+     * A response whose body streams in from the non-blocking client.
+     */
+    private static class StreamedResponse extends ClientResponse {
+
+        private final HttpEntity entity;
+
+        private InputStream stream;
+
+        StreamedResponse(ClientInvocation request, HttpResponse response) {
+            super(request.getClientConfiguration());
+            setProperties(request.getMutableProperties());
+            setStatus(response.getStatusLine().getStatusCode());
+            CaseInsensitiveMap<String> headers = new CaseInsensitiveMap<>();
+            for (Header header : response.getAllHeaders()) {
+                headers.add(header.getName(), header.getValue());
+            }
+            setHeaders(headers);
+            this.entity = response.getEntity();
+        }
+
+        @Override
+        protected InputStream getInputStream() {
+            if (stream == null && entity != null) {
+                try {
+                    stream = entity.getContent();
+                } catch (IOException e) {
+                    throw new ProcessingException(e);
+                }
+            }
+            return stream;
+        }
+
+        @Override
+        protected void setInputStream(InputStream is) {
+            stream = is;
+            resetEntity();
+        }
+
+        @Override
+        public void releaseConnection() throws IOException {
+            releaseConnection(false);
+        }
+
+        @Override
+        public void releaseConnection(boolean consumeInputStream) throws IOException {
+            // the connection goes back to the pool once the body is read, closing the body before aborts the exchange
+            if (stream == null && entity != null) {
+                getInputStream().close();
+            } else if (stream != null) {
+                stream.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.engine;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.nio.util.SharedInputBuffer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Hands a response over as soon as its headers are in, its body then streams through a bounded buffer.
+ *
+ * The reader of the body waits for the rest of it to arrive, while the connection stops reading from the network as
+ * long as the buffer is full. A failure of the exchange fails the reads. Closing the body before its end
+ * {@link #abort() aborts} the exchange, as reading the rest of an endless body never ends.
+ */
+class PipedResponseConsumer extends AbstractAsyncResponseConsumer<HttpResponse> implements Abortable {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Consumer<HttpResponse> onResponse;
+
+    private final SharedInputBuffer buffer = new SharedInputBuffer(BUFFER_SIZE);
+
+    private volatile HttpResponse response;
+
+    private volatile boolean dispatched;
+
+    private volatile IOException failure;
+
+    private volatile Future<?> exchange;
+
+    /**
+     * @param onResponse called on the I/O thread with the response, once its headers are in
+     */
+    PipedResponseConsumer(Consumer<HttpResponse> onResponse) {
+        this.onResponse = onResponse;
+    }
+
+    /**
+     * @param exchange the exchange to cancel when the response is aborted
+     */
+    void setExchange(Future<?> exchange) {
+        this.exchange = exchange;
+        if (failure != null) {
+            exchange.cancel(true);
+        }
+    }
+
+    /**
+     * @return whether the response was handed over, its failures then go to the reader of its body
+     */
+    boolean isDispatched() {
+        return dispatched;
+    }
+
+    @Override
+    public void abort() {
+        fail(new IOException("The response was aborted"));
+        Future<?> exchange = this.exchange;
+        if (exchange != null) {
+            exchange.cancel(true);
+        }
+    }
+
+    @Override
+    protected void onResponseReceived(HttpResponse response) {
+        this.response = response;
+    }
+
+    @Override
+    protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) {
+        BasicHttpEntity body = new BasicHttpEntity();
+        body.setContent(new Body());
+        body.setContentLength(entity.getContentLength());
+        body.setContentType(entity.getContentType());
+        body.setContentEncoding(entity.getContentEncoding());
+        body.setChunked(entity.isChunked());
+        response.setEntity(body);
+        dispatch();
+    }
+
+    @Override
+    protected void onContentReceived(ContentDecoder decoder, IOControl ioctrl) throws IOException {
+        buffer.consumeContent(decoder, ioctrl);
+    }
+
+    @Override
+    protected HttpResponse buildResult(HttpContext context) {
+        // a response without a body
+        dispatch();
+        return response;
+    }
+
+    @Override
+    protected void releaseResources() {
+        if (getResult() == null) {
+            Exception e = getException();
+            fail(e != null ? e : new IOException("The exchange was cancelled"));
+        }
+    }
+
+    private void dispatch() {
+        if (!dispatched) {
+            dispatched = true;
+            onResponse.accept(response);
+        }
+    }
+
+    private void fail(Exception e) {
+        if (failure == null) {
+            failure = e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+        // wakes the reader up
+        buffer.shutdown();
+    }
+
+    private class Body extends InputStream implements Abortable {
+
+        private boolean endOfStream;
+
+        @Override
+        public int read() throws IOException {
+            checkFailure();
+            int b;
+            try {
+                b = buffer.read();
+            } catch (IOException e) {
+                checkFailure();
+                throw e;
+            }
+            return b != -1 ? b : endOfStream();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            checkFailure();
+            int read;
+            try {
+                read = buffer.read(b, off, len);
+            } catch (IOException e) {
+                checkFailure();
+                throw e;
+            }
+            return read != -1 ? read : endOfStream();
+        }
+
+        @Override
+        public int available() {
+            return buffer.available();
+        }
+
+        @Override
+        public void close() {
+            if (!endOfStream) {
+                abort();
+            }
+        }
+
+        @Override
+        public void abort() {
+            PipedResponseConsumer.this.abort();
+        }
+
+        private int endOfStream() throws IOException {
+            // a shut down buffer reads as ended
+            checkFailure();
+            endOfStream = true;
+            return -1;
+        }
+
+        private void checkFailure() throws IOException {
+            IOException e = failure;
+            if (e != null) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.engine;
+
+import io.smallrye.restclient.upload.FileUploadWriter;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.FileContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sends a {@link FileUploadWriter} entity through the non-blocking client, as fast as the connection takes it.
+ *
+ * Nothing is copied up front: a buffer is written as is, a file is moved with {@link FileContentEncoder#transfer}
+ * when the connection allows it, and read a chunk at a time otherwise. Like {@link FileUploadWriter}, channel and
+ * buffer positions are left untouched and the body can be sent again.
+ */
+class UploadContentProducer extends AbstractHttpEntity implements HttpAsyncContentProducer {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private final Object entity;
+
+    private final long length;
+
+    // the body being sent
+    private FileChannel file;
+    private boolean opened;
+    private long position;
+    private long end;
+    private ByteBuffer pending;
+
+    UploadContentProducer(Object entity) throws IOException {
+        this.entity = entity;
+        this.length = FileUploadWriter.size(entity);
+    }
+
+    @Override
+    public void produceContent(ContentEncoder encoder, IOControl ioctrl) throws IOException {
+        if (entity instanceof ByteBuffer) {
+            if (pending == null) {
+                pending = ((ByteBuffer) entity).duplicate();
+            }
+            encoder.write(pending);
+            if (!pending.hasRemaining()) {
+                encoder.complete();
+            }
+            return;
+        }
+        if (file == null) {
+            if (entity instanceof FileChannel) {
+                file = (FileChannel) entity;
+                position = file.position();
+            } else {
+                file = FileChannel.open((Path) entity, StandardOpenOption.READ);
+                opened = true;
+                position = 0;
+            }
+            end = position + length;
+        }
+        if (pending == null && encoder instanceof FileContentEncoder) {
+            if (position < end) {
+                long transferred = ((FileContentEncoder) encoder).transfer(file, position, end - position);
+                if (transferred == 0 && position >= file.size()) {
+                    throw new IOException("The file got shorter than its Content-Length");
+                }
+                position += transferred;
+            }
+        } else {
+            if (pending == null) {
+                pending = ByteBuffer.allocate(CHUNK_SIZE);
+                pending.flip();
+            }
+            if (!pending.hasRemaining() && position < end) {
+                pending.clear();
+                pending.limit((int) Math.min(pending.capacity(), end - position));
+                int read = file.read(pending, position);
+                if (read < 0) {
+                    throw new IOException("The file got shorter than its Content-Length");
+                }
+                position += read;
+                pending.flip();
+            }
+            encoder.write(pending);
+        }
+        if (position >= end && (pending == null || !pending.hasRemaining())) {
+            encoder.complete();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // the body is sent from the start again, e.g. after a redirect
+        pending = null;
+        FileChannel file = this.file;
+        this.file = null;
+        if (opened) {
+            opened = false;
+            file.close();
+        }
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length;
+    }
+
+    @Override
+    public InputStream getContent() {
+        throw new UnsupportedOperationException("File uploads can only be written");
+    }
+
+    @Override
+    public void writeTo(OutputStream outstream) throws IOException {
+        new FileUploadWriter().writeTo(entity, entity.getClass(), entity.getClass(), null, null, null, outstream);
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+}
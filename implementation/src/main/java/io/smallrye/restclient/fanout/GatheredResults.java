@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.fanout;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Outcome of a {@link ScatterGather} invocation, per endpoint. Every endpoint is in exactly one of the results, the
+ * failures and the timed out endpoints, in the order of the endpoints.
+ *
+ * @param <R> type of the result of the invoked method
+ */
+public class GatheredResults<R> {
+
+    private final Map<URI, R> results;
+
+    private final Map<URI, Throwable> failures;
+
+    private final Set<URI> timedOut;
+
+    GatheredResults(Map<URI, R> results, Map<URI, Throwable> failures, Set<URI> timedOut) {
+        this.results = results;
+        this.failures = failures;
+        this.timedOut = timedOut;
+    }
+
+    /**
+     * @return the results of the endpoints that completed the invocation in time, by base URI
+     */
+    public Map<URI, R> getResults() {
+        return results;
+    }
+
+    /**
+     * @return the failures of the endpoints that failed the invocation in time, by base URI
+     */
+    public Map<URI, Throwable> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return the base URIs of the endpoints that hadn't completed the invocation by the deadline
+     */
+    public Set<URI> getTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * @return whether every endpoint completed the invocation in time
+     */
+    public boolean isComplete() {
+        return failures.isEmpty() && timedOut.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "GatheredResults{results=" + results.keySet() + ", failures=" + failures.keySet()
+                + ", timedOut=" + timedOut + "}";
+    }
+}
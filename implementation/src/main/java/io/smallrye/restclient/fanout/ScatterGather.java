@@ -0,0 +1,289 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.fanout;
+
+import io.smallrye.restclient.RestClientProxy;
+import io.smallrye.restclient.async.Stages;
+import io.smallrye.restclient.timeout.HashedWheelTimer;
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+
+import java.io.Closeable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Invokes a method of a client interface on several endpoints at once, e.g. the regional deployments of a service,
+ * and gathers what they return by a shared deadline.
+ *
+ * A client is built per endpoint, once, so that each endpoint keeps a pool of connections of its own across
+ * invocations. The invoked method has to return a {@link CompletionStage}: the invocations of all endpoints are sent
+ * without waiting for each other, and those still running at the deadline are cancelled, which closes their
+ * connections. The deadline is handled on an executor, the stages depending on the gathered results never run on the
+ * thread of the shared timer.
+ *
+ * <pre>
+ * try (ScatterGather&lt;Inventory&gt; regions = ScatterGather.create(Inventory.class, uris,
+ *         builder -&gt; builder.connectTimeout(1, TimeUnit.SECONDS))) {
+ *     GatheredResults&lt;Stock&gt; stock = regions.invoke(inventory -&gt; inventory.stock(item), 500, TimeUnit.MILLISECONDS)
+ *             .toCompletableFuture().join();
+ * }
+ * </pre>
+ *
+ * @param <T> type of the client interface
+ */
+public class ScatterGather<T> implements Closeable {
+
+    private final Map<URI, T> clients;
+
+    private final Executor executor;
+
+    private ScatterGather(Map<URI, T> clients, Executor executor) {
+        this.clients = clients;
+        this.executor = executor;
+    }
+
+    /**
+     * @param clientInterface the client interface
+     * @param baseUris base URIs of the endpoints
+     * @return a scatter-gather over clients built with the default configuration
+     */
+    public static <T> ScatterGather<T> create(Class<T> clientInterface, Collection<URI> baseUris) {
+        return create(clientInterface, baseUris, builder -> {
+        });
+    }
+
+    /**
+     * @param clientInterface the client interface
+     * @param baseUris base URIs of the endpoints
+     * @param configuration configures the builder of the client of every endpoint, whose base URI is set already
+     * @return a scatter-gather over the clients built
+     */
+    public static <T> ScatterGather<T> create(Class<T> clientInterface, Collection<URI> baseUris,
+                                              Consumer<RestClientBuilder> configuration) {
+        return create(clientInterface, baseUris, configuration, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param clientInterface the client interface
+     * @param baseUris base URIs of the endpoints
+     * @param configuration configures the builder of the client of every endpoint, whose base URI is set already
+     * @param executor executor the gathered results are completed on at the deadline
+     * @return a scatter-gather over the clients built
+     */
+    public static <T> ScatterGather<T> create(Class<T> clientInterface, Collection<URI> baseUris,
+                                              Consumer<RestClientBuilder> configuration, Executor executor) {
+        if (baseUris.isEmpty()) {
+            throw new IllegalArgumentException("No endpoint to invoke " + clientInterface.getName() + " on");
+        }
+        Map<URI, T> clients = new LinkedHashMap<>();
+        try {
+            for (URI baseUri : baseUris) {
+                RestClientBuilder builder = RestClientBuilder.newBuilder().baseUri(baseUri);
+                configuration.accept(builder);
+                clients.put(baseUri, builder.build(clientInterface));
+            }
+        } catch (RuntimeException e) {
+            clients.values().forEach(ScatterGather::close);
+            throw e;
+        }
+        return new ScatterGather<>(Collections.unmodifiableMap(clients), executor);
+    }
+
+    /**
+     * @return the clients of the endpoints, by base URI
+     */
+    public Map<URI, T> getClients() {
+        return clients;
+    }
+
+    /**
+     * Invokes a method on every endpoint.
+     *
+     * @param invocation invokes a method returning a {@link CompletionStage} on the given client
+     * @param deadline time after which the invocations still running are cancelled
+     * @param unit unit of the deadline
+     * @param <R> type of the result of the method
+     * @return a stage completed with the outcome of every endpoint once they are all done, or at the deadline, which
+     * runs from this call. Cancelling it cancels the invocations still running
+     */
+    public <R> CompletionStage<GatheredResults<R>> invoke(Function<T, CompletionStage<R>> invocation, long deadline,
+                                                          TimeUnit unit) {
+        Gathering<R> gathering = new Gathering<>(clients.keySet());
+        HashedWheelTimer.Timeout timeout = HashedWheelTimer.shared().schedule(() -> {
+            try {
+                executor.execute(gathering::expire);
+            } catch (RejectedExecutionException e) {
+                // the invocations expire all the same
+                gathering.expire();
+            }
+        }, deadline, unit);
+        for (Map.Entry<URI, T> client : clients.entrySet()) {
+            if (gathering.result.isDone()) {
+                // the endpoints left are timed out already
+                break;
+            }
+            URI baseUri = client.getKey();
+            CompletionStage<R> stage;
+            try {
+                stage = Objects.requireNonNull(invocation.apply(client.getValue()), "The invocation returned null");
+            } catch (Throwable e) {
+                gathering.completed(baseUri, null, e);
+                continue;
+            }
+            if (!gathering.started(baseUri, stage)) {
+                // started past the deadline
+                Stages.cancel(stage);
+                break;
+            }
+            stage.whenComplete((value, failure) -> gathering.completed(baseUri, value, failure));
+        }
+        gathering.result.whenComplete((value, failure) -> {
+            timeout.cancel();
+            if (gathering.result.isCancelled()) {
+                gathering.expire();
+            }
+        });
+        return gathering.result;
+    }
+
+    /**
+     * Closes the clients of all endpoints
+     */
+    @Override
+    public void close() {
+        clients.values().forEach(ScatterGather::close);
+    }
+
+    private static void close(Object client) {
+        if (client instanceof RestClientProxy) {
+            ((RestClientProxy) client).close();
+        }
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    /**
+     * The outcomes of an invocation, gathered as the endpoints complete
+     */
+    private static final class Gathering<R> {
+
+        final CompletableFuture<GatheredResults<R>> result = new CompletableFuture<>();
+
+        private final Collection<URI> endpoints;
+
+        private final Map<URI, CompletionStage<R>> running = new LinkedHashMap<>();
+
+        private final Map<URI, R> results = new HashMap<>();
+
+        private final Map<URI, Throwable> failures = new HashMap<>();
+
+        private int pending;
+
+        private boolean done;
+
+        Gathering(Collection<URI> endpoints) {
+            this.endpoints = endpoints;
+            this.pending = endpoints.size();
+        }
+
+        /**
+         * @return false if the invocation started too late to be gathered
+         */
+        synchronized boolean started(URI baseUri, CompletionStage<R> stage) {
+            if (done) {
+                return false;
+            }
+            running.put(baseUri, stage);
+            return true;
+        }
+
+        void completed(URI baseUri, R value, Throwable failure) {
+            GatheredResults<R> gathered;
+            synchronized (this) {
+                if (done) {
+                    // cancelled at the deadline, or completed after it
+                    return;
+                }
+                running.remove(baseUri);
+                if (failure != null) {
+                    failures.put(baseUri, unwrap(failure));
+                } else {
+                    results.put(baseUri, value);
+                }
+                if (--pending > 0) {
+                    return;
+                }
+                done = true;
+                gathered = gathered();
+            }
+            result.complete(gathered);
+        }
+
+        void expire() {
+            Collection<CompletionStage<R>> stragglers;
+            GatheredResults<R> gathered;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                stragglers = new ArrayList<>(running.values());
+                gathered = gathered();
+            }
+            // their connections are closed by the time the results are handed over
+            stragglers.forEach(Stages::cancel);
+            result.complete(gathered);
+        }
+
+        private GatheredResults<R> gathered() {
+            // in the order of the endpoints, rather than the order they completed in
+            Map<URI, R> orderedResults = new LinkedHashMap<>();
+            Map<URI, Throwable> orderedFailures = new LinkedHashMap<>();
+            // still running, or not even started
+            Set<URI> timedOut = new LinkedHashSet<>();
+            for (URI endpoint : endpoints) {
+                if (results.containsKey(endpoint)) {
+                    orderedResults.put(endpoint, results.get(endpoint));
+                } else if (failures.containsKey(endpoint)) {
+                    orderedFailures.put(endpoint, failures.get(endpoint));
+                } else {
+                    timedOut.add(endpoint);
+                }
+            }
+            return new GatheredResults<>(Collections.unmodifiableMap(orderedResults),
+                    Collections.unmodifiableMap(orderedFailures), Collections.unmodifiableSet(timedOut));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.header;
+
+import org.eclipse.microprofile.rest.client.ext.AsyncInvocationInterceptor;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Resolves headers with {@link AsyncClientHeadersFactory}s and hands the result over to {@link ClientHeadersRequestFilter}.
+ *
+ * The resolved headers are bound to the thread that runs the request filters, either directly (synchronous methods)
+ * or through an {@link AsyncInvocationInterceptor} applied on the executor thread (asynchronous methods).
+ */
+public class AsyncClientHeaders {
+
+    private static final ThreadLocal<MultivaluedMap<String, String>> resolvedHeaders = new ThreadLocal<>();
+
+    /**
+     * Resolve the headers for an invocation of the given method. Has to be called on the thread invoking the client
+     * proxy, so that the incoming headers are the ones of the current request.
+     *
+     * @param method the invoked client method
+     * @param factories factories to apply, in order
+     * @return a stage completed with the headers to set on the outgoing request
+     */
+    public static CompletionStage<MultivaluedMap<String, String>> resolve(Method method, List<AsyncClientHeadersFactory> factories) {
+        MultivaluedMap<String, String> outgoing = new ClientHeaderMap();
+        ClientHeaderProviders.getProvider(method).ifPresent(p -> p.addHeaders(outgoing));
+        MultivaluedMap<String, String> incoming = ClientHeadersRequestFilter.getIncomingHeaders();
+
+        CompletionStage<MultivaluedMap<String, String>> result = CompletableFuture.completedFuture(outgoing);
+        for (AsyncClientHeadersFactory factory : factories) {
+            result = result.thenCompose(headers -> factory.update(incoming, headers));
+        }
+        return result;
+    }
+
+    /**
+     * Bind resolved headers to the current thread, to be picked up by the request filter
+     *
+     * @param headers the resolved headers
+     */
+    public static void bind(MultivaluedMap<String, String> headers) {
+        resolvedHeaders.set(headers);
+    }
+
+    public static void unbind() {
+        resolvedHeaders.remove();
+    }
+
+    /**
+     * @param headers the resolved headers
+     * @return an interceptor binding the headers to the thread that executes an asynchronous invocation
+     */
+    public static AsyncInvocationInterceptor binder(MultivaluedMap<String, String> headers) {
+        return new AsyncInvocationInterceptor() {
+            @Override
+            public void prepareContext() {
+            }
+
+            @Override
+            public void applyContext() {
+                bind(headers);
+            }
+
+            @Override
+            public void removeContext() {
+                unbind();
+            }
+        };
+    }
+
+    static MultivaluedMap<String, String> current() {
+        return resolvedHeaders.get();
+    }
+
+    private AsyncClientHeaders() {
+    }
+}
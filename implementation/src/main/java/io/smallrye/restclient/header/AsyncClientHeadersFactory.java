@@ -0,0 +1,44 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.header;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A non-blocking counterpart of {@link org.eclipse.microprofile.rest.client.ext.ClientHeadersFactory}.
+ *
+ * Register an implementation as a provider of a rest client (e.g. with {@link org.eclipse.microprofile.rest.client.annotation.RegisterProvider}
+ * or {@link org.eclipse.microprofile.rest.client.RestClientBuilder#register(Object)}).
+ *
+ * The headers are resolved before the request is sent. For methods returning {@link CompletionStage}, the request
+ * is only submitted once the returned stage completes, so no executor thread waits for the header lookup.
+ *
+ * The headers returned by the factory take precedence over all other headers of the request. Note that values
+ * of JAX-RS {@code @HeaderParam} parameters are not available in {@code clientOutgoingHeaders}.
+ *
+ * @see AsyncClientHeaders
+ */
+public interface AsyncClientHeadersFactory {
+
+    /**
+     * @param incomingHeaders headers of the JAX-RS request that triggered the current call, if any
+     * @param clientOutgoingHeaders headers generated from {@link org.eclipse.microprofile.rest.client.annotation.ClientHeaderParam} annotations
+     * @return a stage completed with the headers to set on the outgoing request
+     */
+    CompletionStage<MultivaluedMap<String, String>> update(MultivaluedMap<String, String> incomingHeaders,
+                                                           MultivaluedMap<String, String> clientOutgoingHeaders);
+}
@@ -0,0 +1,394 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.header;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A case-insensitive {@link MultivaluedMap} of header names to values, used in the client header pipeline.
+ *
+ * Requests carry just a handful of headers, so the entries are kept in two arrays and looked up linearly, which is
+ * cheaper than hashing. Well-known header names are replaced with shared canonical instances on insertion, so that
+ * most lookups are resolved with an identity check.
+ *
+ * The map keeps the spelling of the first insertion of a header name that is not well-known. A null list of values is
+ * stored as an empty one. It is not thread-safe.
+ */
+public class ClientHeaderMap extends AbstractMap<String, List<String>> implements MultivaluedMap<String, String> {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private static final String[] WELL_KNOWN_NAMES = {
+            HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_CHARSET, HttpHeaders.ACCEPT_ENCODING, HttpHeaders.ACCEPT_LANGUAGE,
+            HttpHeaders.ALLOW, HttpHeaders.AUTHORIZATION, HttpHeaders.CACHE_CONTROL, HttpHeaders.CONTENT_DISPOSITION,
+            HttpHeaders.CONTENT_ENCODING, HttpHeaders.CONTENT_ID, HttpHeaders.CONTENT_LANGUAGE, HttpHeaders.CONTENT_LENGTH,
+            HttpHeaders.CONTENT_LOCATION, HttpHeaders.CONTENT_TYPE, HttpHeaders.COOKIE, HttpHeaders.DATE, HttpHeaders.ETAG,
+            HttpHeaders.EXPIRES, HttpHeaders.HOST, HttpHeaders.IF_MATCH, HttpHeaders.IF_MODIFIED_SINCE,
+            HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_UNMODIFIED_SINCE, HttpHeaders.LAST_MODIFIED, HttpHeaders.LINK,
+            HttpHeaders.LOCATION, HttpHeaders.RETRY_AFTER, HttpHeaders.SET_COOKIE, HttpHeaders.USER_AGENT,
+            HttpHeaders.VARY, HttpHeaders.WWW_AUTHENTICATE,
+            "Connection", "Keep-Alive", "Pragma", "Transfer-Encoding", "Proxy-Authorization", "Origin", "Referer",
+            "X-Forwarded-For", "X-Forwarded-Host", "X-Forwarded-Proto", "X-Request-ID"
+    };
+
+    // open addressing table of the well-known names, indexed by a case-insensitive hash
+    private static final String[] INTERNED = new String[128];
+
+    static {
+        for (String name : WELL_KNOWN_NAMES) {
+            int slot = hash(name) & (INTERNED.length - 1);
+            while (INTERNED[slot] != null) {
+                slot = (slot + 1) & (INTERNED.length - 1);
+            }
+            INTERNED[slot] = name;
+        }
+    }
+
+    private String[] names;
+    private List<String>[] values;
+    private int size;
+
+    private transient Set<Entry<String, List<String>>> entrySet;
+
+    public ClientHeaderMap() {
+        this(INITIAL_CAPACITY);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ClientHeaderMap(int capacity) {
+        names = new String[Math.max(capacity, 1)];
+        values = new List[names.length];
+    }
+
+    /**
+     * Copy the given headers, converting the values to strings
+     *
+     * @param headers headers to copy
+     * @return a new map with the headers
+     */
+    public static ClientHeaderMap copyOf(MultivaluedMap<String, ?> headers) {
+        ClientHeaderMap result = new ClientHeaderMap(Math.max(headers.size(), INITIAL_CAPACITY));
+        result.putAllAsStrings(headers);
+        return result;
+    }
+
+    /**
+     * Put all the given headers to this map, converting the values to strings. Existing values of the headers are replaced.
+     *
+     * @param headers headers to put
+     */
+    public void putAllAsStrings(MultivaluedMap<String, ?> headers) {
+        for (Entry<String, ? extends List<?>> entry : headers.entrySet()) {
+            List<?> source = entry.getValue();
+            List<String> copy = new ArrayList<>(source.size());
+            for (Object value : source) {
+                copy.add(value instanceof String ? (String) value : String.valueOf(value));
+            }
+            put(entry.getKey(), copy);
+        }
+    }
+
+    /**
+     * Put all the headers of this map to the given target, replacing the existing values.
+     *
+     * @param target the map to write the headers to
+     */
+    public void writeTo(MultivaluedMap<String, Object> target) {
+        for (int i = 0; i < size; i++) {
+            target.put(names[i], new ArrayList<>(values[i]));
+        }
+    }
+
+    /**
+     * @param name a header name
+     * @return the shared instance of the header name if it is a well-known one, the name itself otherwise
+     */
+    static String intern(String name) {
+        int slot = hash(name) & (INTERNED.length - 1);
+        String candidate;
+        while ((candidate = INTERNED[slot]) != null) {
+            if (candidate == name || candidate.equalsIgnoreCase(name)) {
+                return candidate;
+            }
+            slot = (slot + 1) & (INTERNED.length - 1);
+        }
+        return name;
+    }
+
+    private static int hash(String name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            h = 31 * h + Character.toLowerCase(name.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private int indexOf(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        String name = (String) key;
+        for (int i = 0; i < size; i++) {
+            if (names[i] == name) {
+                return i;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (names[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexForWrite(String key) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            return index;
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        names[size] = intern(key);
+        values[size] = new ArrayList<>(1);
+        return size++;
+    }
+
+    private void removeAt(int index) {
+        int moved = size - index - 1;
+        if (moved > 0) {
+            System.arraycopy(names, index + 1, names, index, moved);
+            System.arraycopy(values, index + 1, values, index, moved);
+        }
+        size--;
+        names[size] = null;
+        values[size] = null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public List<String> get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public List<String> put(String key, List<String> value) {
+        if (key == null) {
+            throw new NullPointerException("Header name must not be null");
+        }
+        List<String> values = value != null ? value : new ArrayList<>(1);
+        int index = indexOf(key);
+        if (index >= 0) {
+            List<String> previous = this.values[index];
+            this.values[index] = values;
+            return previous;
+        }
+        index = indexForWrite(key);
+        this.values[index] = values;
+        return null;
+    }
+
+    @Override
+    public List<String> remove(Object key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        List<String> previous = values[index];
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+
+    @Override
+    public void putSingle(String key, String value) {
+        List<String> list = new ArrayList<>(1);
+        list.add(value);
+        put(key, list);
+    }
+
+    @Override
+    public void add(String key, String value) {
+        values[indexForWrite(key)].add(value);
+    }
+
+    @Override
+    public String getFirst(String key) {
+        List<String> list = get(key);
+        return list == null || list.isEmpty() ? null : list.get(0);
+    }
+
+    @Override
+    public void addAll(String key, String... newValues) {
+        if (newValues.length > 0) {
+            Collections.addAll(values[indexForWrite(key)], newValues);
+        }
+    }
+
+    @Override
+    public void addAll(String key, List<String> valueList) {
+        if (!valueList.isEmpty()) {
+            values[indexForWrite(key)].addAll(valueList);
+        }
+    }
+
+    @Override
+    public void addFirst(String key, String value) {
+        values[indexForWrite(key)].add(0, value);
+    }
+
+    @Override
+    public boolean equalsIgnoreValueOrder(MultivaluedMap<String, String> other) {
+        if (this == other) {
+            return true;
+        }
+        if (other == null || size != other.size()) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            List<String> otherValues = other.get(names[i]);
+            if (otherValues == null || otherValues.size() != values[i].size()
+                    || !otherValues.containsAll(values[i]) || !values[i].containsAll(otherValues)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Set<Entry<String, List<String>>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, List<String>>> {
+        @Override
+        public Iterator<Entry<String, List<String>>> iterator() {
+            return new Iterator<Entry<String, List<String>>>() {
+                private int next;
+                private int last = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return next < size;
+                }
+
+                @Override
+                public Entry<String, List<String>> next() {
+                    if (next >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    last = next++;
+                    return new HeaderEntry(last);
+                }
+
+                @Override
+                public void remove() {
+                    if (last < 0) {
+                        throw new IllegalStateException();
+                    }
+                    removeAt(last);
+                    next = last;
+                    last = -1;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            ClientHeaderMap.this.clear();
+        }
+    }
+
+    private final class HeaderEntry implements Entry<String, List<String>> {
+        private final int index;
+
+        private HeaderEntry(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return names[index];
+        }
+
+        @Override
+        public List<String> getValue() {
+            return values[index];
+        }
+
+        @Override
+        public List<String> setValue(List<String> value) {
+            List<String> previous = values[index];
+            values[index] = value != null ? value : new ArrayList<>(1);
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Entry<?, ?> other = (Entry<?, ?>) o;
+            return getKey().equals(other.getKey()) && getValue().equals(other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ getValue().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -74,7 +74,7 @@ class ClientHeaderValueGenerator {
                         ? filler.generateValues()
                         : staticValues;
 
-        if (!headerValues.isEmpty() && headers.get(headerName) == null) {
+        if (!headerValues.isEmpty() && !headers.containsKey(headerName)) {
             headers.put(headerName, headerValues);
         }
     }
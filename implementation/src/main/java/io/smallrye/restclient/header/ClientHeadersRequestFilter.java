@@ -23,28 +23,28 @@ import javax.annotation.Priority;
 import javax.ws.rs.client.ClientRequestContext;
 import javax.ws.rs.client.ClientRequestFilter;
 import javax.ws.rs.core.HttpHeaders;
-import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Optional;
 import java.util.ServiceLoader;
 
-import static io.smallrye.restclient.utils.ListCastUtils.castToListOfStrings;
-
 /**
  * First the headers from `@ClientHeaderParam` annotations are applied,
- * they can be overwritten by JAX-RS `@HeaderParam` (coming in the `requestContext`)
+ * they can be overwritten by JAX-RS `@HeaderParam` (coming in the `requestContext`).
+ * When `AsyncClientHeadersFactory`s resolved the headers already, the `@ClientHeaderParam` values are taken from them
+ * instead of being computed again.
  *
  * Then, if a `ClientHeadersFactory` is defined, all the headers, together with headers from `IncomingHeadersProvider`,
  * are passed to it and it can overwrite them.
+ *
+ * Finally, headers resolved by `AsyncClientHeadersFactory`s, if any, overwrite the rest.
  */
 @Priority(Integer.MIN_VALUE)
 public class ClientHeadersRequestFilter implements ClientRequestFilter {
 
-    private static final IncomingHeadersProvider noIncomingHeadersProvider = MultivaluedHashMap::new;
+    private static final IncomingHeadersProvider noIncomingHeadersProvider = ClientHeaderMap::new;
 
     private static final IncomingHeadersProvider incomingHeadersProvider;
 
@@ -74,32 +74,56 @@ public class ClientHeadersRequestFilter implements ClientRequestFilter {
     @Override
     public void filter(ClientRequestContext requestContext) {
         Method method = ClientRequestContextUtils.getMethod(requestContext);
+        if (method == null) {
+            // not a rest client proxy call, e.g. a background revalidation of a cached response
+            return;
+        }
 
-        MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+        MultivaluedMap<String, String> resolvedHeaders = AsyncClientHeaders.current();
 
-        Optional<ClientHeaderProvider> handler = ClientHeaderProviders.getProvider(method);
-        handler.ifPresent(h -> h.addHeaders(headers));
+        ClientHeaderMap headers;
+        if (resolvedHeaders != null) {
+            // computed from the @ClientHeaderParam values by AsyncClientHeaders.resolve
+            headers = ClientHeaderMap.copyOf(resolvedHeaders);
+        } else {
+            headers = new ClientHeaderMap();
+            Optional<ClientHeaderProvider> handler = ClientHeaderProviders.getProvider(method);
+            handler.ifPresent(h -> h.addHeaders(headers));
+        }
 
         Optional<ClientHeadersFactory> factory = ClientHeaderProviders.getFactory(method.getDeclaringClass());
 
-        requestContext.getHeaders().forEach(
-                (key, values) -> headers.put(key, castToListOfStrings(values))
-        );
+        // replaces the @ClientHeaderParam values of the headers also set with @HeaderParam, whatever their spelling
+        headers.putAllAsStrings(requestContext.getHeaders());
+
+        MultivaluedMap<String, Object> requestHeaders = requestContext.getHeaders();
+        if (factory.isPresent()) {
+            writeHeaders(updateHeaders(headers, factory.get()), requestHeaders);
+        } else {
+            headers.writeTo(requestHeaders);
+        }
 
-        factory.map(f -> updateHeaders(headers, f))
-                .orElse(headers)
-                .forEach(
-                        (key, values) -> requestContext.getHeaders().put(key, castToListOfObjects(values))
-                );
+        if (resolvedHeaders != null) {
+            writeHeaders(resolvedHeaders, requestHeaders);
+        }
 
         ResteasyProviderFactory.getContextDataMap().put(HttpHeaders.class, new HttpHeadersContextProvider(requestContext));
     }
 
+    static MultivaluedMap<String, String> getIncomingHeaders() {
+        MultivaluedMap<String, String> captured = IncomingHeaders.current();
+        return captured != null ? captured : incomingHeadersProvider.getIncomingHeaders();
+    }
+
     private MultivaluedMap<String, String> updateHeaders(MultivaluedMap<String, String> headers, ClientHeadersFactory factory) {
-        return factory.update(incomingHeadersProvider.getIncomingHeaders(), headers);
+        return factory.update(getIncomingHeaders(), headers);
     }
 
-    private static List<Object> castToListOfObjects(List<String> values) {
-        return new ArrayList<>(values);
+    private static void writeHeaders(MultivaluedMap<String, String> headers, MultivaluedMap<String, Object> target) {
+        if (headers instanceof ClientHeaderMap) {
+            ((ClientHeaderMap) headers).writeTo(target);
+        } else {
+            headers.forEach((key, values) -> target.put(key, new ArrayList<>(values)));
+        }
     }
 }
@@ -24,7 +24,6 @@ import javax.ws.rs.client.ClientRequestContext;
 import javax.ws.rs.core.Cookie;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
-import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
 import java.util.Arrays;
 import java.util.Collections;
@@ -53,28 +52,38 @@ public class HttpHeadersContextProvider implements HttpHeaders {
 
     @Override
     public MultivaluedMap<String, String> getRequestHeaders() {
-        MultivaluedMap<String, Object> headers = context.getHeaders();
-        MultivaluedMap<String, String> result = new MultivaluedHashMap<>();
-        headers.forEach(
-                (key, values) ->
-                        result.put(key, castToListOfStrings(values))
-        );
-        return result;
+        return ClientHeaderMap.copyOf(context.getHeaders());
     }
 
     @Override
     public List<String> getRequestHeader(String name) {
-        List<String> vals = getRequestHeaders().get(name);
+        List<String> vals = getValues(name);
         if (vals == null) {
             return Collections.emptyList();
         }
         return Collections.unmodifiableList(vals);
     }
 
+    private List<String> getValues(String name) {
+        List<Object> values = context.getHeaders().get(name);
+        return values == null
+                ? null
+                : castToListOfStrings(values);
+    }
+
+    private String getFirst(String name) {
+        List<Object> values = context.getHeaders().get(name);
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        Object value = values.get(0);
+        return value instanceof String ? (String) value : String.valueOf(value);
+    }
+
     @Override
     public Map<String, Cookie> getCookies() {
         Map<String, Cookie> cookies = new HashMap<>();
-        List<String> cookieHeader = getRequestHeaders().get(HttpHeaders.COOKIE);
+        List<String> cookieHeader = getValues(HttpHeaders.COOKIE);
         if (cookieHeader != null && !cookieHeader.isEmpty()) {
             for (String s : cookieHeader) {
                 List<Cookie> list = CookieParser.parseCookies(s);
@@ -88,7 +97,7 @@ public class HttpHeadersContextProvider implements HttpHeaders {
 
     @Override
     public Date getDate() {
-        String date = getRequestHeaders().getFirst(DATE);
+        String date = getFirst(DATE);
         return date == null
                 ? null
                 : DateUtil.parseDate(date);
@@ -96,7 +105,7 @@ public class HttpHeadersContextProvider implements HttpHeaders {
 
     @Override
     public String getHeaderString(String name) {
-        List<String> vals = getRequestHeaders().get(name);
+        List<String> vals = getValues(name);
         return vals == null
                 ? null
                 : String.join(",", vals);
@@ -104,7 +113,7 @@ public class HttpHeadersContextProvider implements HttpHeaders {
 
     @Override
     public Locale getLanguage() {
-        String obj = getRequestHeaders().getFirst(HttpHeaders.CONTENT_LANGUAGE);
+        String obj = getFirst(HttpHeaders.CONTENT_LANGUAGE);
         return obj == null
                 ? null
                 : new Locale(obj);
@@ -112,7 +121,7 @@ public class HttpHeadersContextProvider implements HttpHeaders {
 
     @Override
     public int getLength() {
-        String obj = getRequestHeaders().getFirst(HttpHeaders.CONTENT_LENGTH);
+        String obj = getFirst(HttpHeaders.CONTENT_LENGTH);
         if (obj == null) {
             return -1;
         }
@@ -121,7 +130,7 @@ public class HttpHeadersContextProvider implements HttpHeaders {
 
     @Override
     public MediaType getMediaType() {
-        String contentType = getRequestHeaders().getFirst(HttpHeaders.CONTENT_TYPE);
+        String contentType = getFirst(HttpHeaders.CONTENT_TYPE);
         return contentType == null
                 ? null
                 : MediaType.valueOf(contentType);
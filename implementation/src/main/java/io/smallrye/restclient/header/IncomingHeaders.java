@@ -0,0 +1,86 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.header;
+
+import org.eclipse.microprofile.rest.client.ext.AsyncInvocationInterceptor;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.ArrayList;
+
+/**
+ * Carries the incoming headers over to an invocation that isn't sent by the thread invoking the client proxy, e.g. a
+ * queued invocation sent by the thread releasing a permit.
+ *
+ * The headers are captured on the invoking thread, and bound to the threads that resolve and filter the headers of
+ * the invocation, in place of the ones {@link IncomingHeadersProvider} has for them.
+ */
+public class IncomingHeaders {
+
+    private static final ThreadLocal<MultivaluedMap<String, String>> capturedHeaders = new ThreadLocal<>();
+
+    /**
+     * Copies the incoming headers of the current thread, they may not outlive the request they come with
+     *
+     * @return the incoming headers
+     */
+    public static MultivaluedMap<String, String> capture() {
+        ClientHeaderMap headers = new ClientHeaderMap();
+        ClientHeadersRequestFilter.getIncomingHeaders().forEach((key, values) -> headers.put(key, new ArrayList<>(values)));
+        return headers;
+    }
+
+    /**
+     * Bind captured incoming headers to the current thread
+     *
+     * @param headers the captured headers
+     */
+    public static void bind(MultivaluedMap<String, String> headers) {
+        capturedHeaders.set(headers);
+    }
+
+    public static void unbind() {
+        capturedHeaders.remove();
+    }
+
+    /**
+     * @param headers the captured headers
+     * @return an interceptor binding the headers to the thread that executes an asynchronous invocation
+     */
+    public static AsyncInvocationInterceptor binder(MultivaluedMap<String, String> headers) {
+        return new AsyncInvocationInterceptor() {
+            @Override
+            public void prepareContext() {
+            }
+
+            @Override
+            public void applyContext() {
+                bind(headers);
+            }
+
+            @Override
+            public void removeContext() {
+                unbind();
+            }
+        };
+    }
+
+    static MultivaluedMap<String, String> current() {
+        return capturedHeaders.get();
+    }
+
+    private IncomingHeaders() {
+    }
+}
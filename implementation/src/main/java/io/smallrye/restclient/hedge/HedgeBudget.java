@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.hedge;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the share of invocations that are hedged, so that hedging can't multiply the load on a server that's slow
+ * because it's overloaded.
+ *
+ * Every hedged invocation deposits a fraction of a token, every hedge withdraws a whole one; the balance is capped, so
+ * idle periods only save up for a short burst of hedges.
+ */
+public class HedgeBudget {
+
+    private static final long TOKEN = 1000;
+
+    private static final HedgeBudget GLOBAL = new HedgeBudget(0.1, 10);
+
+    private final long deposit;
+
+    private final long maxBalance;
+
+    private final AtomicLong balance;
+
+    /**
+     * @param ratio maximum number of hedges per invocation
+     * @param maxTokens maximum number of hedges that can be saved up
+     */
+    public HedgeBudget(double ratio, int maxTokens) {
+        this.deposit = Math.max(0, Math.round(ratio * TOKEN));
+        this.maxBalance = Math.max(maxTokens, 1) * TOKEN;
+        this.balance = new AtomicLong(maxBalance);
+    }
+
+    /**
+     * @return the budget shared by all the clients, of one hedge per ten invocations and a burst of ten hedges
+     */
+    public static HedgeBudget global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Adds the share of an invocation to the budget
+     */
+    public void deposit() {
+        balance.accumulateAndGet(deposit, (current, added) -> Math.min(maxBalance, current + added));
+    }
+
+    /**
+     * @return whether a hedge can be sent, in which case it's taken from the budget
+     */
+    public boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.hedge;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Hedges the invocations of an idempotent client method: when no response has arrived after a delay, an identical
+ * request is sent and the first response wins, see {@link Hedging}.
+ *
+ * The {@code hedgeDelay} and {@code hedgeDelayPercentile} options of the method take precedence over the annotation.
+ * Only methods with an idempotent HTTP method, GET, HEAD, OPTIONS, PUT or DELETE, are hedged.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Hedged {
+
+    /**
+     * @return delay after which the second request is sent, in milliseconds; the delay until the latency percentile
+     * is known if one is set
+     */
+    long delay() default 100;
+
+    /**
+     * @return percentile of the latency of the method to use as the delay, e.g. 95, 0 for a fixed delay
+     */
+    double percentile() default 0;
+}
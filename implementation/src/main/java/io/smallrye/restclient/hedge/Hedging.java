@@ -0,0 +1,298 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.hedge;
+
+import io.smallrye.restclient.async.AsyncContext;
+import io.smallrye.restclient.async.Stages;
+import io.smallrye.restclient.engine.Abortable;
+import io.smallrye.restclient.engine.Cancellation;
+import io.smallrye.restclient.timeout.HashedWheelTimer;
+
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hedges the invocations of an idempotent client method.
+ *
+ * When an invocation hasn't completed after the hedge delay, a second, identical one is sent. The first to succeed
+ * wins and the other one is cancelled, its exchange aborted, or its result closed if it succeeded as well; the
+ * invocation only fails once both have failed. The delay is either fixed or a percentile of the recent latency of the
+ * method, so that only the slowest invocations are hedged. Hedges are taken from a {@link HedgeBudget}; once it's
+ * spent, invocations just wait for their first request.
+ *
+ * A synchronous invocation sends its first request on the calling thread and the hedge on the executor of the client,
+ * with the context captured on the calling thread. The delays are tracked by the shared {@link HashedWheelTimer}.
+ */
+public class Hedging {
+
+    /**
+     * A request of an invocation
+     */
+    @FunctionalInterface
+    public interface Attempt<T> {
+
+        T send() throws Throwable;
+    }
+
+    private final long delayNanos;
+
+    private final double percentile;
+
+    private final LatencyTracker latencies = new LatencyTracker();
+
+    private final HedgeBudget budget;
+
+    private final Executor executor;
+
+    /**
+     * @param delayMillis delay after which the hedge is sent, in milliseconds; the delay until the latency percentile
+     * is known if one is set, negative to only hedge once it is
+     * @param percentile percentile of the latency to use as the delay, e.g. 95, 0 for a fixed delay
+     * @param budget budget hedges are taken from
+     * @param executor executor hedges of synchronous invocations are sent on
+     */
+    public Hedging(long delayMillis, double percentile, HedgeBudget budget, Executor executor) {
+        this.delayNanos = delayMillis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        this.percentile = percentile;
+        this.budget = budget;
+        this.executor = executor;
+    }
+
+    /**
+     * @return the current hedge delay in nanoseconds, negative if invocations aren't hedged yet
+     */
+    long delayNanos() {
+        if (percentile > 0) {
+            long latency = latencies.percentile(percentile);
+            if (latency >= 0) {
+                return latency;
+            }
+        }
+        return delayNanos;
+    }
+
+    /**
+     * Hedges a synchronous invocation
+     *
+     * @param attempt sends a request of the invocation, on the current thread
+     * @return the result of the first request to succeed
+     * @throws Throwable the failure of the last request, if both failed
+     */
+    public Object invoke(Attempt<Object> attempt) throws Throwable {
+        return invoke(attempt, AsyncContext.EMPTY);
+    }
+
+    /**
+     * Hedges a synchronous invocation
+     *
+     * @param attempt sends a request of the invocation, on the current thread
+     * @param hedgeContext context of the calling thread, applied to the thread the hedge is sent on
+     * @return the result of the first request to succeed
+     * @throws Throwable the failure of the last request, if both failed
+     */
+    public Object invoke(Attempt<Object> attempt, AsyncContext hedgeContext) throws Throwable {
+        budget.deposit();
+        long delay = delayNanos();
+        if (delay < 0) {
+            return timed(attempt);
+        }
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        Cancellation first = new Cancellation();
+        Cancellation hedge = new Cancellation();
+        HashedWheelTimer.Timeout timeout = HashedWheelTimer.shared().schedule(() -> {
+            if (!result.isDone() && budget.tryWithdraw() && join(pending)) {
+                try {
+                    executor.execute(hedgeContext.wrap(() -> run(attempt, hedge, result, pending, first)));
+                } catch (RejectedExecutionException e) {
+                    complete(result, pending, null, e, first);
+                }
+            }
+        }, delay, TimeUnit.NANOSECONDS);
+        run(attempt, first, result, pending, hedge);
+        timeout.cancel();
+        try {
+            // waits for the hedge only if the first request failed
+            return result.get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            hedge.cancel();
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    /**
+     * Hedges an invocation of a method returning a {@link CompletionStage}
+     *
+     * @param attempt sends a request of the invocation and returns its stage, without waiting for it
+     * @return a stage completed with the result of the first request to succeed; cancelling it cancels both requests
+     */
+    public CompletionStage<Object> invokeAsync(Attempt<CompletionStage<Object>> attempt) {
+        return invokeAsync(attempt, AsyncContext.EMPTY);
+    }
+
+    /**
+     * Hedges an invocation of a method returning a {@link CompletionStage}
+     *
+     * @param attempt sends a request of the invocation and returns its stage, without waiting for it
+     * @param hedgeContext context of the calling thread, applied to the thread the hedge is sent on
+     * @return a stage completed with the result of the first request to succeed; cancelling it cancels both requests
+     */
+    public CompletionStage<Object> invokeAsync(Attempt<CompletionStage<Object>> attempt, AsyncContext hedgeContext) {
+        budget.deposit();
+        long delay = delayNanos();
+        if (delay < 0) {
+            return timedAsync(attempt);
+        }
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicReference<CompletionStage<Object>> first = new AtomicReference<>();
+        AtomicReference<CompletionStage<Object>> hedge = new AtomicReference<>();
+        HashedWheelTimer.Timeout timeout = HashedWheelTimer.shared().schedule(() -> {
+            if (!result.isDone() && budget.tryWithdraw() && join(pending)) {
+                try {
+                    // request filters may run as the hedge is sent, not on the thread of the timer
+                    executor.execute(hedgeContext.wrap(() -> sendAsync(attempt, hedge, result, pending, first)));
+                } catch (RejectedExecutionException e) {
+                    completeAsync(result, pending, null, e, first);
+                }
+            }
+        }, delay, TimeUnit.NANOSECONDS);
+        sendAsync(attempt, first, result, pending, hedge);
+        result.whenComplete((value, failure) -> {
+            timeout.cancel();
+            if (result.isCancelled()) {
+                cancel(first.get());
+                cancel(hedge.get());
+            }
+        });
+        return result;
+    }
+
+    private Object timed(Attempt<Object> attempt) throws Throwable {
+        long start = System.nanoTime();
+        Object value = attempt.send();
+        latencies.record(System.nanoTime() - start);
+        return value;
+    }
+
+    private CompletionStage<Object> timedAsync(Attempt<CompletionStage<Object>> attempt) {
+        long start = System.nanoTime();
+        CompletionStage<Object> stage;
+        try {
+            stage = attempt.send();
+        } catch (Throwable e) {
+            return Stages.failed(e);
+        }
+        stage.whenComplete((value, failure) -> {
+            if (failure == null) {
+                latencies.record(System.nanoTime() - start);
+            }
+        });
+        return stage;
+    }
+
+    private void run(Attempt<Object> attempt, Cancellation cancellation, CompletableFuture<Object> result,
+                     AtomicInteger pending, Cancellation other) {
+        Cancellation.bind(cancellation);
+        try {
+            Object value = timed(attempt);
+            complete(result, pending, value, null, other);
+        } catch (Throwable e) {
+            complete(result, pending, null, e, other);
+        } finally {
+            Cancellation.unbind();
+        }
+    }
+
+    private void sendAsync(Attempt<CompletionStage<Object>> attempt, AtomicReference<CompletionStage<Object>> self,
+                           CompletableFuture<Object> result, AtomicInteger pending,
+                           AtomicReference<CompletionStage<Object>> other) {
+        CompletionStage<Object> stage = timedAsync(attempt);
+        self.set(stage);
+        if (result.isDone()) {
+            // the other request won in the meantime
+            cancel(stage);
+        }
+        stage.whenComplete((value, failure) -> completeAsync(result, pending, value, failure, other));
+    }
+
+    private static void complete(CompletableFuture<Object> result, AtomicInteger pending, Object value,
+                                 Throwable failure, Cancellation other) {
+        if (failure == null) {
+            if (result.complete(value)) {
+                other.cancel();
+            } else {
+                discard(value);
+            }
+        } else if (pending.decrementAndGet() == 0) {
+            result.completeExceptionally(failure);
+        }
+    }
+
+    private static void completeAsync(CompletableFuture<Object> result, AtomicInteger pending, Object value,
+                                      Throwable failure, AtomicReference<CompletionStage<Object>> other) {
+        if (failure == null) {
+            if (result.complete(value)) {
+                cancel(other.get());
+            } else {
+                discard(value);
+            }
+        } else if (pending.decrementAndGet() == 0) {
+            result.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * Counts the hedge in, unless the invocation failed already
+     */
+    private static boolean join(AtomicInteger pending) {
+        return pending.getAndUpdate(count -> count > 0 ? count + 1 : count) > 0;
+    }
+
+    /**
+     * Releases the result of a request that succeeded too late, e.g. a response or its stream, which holds a
+     * connection until it's closed
+     */
+    private static void discard(Object value) {
+        try {
+            if (value instanceof InputStream) {
+                Abortable.abort((InputStream) value);
+            } else if (value instanceof AutoCloseable) {
+                ((AutoCloseable) value).close();
+            }
+        } catch (Exception ignored) {
+        }
+    }
+
+    private static void cancel(CompletionStage<?> stage) {
+        if (stage != null) {
+            try {
+                stage.toCompletableFuture().cancel(false);
+            } catch (UnsupportedOperationException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.hedge;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tracks the recent latencies of a client method, to tell their percentiles.
+ *
+ * Latencies are counted in a histogram of microseconds with eight buckets per power of two, so a percentile is known
+ * within an eighth. Recording is a single atomic increment. The histogram covers the current window of ten seconds
+ * and the previous one, so that the percentiles follow changes of the latency.
+ */
+public class LatencyTracker {
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static final int MIN_SAMPLES = 20;
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int LINEAR_BUCKETS = 2 * SUB_BUCKETS;
+
+    private static final int BUCKETS = LINEAR_BUCKETS + (64 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private volatile Window current = new Window(System.nanoTime());
+
+    private volatile Window previous = new Window(0);
+
+    /**
+     * @param latencyNanos latency of an invocation, in nanoseconds
+     */
+    public void record(long latencyNanos) {
+        long now = System.nanoTime();
+        Window window = current;
+        if (now - window.start > WINDOW_NANOS) {
+            window = rotate(window, now);
+        }
+        window.counts.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMicros(Math.max(latencyNanos, 0))));
+    }
+
+    /**
+     * @param percentile the percentile, between 0 and 100
+     * @return the latency at the percentile in nanoseconds, -1 while there are too few samples
+     */
+    public long percentile(double percentile) {
+        Window current = this.current;
+        Window previous = this.previous;
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = current.counts.get(i) + previous.counts.get(i);
+            total += counts[i];
+        }
+        if (total < MIN_SAMPLES) {
+            return -1;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(percentile, 100) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return TimeUnit.MICROSECONDS.toNanos(upperBound(i));
+            }
+        }
+        return TimeUnit.MICROSECONDS.toNanos(upperBound(BUCKETS - 1));
+    }
+
+    private synchronized Window rotate(Window expired, long now) {
+        if (current == expired) {
+            previous = expired;
+            current = new Window(now);
+        }
+        return current;
+    }
+
+    static int bucket(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        int subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    private static final class Window {
+
+        final long start;
+
+        final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+        Window(long start) {
+            this.start = start;
+        }
+    }
+}
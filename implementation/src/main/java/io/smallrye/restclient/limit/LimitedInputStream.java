@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.limit;
+
+import io.smallrye.restclient.engine.Abortable;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read from a response entity stream, aborting the connection once there are more than allowed.
+ */
+class LimitedInputStream extends FilterInputStream implements Abortable {
+
+    private final Abortable connection;
+
+    private final long maxBytes;
+
+    private long count;
+
+    /**
+     * @param in the response entity stream
+     * @param connection the connection of the response, null if it can't be aborted
+     * @param maxBytes maximum number of bytes to read
+     */
+    LimitedInputStream(InputStream in, Abortable connection, long maxBytes) {
+        super(in);
+        this.connection = connection;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b != -1) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        // one byte past the limit is enough to tell the body is too long
+        int read = in.read(b, off, (int) Math.min(len, maxBytes - count + 1));
+        if (read > 0) {
+            count(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(Math.min(n, maxBytes - count + 1));
+        if (skipped > 0) {
+            count(skipped);
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void abort() throws IOException {
+        if (connection != null) {
+            connection.abort();
+        } else {
+            Abortable.abort(in);
+        }
+    }
+
+    private void count(long read) throws IOException {
+        count += read;
+        if (count > maxBytes) {
+            // closing would read the rest of the body to reuse the connection
+            abort();
+            throw new ResponseTooLargeException(maxBytes);
+        }
+    }
+}
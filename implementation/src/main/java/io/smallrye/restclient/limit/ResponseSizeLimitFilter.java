@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.limit;
+
+import io.smallrye.restclient.MethodInjectionFilter;
+import io.smallrye.restclient.engine.Abortable;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * Enforces the maximum response size of client methods.
+ *
+ * A response announcing a longer body in its {@code Content-Length} fails right away, any other one fails as soon as
+ * more bytes than allowed are read from it. Either way, the connection is aborted and a
+ * {@link ResponseTooLargeException} is thrown, nothing past the limit is buffered.
+ *
+ * Response filters run from the highest priority to the lowest, so this one limits the decoded body of a compressed
+ * response, not the bytes on the wire.
+ */
+@Priority(Priorities.ENTITY_CODER - 1)
+public class ResponseSizeLimitFilter implements ClientResponseFilter {
+
+    /**
+     * Limit of methods without a maximum response size
+     */
+    public static final long UNLIMITED = -1;
+
+    private final Map<Method, Long> maxBytes;
+
+    private final long defaultMaxBytes;
+
+    /**
+     * @param maxBytes maximum response sizes of client methods, negative for no limit
+     * @param defaultMaxBytes maximum response size of the other methods, negative for no limit
+     */
+    public ResponseSizeLimitFilter(Map<Method, Long> maxBytes, long defaultMaxBytes) {
+        this.maxBytes = maxBytes;
+        this.defaultMaxBytes = defaultMaxBytes;
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) throws IOException {
+        long limit = maxBytes.getOrDefault(requestContext.getProperty(MethodInjectionFilter.INVOKED_METHOD), defaultMaxBytes);
+        if (limit < 0) {
+            return;
+        }
+        // hasEntity() is false for a body without a Content-Type
+        InputStream entityStream = responseContext.getEntityStream();
+        if (entityStream == null) {
+            return;
+        }
+        Object property = requestContext.getProperty(Abortable.PROPERTY);
+        Abortable connection = property instanceof Abortable ? (Abortable) property : null;
+        if (responseContext.getLength() > limit) {
+            if (connection != null) {
+                connection.abort();
+            } else {
+                entityStream.close();
+            }
+            throw new ResponseTooLargeException(limit);
+        }
+        responseContext.setEntityStream(new LimitedInputStream(entityStream, connection, limit));
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.limit;
+
+import javax.ws.rs.ProcessingException;
+
+/**
+ * Thrown when a response body is longer than the maximum response size of the client method.
+ *
+ * The connection of the response is aborted before it's thrown, the rest of the body is never read.
+ */
+public class ResponseTooLargeException extends ProcessingException {
+
+    private final long maxBytes;
+
+    public ResponseTooLargeException(long maxBytes) {
+        super("The response body is longer than the limit of " + maxBytes + " bytes");
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return the maximum response size, in bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
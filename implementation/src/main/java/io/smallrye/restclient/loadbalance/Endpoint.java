@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.loadbalance;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A base URI of a client, with the target its invocations are sent through and the number of its invocations in
+ * progress.
+ */
+public class Endpoint {
+
+    private final URI uri;
+
+    private final Object target;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    /**
+     * @param uri the base URI
+     * @param target the RESTEasy proxy of the client interface for the base URI
+     */
+    public Endpoint(URI uri, Object target) {
+        this.uri = uri;
+        this.target = target;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    public Object getTarget() {
+        return target;
+    }
+
+    /**
+     * @return the number of invocations sent to the endpoint and not completed yet
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * Counts an invocation sent to the endpoint
+     */
+    public void started() {
+        outstanding.incrementAndGet();
+    }
+
+    /**
+     * Counts the completion of an invocation sent to the endpoint
+     */
+    public void finished() {
+        outstanding.decrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return uri.toString();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.loadbalance;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Selects the endpoint of each invocation of a client with several base URIs.
+ *
+ * <ul>
+ * <li>{@value #ROUND_ROBIN}: the endpoints in turn</li>
+ * <li>{@value #LEAST_OUTSTANDING}: the endpoint with the fewest invocations in progress, which steers away from a
+ * slow endpoint as its invocations pile up</li>
+ * <li>{@value #POWER_OF_TWO_CHOICES}: the one with fewer invocations in progress of two endpoints picked at random,
+ * nearly as good at balancing as the least outstanding one while looking at two endpoints only, and without every
+ * client rushing to the same endpoint at once</li>
+ * </ul>
+ */
+public abstract class LoadBalancer {
+
+    public static final String ROUND_ROBIN = "round-robin";
+
+    public static final String LEAST_OUTSTANDING = "least-outstanding";
+
+    public static final String POWER_OF_TWO_CHOICES = "power-of-two-choices";
+
+    final Endpoint[] endpoints;
+
+    private LoadBalancer(List<Endpoint> endpoints) {
+        this.endpoints = endpoints.toArray(new Endpoint[0]);
+    }
+
+    /**
+     * @param strategy name of the strategy
+     * @param endpoints the endpoints, at least one
+     * @return a load balancer selecting among the endpoints with the strategy
+     */
+    public static LoadBalancer create(String strategy, List<Endpoint> endpoints) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("No endpoint to balance the load over");
+        }
+        if (endpoints.size() == 1) {
+            return new Single(endpoints);
+        }
+        switch (strategy.trim().toLowerCase(Locale.ROOT)) {
+            case ROUND_ROBIN:
+                return new RoundRobin(endpoints);
+            case LEAST_OUTSTANDING:
+                return new LeastOutstanding(endpoints);
+            case POWER_OF_TWO_CHOICES:
+                return new PowerOfTwoChoices(endpoints);
+            default:
+                throw new IllegalArgumentException("Unknown load balancing strategy " + strategy + ", expected one of "
+                        + ROUND_ROBIN + ", " + LEAST_OUTSTANDING + " or " + POWER_OF_TWO_CHOICES);
+        }
+    }
+
+    /**
+     * @return the endpoint of an invocation
+     */
+    public abstract Endpoint select();
+
+    /**
+     * @return the endpoints
+     */
+    public List<Endpoint> getEndpoints() {
+        return Collections.unmodifiableList(Arrays.asList(endpoints));
+    }
+
+    private static final class Single extends LoadBalancer {
+
+        Single(List<Endpoint> endpoints) {
+            super(endpoints);
+        }
+
+        @Override
+        public Endpoint select() {
+            return endpoints[0];
+        }
+    }
+
+    private static final class RoundRobin extends LoadBalancer {
+
+        private final AtomicInteger next = new AtomicInteger();
+
+        RoundRobin(List<Endpoint> endpoints) {
+            super(endpoints);
+        }
+
+        @Override
+        public Endpoint select() {
+            return endpoints[Math.floorMod(next.getAndIncrement(), endpoints.length)];
+        }
+    }
+
+    private static final class LeastOutstanding extends LoadBalancer {
+
+        private final AtomicInteger start = new AtomicInteger();
+
+        LeastOutstanding(List<Endpoint> endpoints) {
+            super(endpoints);
+        }
+
+        @Override
+        public Endpoint select() {
+            // scanning from a rotating start spreads the invocations over endpoints with equal counts
+            int offset = Math.floorMod(start.getAndIncrement(), endpoints.length);
+            Endpoint selected = endpoints[offset];
+            int least = selected.getOutstanding();
+            for (int i = 1; i < endpoints.length && least > 0; i++) {
+                Endpoint endpoint = endpoints[(offset + i) % endpoints.length];
+                int outstanding = endpoint.getOutstanding();
+                if (outstanding < least) {
+                    selected = endpoint;
+                    least = outstanding;
+                }
+            }
+            return selected;
+        }
+    }
+
+    private static final class PowerOfTwoChoices extends LoadBalancer {
+
+        PowerOfTwoChoices(List<Endpoint> endpoints) {
+            super(endpoints);
+        }
+
+        @Override
+        public Endpoint select() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(endpoints.length);
+            int second = random.nextInt(endpoints.length - 1);
+            if (second >= first) {
+                second++;
+            }
+            Endpoint a = endpoints[first];
+            Endpoint b = endpoints[second];
+            return b.getOutstanding() < a.getOutstanding() ? b : a;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.priority;
+
+/**
+ * Priority of the invocations of a client method, on a saturated executor, see {@link PriorityExecutorService}
+ */
+public enum InvocationPriority {
+
+    /**
+     * Runs before any waiting invocation of lower priority, e.g. for interactive calls
+     */
+    HIGH,
+
+    /**
+     * The priority of methods without one
+     */
+    NORMAL,
+
+    /**
+     * Runs after every waiting invocation of higher priority, and is shed first, e.g. for background calls
+     */
+    LOW
+}
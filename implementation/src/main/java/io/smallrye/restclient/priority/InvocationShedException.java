@@ -0,0 +1,40 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.priority;
+
+import javax.ws.rs.ProcessingException;
+
+/**
+ * Fails a low priority invocation that waited for the executor for longer than the shed threshold.
+ *
+ * The invocation is failed before anything is sent.
+ */
+public class InvocationShedException extends ProcessingException {
+
+    private final long waitedMillis;
+
+    public InvocationShedException(long waitedMillis) {
+        super("Shed a low priority invocation after waiting " + waitedMillis + "ms for the executor");
+        this.waitedMillis = waitedMillis;
+    }
+
+    /**
+     * @return how long the invocation waited, in milliseconds
+     */
+    public long getWaitedMillis() {
+        return waitedMillis;
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.priority;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs the asynchronous invocations of a client on its executor by priority, rather than in the order they come in.
+ *
+ * Invocations wait in a queue per {@link InvocationPriority}, and at most as many of them as the executor has threads
+ * are handed over to it at a time, so that the waiting happens here and not in the queue of the executor. A thread
+ * that's done with an invocation takes the oldest one of the highest priority next. As a blocking invocation only
+ * leases a connection once it runs, its lease is in the order of the priorities too.
+ *
+ * With a shed threshold, low priority invocations that have waited for longer are failed with an
+ * {@link InvocationShedException} instead of being run, so that a saturated client sheds its background load first.
+ * Tasks submitted without a priority have the normal one.
+ */
+public class PriorityExecutorService extends AbstractExecutorService {
+
+    private static final Consumer<InvocationShedException> NOT_SHED = shed -> {
+    };
+
+    private static final InvocationPriority[] PRIORITIES = InvocationPriority.values();
+
+    private final ExecutorService delegate;
+
+    private final int parallelism;
+
+    private final long shedThresholdNanos;
+
+    private final Map<Method, InvocationPriority> priorities;
+
+    private final Queue<Task>[] queues;
+
+    private final AtomicInteger workers = new AtomicInteger();
+
+    /**
+     * @param delegate the executor of the client
+     * @param parallelism maximum number of invocations running on the executor at a time
+     * @param shedThresholdMillis time after which a waiting low priority invocation is shed, negative to never shed
+     * @param priorities priorities of the client methods, others have the normal priority
+     */
+    @SuppressWarnings("unchecked")
+    public PriorityExecutorService(ExecutorService delegate, int parallelism, long shedThresholdMillis,
+                                   Map<Method, InvocationPriority> priorities) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism has to be positive: " + parallelism);
+        }
+        this.delegate = delegate;
+        this.parallelism = parallelism;
+        this.shedThresholdNanos = shedThresholdMillis < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(shedThresholdMillis);
+        this.priorities = priorities;
+        this.queues = new Queue[PRIORITIES.length];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * @param executor an executor
+     * @return the number of tasks the executor runs at a time, as far as it tells
+     */
+    public static int parallelismOf(ExecutorService executor) {
+        if (executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            // a pool with an unbounded queue never grows past its core size
+            int size = pool.getQueue().remainingCapacity() == Integer.MAX_VALUE
+                    ? pool.getCorePoolSize()
+                    : pool.getMaximumPoolSize();
+            return Math.max(1, size);
+        }
+        if (executor instanceof ForkJoinPool) {
+            return ((ForkJoinPool) executor).getParallelism();
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @param method a client method, may be null
+     * @return the priority of the method
+     */
+    public InvocationPriority priorityOf(Method method) {
+        InvocationPriority priority = method != null ? priorities.get(method) : null;
+        return priority != null ? priority : InvocationPriority.NORMAL;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        execute(command, InvocationPriority.NORMAL, NOT_SHED);
+    }
+
+    /**
+     * @param task the task of an invocation
+     * @param priority the priority of the invocation
+     * @param onShed fails the invocation when it's shed, instead of running the task
+     */
+    public void execute(Runnable task, InvocationPriority priority, Consumer<? super InvocationShedException> onShed) {
+        Objects.requireNonNull(task, "task");
+        if (delegate.isShutdown()) {
+            throw new RejectedExecutionException("The executor is shut down");
+        }
+        Queue<Task> queue = queues[priority.ordinal()];
+        Task queued = new Task(task, onShed, System.nanoTime());
+        queue.add(queued);
+        if (tryAddWorker()) {
+            try {
+                delegate.execute(this::work);
+            } catch (RejectedExecutionException e) {
+                workers.decrementAndGet();
+                if (queue.remove(queued)) {
+                    throw e;
+                }
+                // taken by another worker already
+            }
+        }
+    }
+
+    private boolean tryAddWorker() {
+        int current;
+        do {
+            current = workers.get();
+            if (current >= parallelism) {
+                return false;
+            }
+        } while (!workers.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void work() {
+        while (true) {
+            Task task = next();
+            if (task == null) {
+                workers.decrementAndGet();
+                // a task queued while this worker was leaving may have found no free worker
+                if (isIdle() || !tryAddWorker()) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                task.runnable.run();
+            } catch (RuntimeException | Error e) {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+    }
+
+    private Task next() {
+        if (shedThresholdNanos >= 0) {
+            shedExpired();
+        }
+        for (Queue<Task> queue : queues) {
+            Task task = queue.poll();
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private void shedExpired() {
+        Queue<Task> low = queues[InvocationPriority.LOW.ordinal()];
+        long now = System.nanoTime();
+        Task oldest;
+        while ((oldest = low.peek()) != null && now - oldest.queuedAt > shedThresholdNanos) {
+            if (low.remove(oldest)) {
+                oldest.onShed.accept(new InvocationShedException(TimeUnit.NANOSECONDS.toMillis(now - oldest.queuedAt)));
+            }
+        }
+    }
+
+    private boolean isIdle() {
+        for (Queue<Task> queue : queues) {
+            if (!queue.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    private static final class Task {
+
+        final Runnable runnable;
+
+        final Consumer<? super InvocationShedException> onShed;
+
+        final long queuedAt;
+
+        Task(Runnable runnable, Consumer<? super InvocationShedException> onShed, long queuedAt) {
+            this.runnable = runnable;
+            this.onShed = onShed;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.singleflight;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A request in flight, shared by identical concurrent invocations
+ */
+class Flight {
+
+    private final Map<FlightKey, Flight> inFlight;
+
+    private final FlightKey key;
+
+    final CompletableFuture<SharedResponse> response = new CompletableFuture<>();
+
+    Flight(Map<FlightKey, Flight> inFlight, FlightKey key) {
+        this.inFlight = inFlight;
+        this.key = key;
+    }
+
+    /**
+     * @param shared the buffered response, or null if it cannot be shared
+     */
+    void complete(SharedResponse shared) {
+        // later invocations start a new request
+        inFlight.remove(key, this);
+        response.complete(shared);
+    }
+
+    void fail(Throwable failure) {
+        inFlight.remove(key, this);
+        response.completeExceptionally(failure);
+    }
+}
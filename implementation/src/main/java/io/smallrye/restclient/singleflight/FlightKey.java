@@ -0,0 +1,63 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.singleflight;
+
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Identifies identical invocations: the same client method, with the same resolved URI and the same values of the
+ * selected headers
+ */
+class FlightKey {
+
+    private final Method method;
+    private final String httpMethod;
+    private final URI uri;
+    private final String[] headerValues;
+    private final int hashCode;
+
+    FlightKey(Method method, String httpMethod, URI uri, String[] headerValues) {
+        this.method = method;
+        this.httpMethod = httpMethod;
+        this.uri = uri;
+        this.headerValues = headerValues;
+        this.hashCode = Objects.hash(method, httpMethod, uri) * 31 + Arrays.hashCode(headerValues);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        FlightKey other = (FlightKey) o;
+        return hashCode == other.hashCode
+                && Objects.equals(method, other.method)
+                && httpMethod.equals(other.httpMethod)
+                && uri.equals(other.uri)
+                && Arrays.equals(headerValues, other.headerValues);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
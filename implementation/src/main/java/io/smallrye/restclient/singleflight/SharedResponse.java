@@ -0,0 +1,50 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.singleflight;
+
+import io.smallrye.restclient.header.ClientHeaderMap;
+
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+
+/**
+ * A buffered response, handed out to every invocation that shared the request
+ */
+class SharedResponse {
+
+    private final int status;
+    private final ClientHeaderMap headers;
+    private final byte[] body;
+
+    SharedResponse(int status, MultivaluedMap<String, String> headers, byte[] body) {
+        this.status = status;
+        this.headers = ClientHeaderMap.copyOf(headers);
+        this.body = body;
+    }
+
+    /**
+     * @return a new response, with its own entity stream
+     */
+    Response toResponse() {
+        Response.ResponseBuilder response = Response.status(status);
+        headers.forEach((name, values) -> values.forEach(value -> response.header(name, value)));
+        if (body != null) {
+            response.entity(new ByteArrayInputStream(body));
+        }
+        return response.build();
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.singleflight;
+
+import org.eclipse.microprofile.rest.client.ext.AsyncInvocationInterceptor;
+
+import javax.ws.rs.ProcessingException;
+
+/**
+ * A single invocation of a client proxy method that may share its request with identical concurrent invocations.
+ *
+ * The invocation is bound to the thread that runs the request filters, either directly (synchronous methods)
+ * or through an {@link AsyncInvocationInterceptor} applied on the executor thread (asynchronous methods).
+ * It has to be {@link #finish(Throwable) finished} once the invocation completes, so that the invocations
+ * waiting for its response are released even if the request failed.
+ */
+public class SingleFlight {
+
+    private static final ThreadLocal<SingleFlight> current = new ThreadLocal<>();
+
+    private boolean started;
+
+    private Flight led;
+
+    public void bind() {
+        current.set(this);
+    }
+
+    public static void unbind() {
+        current.remove();
+    }
+
+    /**
+     * @return an interceptor binding this invocation to the thread that executes it asynchronously
+     */
+    public AsyncInvocationInterceptor binder() {
+        return new AsyncInvocationInterceptor() {
+            @Override
+            public void prepareContext() {
+            }
+
+            @Override
+            public void applyContext() {
+                bind();
+            }
+
+            @Override
+            public void removeContext() {
+                unbind();
+            }
+        };
+    }
+
+    /**
+     * Release the invocations waiting for the response of this one, if it did not get a response
+     *
+     * @param failure the failure of the invocation, or null
+     */
+    public void finish(Throwable failure) {
+        Flight flight;
+        synchronized (this) {
+            flight = led;
+            led = null;
+        }
+        if (flight != null) {
+            flight.fail(failure != null ? failure : new ProcessingException("Shared request did not complete"));
+        }
+    }
+
+    /**
+     * @return the invocation bound to the current thread, if it has not sent a request yet
+     */
+    static SingleFlight start() {
+        SingleFlight flight = current.get();
+        if (flight == null) {
+            return null;
+        }
+        synchronized (flight) {
+            if (flight.started) {
+                return null;
+            }
+            flight.started = true;
+            return flight;
+        }
+    }
+
+    synchronized void lead(Flight flight) {
+        led = flight;
+    }
+}
@@ -0,0 +1,245 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.singleflight;
+
+import io.smallrye.restclient.download.DownloadTarget;
+import io.smallrye.restclient.engine.DeferredResponse;
+import io.smallrye.restclient.utils.ClientRequestContextUtils;
+import org.reactivestreams.Publisher;
+
+import javax.annotation.Priority;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.BaseStream;
+
+/**
+ * Lets identical concurrent GET and HEAD invocations share a single request.
+ *
+ * The first invocation sends the request, the invocations that arrive while it's in flight wait for its response,
+ * buffered in memory, and get their own copy of it. Only invocations bound to a {@link SingleFlight} by the client
+ * proxy take part. Responses bigger than the limit are not shared, the waiting invocations send their own requests
+ * then. Methods that stream their response, e.g. as a {@link Publisher} or to a file, never share it: reading the
+ * body up front would hold back its first elements.
+ *
+ * Asynchronous invocations on the {@link io.smallrye.restclient.engine.NonBlockingEngine} wait without a thread,
+ * through a {@link DeferredResponse}. Other invocations block their thread, for at most the maximum wait, after which
+ * they send their own request.
+ *
+ * As a request filter, it runs after all the other filters but the response cache, so that the headers are final.
+ * As a response filter, it runs after the response cache and before the other filters, so that every invocation
+ * maps the shared response on its own.
+ */
+@Priority(Integer.MAX_VALUE - 1)
+public class SingleFlightFilter implements ClientRequestFilter, ClientResponseFilter {
+
+    public static final String DEFAULT_HEADERS = String.join(",", HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_LANGUAGE,
+            HttpHeaders.ACCEPT_ENCODING, HttpHeaders.AUTHORIZATION, HttpHeaders.COOKIE);
+
+    public static final long DEFAULT_MAX_BYTES = 1024 * 1024;
+
+    public static final long DEFAULT_MAX_WAIT = 30000;
+
+    private static final Class<?>[] STREAMING_TYPES = {Publisher.class, BaseStream.class, Iterator.class,
+            InputStream.class, Reader.class, java.nio.file.Path.class, FileChannel.class};
+
+    private static final String LEADER_PROPERTY = SingleFlightFilter.class.getName() + ".leader";
+
+    private final ConcurrentMap<FlightKey, Flight> inFlight = new ConcurrentHashMap<>();
+
+    private final String[] headerNames;
+
+    private final long maxBytes;
+
+    private final long maxWait;
+
+    /**
+     * @param headerNames names of the request headers that have to be equal for invocations to share a request
+     * @param maxBytes maximum size of a shared response body
+     * @param maxWait maximum time a thread waits for a shared response, in milliseconds
+     */
+    public SingleFlightFilter(List<String> headerNames, long maxBytes, long maxWait) {
+        this.headerNames = headerNames.toArray(new String[0]);
+        this.maxBytes = maxBytes;
+        this.maxWait = maxWait;
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext) throws IOException {
+        String httpMethod = requestContext.getMethod();
+        if (!HttpMethod.GET.equals(httpMethod) && !HttpMethod.HEAD.equals(httpMethod)) {
+            return;
+        }
+        Method method = ClientRequestContextUtils.getMethod(requestContext);
+        if (method == null || isStreaming(method)) {
+            return;
+        }
+        SingleFlight invocation = SingleFlight.start();
+        if (invocation == null) {
+            return;
+        }
+
+        FlightKey key = key(requestContext, method, httpMethod);
+        Flight flight = new Flight(inFlight, key);
+        Flight existing = inFlight.putIfAbsent(key, flight);
+        if (existing == null) {
+            invocation.lead(flight);
+            requestContext.setProperty(LEADER_PROPERTY, flight);
+            return;
+        }
+
+        DeferredResponse deferred = DeferredResponse.of(requestContext);
+        if (deferred != null) {
+            deferred.defer(sharedResponse(existing));
+            return;
+        }
+        SharedResponse shared;
+        try {
+            shared = existing.response.get(maxWait, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the response of an identical request");
+        } catch (ExecutionException e) {
+            throw new ProcessingException("Identical request failed", e.getCause());
+        } catch (TimeoutException e) {
+            // the identical request is taking too long, this one goes on its own
+            return;
+        }
+        if (shared != null) {
+            requestContext.abortWith(shared.toResponse());
+        }
+    }
+
+    private static CompletionStage<Response> sharedResponse(Flight flight) {
+        CompletableFuture<Response> response = new CompletableFuture<>();
+        flight.response.whenComplete((shared, failure) -> {
+            if (failure != null) {
+                response.completeExceptionally(new ProcessingException("Identical request failed", failure));
+            } else {
+                response.complete(shared != null ? shared.toResponse() : null);
+            }
+        });
+        return response;
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext, ClientResponseContext responseContext) throws IOException {
+        Flight flight = (Flight) requestContext.getProperty(LEADER_PROPERTY);
+        if (flight == null) {
+            return;
+        }
+        requestContext.removeProperty(LEADER_PROPERTY);
+        SharedResponse shared = null;
+        try {
+            byte[] body = readBody(responseContext);
+            if (body != null) {
+                shared = new SharedResponse(responseContext.getStatus(), responseContext.getHeaders(),
+                        body.length > 0 ? body : null);
+            }
+        } finally {
+            flight.complete(shared);
+        }
+    }
+
+    /**
+     * Read the whole body, unless it's too big to be shared. The entity stream of the response is replaced so that
+     * the body can still be read by the client.
+     *
+     * @return the body, or null if it's too big to be shared
+     */
+    private byte[] readBody(ClientResponseContext responseContext) throws IOException {
+        // hasEntity() is false for a body without a Content-Type
+        InputStream entityStream = responseContext.getEntityStream();
+        int length = responseContext.getLength();
+        if (entityStream == null || length == 0) {
+            return new byte[0];
+        }
+        if (length > maxBytes) {
+            return null;
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream(length > 0 ? length : 1024);
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = entityStream.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+            if (body.size() > maxBytes) {
+                responseContext.setEntityStream(new SequenceInputStream(new ByteArrayInputStream(body.toByteArray()), entityStream));
+                return null;
+            }
+        }
+        byte[] result = body.toByteArray();
+        responseContext.setEntityStream(new ByteArrayInputStream(result));
+        return result;
+    }
+
+    /**
+     * @return whether the method streams its response, to be read as it arrives
+     */
+    private static boolean isStreaming(Method method) {
+        if (DownloadTarget.hasTarget(method)) {
+            return true;
+        }
+        Type type = method.getGenericReturnType();
+        if (CompletionStage.class.isAssignableFrom(method.getReturnType())) {
+            type = type instanceof ParameterizedType ? ((ParameterizedType) type).getActualTypeArguments()[0] : Object.class;
+        }
+        if (type instanceof ParameterizedType) {
+            type = ((ParameterizedType) type).getRawType();
+        }
+        if (!(type instanceof Class)) {
+            return false;
+        }
+        for (Class<?> streaming : STREAMING_TYPES) {
+            if (streaming.isAssignableFrom((Class<?>) type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private FlightKey key(ClientRequestContext requestContext, Method method, String httpMethod) {
+        String[] headerValues = new String[headerNames.length];
+        for (int i = 0; i < headerNames.length; i++) {
+            headerValues[i] = requestContext.getHeaderString(headerNames[i]);
+        }
+        return new FlightKey(method, httpMethod, requestContext.getUri(), headerValues);
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.stream;
+
+import io.smallrye.restclient.engine.Abortable;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the elements of a response body to a single subscriber, reading them only as they are requested.
+ *
+ * Elements are read on the executor of the client, never more than the outstanding demand, so a slow subscriber
+ * stops the reads from the connection and lets TCP flow control hold back the server, instead of elements piling up in
+ * memory. Signals to the subscriber are serialized on the executor.
+ *
+ * It is an {@link InputStream} over the body, so that RESTEasy leaves the connection open once the entity is read.
+ * The connection is released once the last element is published, an error is signalled or the subscription is
+ * cancelled. Cancelling aborts a connection that's still waiting for data.
+ */
+class ElementPublisher extends FilterInputStream implements Publisher<Object>, Subscription {
+
+    /**
+     * Reads the elements of a body, one at a time
+     */
+    interface Elements {
+
+        /**
+         * @return the next element, null at the end of the body
+         */
+        Object next() throws IOException;
+    }
+
+    private final Elements elements;
+
+    private final Executor executor;
+
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    private final AtomicLong demand = new AtomicLong();
+
+    private final AtomicInteger pendingDrains = new AtomicInteger();
+
+    private volatile Subscriber<? super Object> subscriber;
+
+    private volatile Throwable invalidRequest;
+
+    private volatile boolean cancelled;
+
+    private boolean done;
+
+    /**
+     * @param body the body, closed along with the publisher
+     * @param elements the elements of the body
+     * @param executor executor elements are read on
+     */
+    ElementPublisher(InputStream body, Elements elements, Executor executor) {
+        super(body);
+        this.elements = elements;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Object> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("A response body can only be published to a single subscriber"));
+            return;
+        }
+        this.subscriber = subscriber;
+        subscriber.onSubscribe(this);
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            invalidRequest = new IllegalArgumentException("Requested " + n + " elements, the demand has to be positive");
+        } else {
+            demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+        }
+        drainLater();
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        if (in instanceof Abortable) {
+            try {
+                ((Abortable) in).abort();
+            } catch (IOException ignored) {
+            }
+        }
+        drainLater();
+    }
+
+    private void drainLater() {
+        if (pendingDrains.getAndIncrement() == 0) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                invalidRequest = e;
+                drain();
+            }
+        }
+    }
+
+    private void drain() {
+        int missed = 1;
+        do {
+            if (!done) {
+                publish();
+            }
+            missed = pendingDrains.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void publish() {
+        while (true) {
+            if (cancelled) {
+                finish();
+                return;
+            }
+            Throwable error = invalidRequest;
+            if (error != null) {
+                finish();
+                subscriber.onError(error);
+                return;
+            }
+            if (demand.get() == 0) {
+                return;
+            }
+            Object element;
+            try {
+                element = elements.next();
+            } catch (Throwable e) {
+                finish();
+                if (!cancelled) {
+                    subscriber.onError(e);
+                }
+                return;
+            }
+            if (element == null) {
+                finish();
+                if (!cancelled) {
+                    subscriber.onComplete();
+                }
+                return;
+            }
+            if (demand.get() != Long.MAX_VALUE) {
+                demand.decrementAndGet();
+            }
+            subscriber.onNext(element);
+        }
+    }
+
+    private void finish() {
+        done = true;
+        try {
+            if (cancelled && in instanceof Abortable) {
+                ((Abortable) in).abort();
+            } else {
+                close();
+            }
+        } catch (IOException ignored) {
+        }
+    }
+}
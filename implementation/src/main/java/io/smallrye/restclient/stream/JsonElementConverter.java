@@ -0,0 +1,109 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.stream;
+
+import javax.json.Json;
+import javax.json.JsonReader;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts a single JSON element to the element type of the stream. JSON-P types are taken as is, other types are read
+ * with the {@link MessageBodyReader} registered for {@code application/json}, from the raw bytes of the element when
+ * the source can split them off the body without parsing them.
+ */
+class JsonElementConverter {
+
+    private final Class<Object> elementClass;
+    private final Type elementType;
+    private final Annotation[] annotations;
+    private final MultivaluedMap<String, String> headers;
+    private final MessageBodyReader<Object> reader;
+
+    /**
+     * @param reader reader of the element type, null if the elements are JSON-P values or strings
+     */
+    JsonElementConverter(Class<Object> elementClass, Type elementType, Annotation[] annotations,
+                         MultivaluedMap<String, String> headers, MessageBodyReader<Object> reader) {
+        this.elementClass = elementClass;
+        this.elementType = elementType;
+        this.annotations = annotations;
+        this.headers = headers;
+        this.reader = reader;
+    }
+
+    static boolean isJsonValue(Class<?> elementClass) {
+        return JsonValue.class.isAssignableFrom(elementClass) || elementClass == Object.class;
+    }
+
+    /**
+     * @return whether the elements are read by a {@link MessageBodyReader}, which parses their bytes itself
+     */
+    boolean readsBytes() {
+        return reader != null;
+    }
+
+    Object convert(JsonValue value) throws IOException {
+        if (elementClass.isInstance(value)) {
+            return value;
+        }
+        if (String.class.equals(elementClass)) {
+            return value instanceof JsonString ? ((JsonString) value).getString() : value.toString();
+        }
+        return read(value.toString());
+    }
+
+    Object convert(String json) throws IOException {
+        if (reader == null) {
+            try (JsonReader jsonReader = Json.createReader(new StringReader(json))) {
+                return convert(jsonReader.readValue());
+            }
+        }
+        return read(json);
+    }
+
+    /**
+     * @param json buffer holding the UTF-8 encoded element, from its start
+     * @param length length of the element
+     */
+    Object convert(byte[] json, int length) throws IOException {
+        InputStream element = new ByteArrayInputStream(json, 0, length);
+        if (reader == null) {
+            try (JsonReader jsonReader = Json.createReader(element)) {
+                return convert(jsonReader.readValue());
+            }
+        }
+        return read(element);
+    }
+
+    private Object read(String json) throws IOException {
+        return read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private Object read(InputStream element) throws IOException {
+        return reader.readFrom(elementClass, elementType, annotations, MediaType.APPLICATION_JSON_TYPE, headers, element);
+    }
+}
@@ -0,0 +1,363 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.stream;
+
+import io.smallrye.restclient.engine.Abortable;
+
+import javax.json.Json;
+import javax.json.stream.JsonParser;
+import javax.json.stream.JsonParsingException;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Elements of a response body, parsed one at a time as they are read from the connection.
+ *
+ * It is an {@link InputStream} over the body, so that RESTEasy leaves the connection open once the entity is read.
+ * The connection is released when the source is closed or the last element is read.
+ */
+abstract class JsonElementSource extends FilterInputStream implements Iterator<Object>, Abortable {
+
+    private static final Object END = new Object();
+
+    final JsonElementConverter converter;
+
+    private Object next;
+
+    private boolean closed;
+
+    private final byte[] buffer = new byte[8192];
+
+    private int position;
+
+    private int limit;
+
+    JsonElementSource(InputStream body, JsonElementConverter converter) {
+        super(body);
+        this.converter = converter;
+    }
+
+    /**
+     * @return the next element, or {@link #END}
+     */
+    abstract Object readNext() throws IOException;
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            if (closed) {
+                return false;
+            }
+            try {
+                next = readNext();
+            } catch (IOException e) {
+                closeQuietly();
+                throw new UncheckedIOException(e);
+            } catch (RuntimeException e) {
+                closeQuietly();
+                throw e;
+            }
+            if (next == END) {
+                closeQuietly();
+            }
+        }
+        return next != END;
+    }
+
+    @Override
+    public Object next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Object element = next;
+        next = null;
+        return element;
+    }
+
+    Stream<Object> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::closeQuietly);
+    }
+
+    /**
+     * Reads the body a byte at a time, through a buffer filled with the bytes available
+     *
+     * @return the next byte of the body, -1 at its end
+     */
+    int nextByte() throws IOException {
+        if (position == limit) {
+            int read = in.read(buffer);
+            if (read <= 0) {
+                return -1;
+            }
+            position = 0;
+            limit = read;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            super.close();
+        }
+    }
+
+    @Override
+    public void abort() throws IOException {
+        Abortable.abort(in);
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Elements of a top-level JSON array, a body that is not an array is a single element
+     */
+    static class ArrayElements extends JsonElementSource {
+
+        private final JsonParser parser;
+
+        private boolean started;
+
+        private boolean done;
+
+        ArrayElements(InputStream body, JsonElementConverter converter) {
+            super(body, converter);
+            this.parser = Json.createParser(body);
+        }
+
+        @Override
+        Object readNext() throws IOException {
+            if (done || !parser.hasNext()) {
+                return END;
+            }
+            JsonParser.Event event = parser.next();
+            if (!started) {
+                started = true;
+                if (event == JsonParser.Event.START_ARRAY) {
+                    return readNext();
+                }
+                done = true;
+            }
+            if (event == JsonParser.Event.END_ARRAY) {
+                return END;
+            }
+            return converter.convert(parser.getValue());
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                parser.close();
+            } finally {
+                super.close();
+            }
+        }
+    }
+
+    /**
+     * Elements of a top-level JSON array, split off the body without being parsed and handed over as raw bytes to the
+     * reader of the element type. A body that is not an array is a single element
+     */
+    static class RawArrayElements extends JsonElementSource {
+
+        private final ElementBuffer element = new ElementBuffer();
+
+        private boolean started;
+
+        private boolean done;
+
+        // read past the end of a number or literal element
+        private int pending = -1;
+
+        RawArrayElements(InputStream body, JsonElementConverter converter) {
+            super(body, converter);
+        }
+
+        @Override
+        Object readNext() throws IOException {
+            if (done) {
+                return END;
+            }
+            int c = skipWhitespace();
+            if (!started) {
+                started = true;
+                if (c == -1) {
+                    done = true;
+                    return END;
+                }
+                if (c != '[') {
+                    done = true;
+                    readRest(c);
+                    return converter.convert(element.bytes(), element.size());
+                }
+                c = skipWhitespace();
+                if (c == ']') {
+                    done = true;
+                    return END;
+                }
+            } else if (c == ']') {
+                done = true;
+                return END;
+            } else if (c == ',') {
+                c = skipWhitespace();
+            } else {
+                throw unexpected(c);
+            }
+            readElement(c);
+            return converter.convert(element.bytes(), element.size());
+        }
+
+        private void readElement(int first) throws IOException {
+            element.reset();
+            int depth = 0;
+            boolean inString = false;
+            boolean escaped = false;
+            for (int c = first; ; c = readByte()) {
+                if (c == -1) {
+                    throw unexpected(c);
+                }
+                if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (c == '\\') {
+                        escaped = true;
+                    } else if (c == '"') {
+                        inString = false;
+                        if (depth == 0) {
+                            element.write(c);
+                            return;
+                        }
+                    }
+                } else if (c == '"') {
+                    inString = true;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    if (depth == 0) {
+                        pending = c;
+                        return;
+                    }
+                    if (--depth == 0) {
+                        element.write(c);
+                        return;
+                    }
+                } else if (depth == 0 && (c == ',' || isWhitespace(c))) {
+                    pending = c;
+                    return;
+                }
+                element.write(c);
+            }
+        }
+
+        private void readRest(int first) throws IOException {
+            element.reset();
+            for (int c = first; c != -1; c = readByte()) {
+                element.write(c);
+            }
+        }
+
+        private int skipWhitespace() throws IOException {
+            int c;
+            do {
+                c = readByte();
+            } while (isWhitespace(c));
+            return c;
+        }
+
+        private int readByte() throws IOException {
+            if (pending != -1) {
+                int c = pending;
+                pending = -1;
+                return c;
+            }
+            return nextByte();
+        }
+
+        private static JsonParsingException unexpected(int c) {
+            return new JsonParsingException(c == -1
+                    ? "Unexpected end of the JSON array"
+                    : "Unexpected character '" + (char) c + "' in the JSON array", null);
+        }
+    }
+
+    /**
+     * Elements of a newline delimited JSON body, one per line
+     */
+    static class LineElements extends JsonElementSource {
+
+        private final ElementBuffer line = new ElementBuffer();
+
+        LineElements(InputStream body, JsonElementConverter converter) {
+            super(body, converter);
+        }
+
+        @Override
+        Object readNext() throws IOException {
+            while (true) {
+                line.reset();
+                int c;
+                while ((c = nextByte()) != -1 && c != '\n') {
+                    line.write(c);
+                }
+                if (!line.isBlank()) {
+                    return converter.convert(line.bytes(), line.size());
+                }
+                if (c == -1) {
+                    return END;
+                }
+            }
+        }
+    }
+
+    /**
+     * The bytes of an element, handed over without being copied
+     */
+    private static final class ElementBuffer extends ByteArrayOutputStream {
+
+        byte[] bytes() {
+            return buf;
+        }
+
+        boolean isBlank() {
+            for (int i = 0; i < count; i++) {
+                if (!isWhitespace(buf[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
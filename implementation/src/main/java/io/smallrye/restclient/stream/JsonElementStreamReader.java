@@ -0,0 +1,116 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.stream;
+
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.Providers;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Reads the elements of a top-level JSON array, or of a newline delimited JSON body, as a {@link Stream} or an
+ * {@link Iterator}. The elements are parsed one at a time, as the client consumes them.
+ */
+public class JsonElementStreamReader implements MessageBodyReader<Object> {
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return (type == Stream.class || type == Iterator.class) && (isJson(mediaType) || isLineDelimited(mediaType));
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                           MultivaluedMap<String, String> httpHeaders, InputStream entityStream) {
+        return source(elementType(genericType), annotations, mediaType, httpHeaders, entityStream);
+    }
+
+    /**
+     * @return the elements of a JSON or newline delimited JSON body
+     */
+    static JsonElementSource source(Type elementType, Annotation[] annotations, MediaType mediaType,
+                                    MultivaluedMap<String, String> httpHeaders, InputStream entityStream) {
+        JsonElementConverter converter = converter(elementType, annotations, httpHeaders);
+        if (isLineDelimited(mediaType)) {
+            return new JsonElementSource.LineElements(entityStream, converter);
+        }
+        return converter.readsBytes()
+                ? new JsonElementSource.RawArrayElements(entityStream, converter)
+                : new JsonElementSource.ArrayElements(entityStream, converter);
+    }
+
+    /**
+     * Has to be called while the entity is read, as it looks up the reader of the elements.
+     *
+     * @return the converter of JSON values to the given element type
+     */
+    @SuppressWarnings("unchecked")
+    static JsonElementConverter converter(Type elementType, Annotation[] annotations,
+                                          MultivaluedMap<String, String> httpHeaders) {
+        Class<Object> elementClass = (Class<Object>) rawType(elementType);
+
+        MessageBodyReader<Object> elementReader = null;
+        if (!JsonElementConverter.isJsonValue(elementClass) && !String.class.equals(elementClass)) {
+            // the providers are only available while the entity is read, not when the elements are
+            Providers providers = ResteasyProviderFactory.getContextData(Providers.class);
+            if (providers != null) {
+                elementReader = providers.getMessageBodyReader(elementClass, elementType, annotations, MediaType.APPLICATION_JSON_TYPE);
+            }
+            if (elementReader == null) {
+                throw new ProcessingException("No MessageBodyReader found for JSON elements of type " + elementType.getTypeName());
+            }
+        }
+        return new JsonElementConverter(elementClass, elementType, annotations, httpHeaders, elementReader);
+    }
+
+    static boolean isJson(MediaType mediaType) {
+        return "json".equalsIgnoreCase(mediaType.getSubtype()) || mediaType.getSubtype().toLowerCase().endsWith("+json");
+    }
+
+    static boolean isLineDelimited(MediaType mediaType) {
+        switch (mediaType.getSubtype().toLowerCase()) {
+            case "x-ndjson":
+            case "ndjson":
+            case "jsonl":
+            case "x-jsonlines":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    static Type elementType(Type genericType) {
+        if (genericType instanceof ParameterizedType) {
+            Type argument = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+            if (argument instanceof Class || argument instanceof ParameterizedType) {
+                return argument;
+            }
+        }
+        return Object.class;
+    }
+
+    static Class<?> rawType(Type type) {
+        return type instanceof ParameterizedType ? (Class<?>) ((ParameterizedType) type).getRawType() : (Class<?>) type;
+    }
+}
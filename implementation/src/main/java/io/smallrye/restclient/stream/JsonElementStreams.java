@@ -0,0 +1,59 @@
+/**
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.stream;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Support of client methods returning {@link Stream} or {@link Iterator}, read by {@link JsonElementStreamReader}.
+ *
+ * RESTEasy releases the connection as soon as an entity is read, unless the entity is an {@link java.io.InputStream}.
+ * The reader thus returns a {@link JsonElementSource}, and the client proxy created by RESTEasy is wrapped so that
+ * methods returning a {@link Stream} get a stream over the source.
+ */
+public class JsonElementStreams {
+
+    /**
+     * @param clientInterface the client interface
+     * @param target the client proxy created by RESTEasy
+     * @param <T> type of the client interface
+     * @return the proxy to invoke instead of the target
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T wrap(Class<T> clientInterface, T target) {
+        if (Arrays.stream(clientInterface.getMethods()).noneMatch(m -> m.getReturnType() == Stream.class)) {
+            return target;
+        }
+        InvocationHandler targetHandler = Proxy.getInvocationHandler(target);
+        return (T) Proxy.newProxyInstance(target.getClass().getClassLoader(), target.getClass().getInterfaces(),
+                (proxy, method, args) -> {
+                    // invoked through the handler, a source would not pass as the return type of the target proxy
+                    Object result = targetHandler.invoke(proxy, method, args);
+                    if (result instanceof JsonElementSource && method.getReturnType() == Stream.class) {
+                        return ((JsonElementSource) result).stream();
+                    }
+                    return result;
+                });
+    }
+
+    private JsonElementStreams() {
+    }
+}
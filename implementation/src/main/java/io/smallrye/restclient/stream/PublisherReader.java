@@ -0,0 +1,147 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.stream;
+
+import org.jboss.resteasy.plugins.providers.sse.SseEventInputImpl;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+import org.reactivestreams.Publisher;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.Providers;
+import javax.ws.rs.sse.InboundSseEvent;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+/**
+ * Reads a streamed response body as a {@link Publisher}, for client methods returning one.
+ *
+ * <ul>
+ * <li>{@code text/event-stream}: the server-sent events, as {@link InboundSseEvent}s for a {@code Publisher} of
+ * events or of unspecified type, as their data for a {@code Publisher<String>}, or as their data read as JSON
+ * otherwise</li>
+ * <li>JSON: the elements of a top-level array, or of a newline delimited JSON body, as read by
+ * {@link JsonElementStreamReader}</li>
+ * <li>any other media type: the chunks of the body as they arrive, for a {@code Publisher<byte[]>} or a
+ * {@code Publisher<String>}</li>
+ * </ul>
+ *
+ * Elements are only read as the subscriber requests them, see {@link ElementPublisher}.
+ */
+public class PublisherReader implements MessageBodyReader<Object> {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final Executor executor;
+
+    /**
+     * @param executor executor the elements are read and published on
+     */
+    public PublisherReader(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        if (type != Publisher.class) {
+            return false;
+        }
+        if (isEventStream(mediaType) || JsonElementStreamReader.isJson(mediaType)
+                || JsonElementStreamReader.isLineDelimited(mediaType)) {
+            return true;
+        }
+        Type elementType = JsonElementStreamReader.elementType(genericType);
+        return elementType == byte[].class || elementType == String.class;
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                           MultivaluedMap<String, String> httpHeaders, InputStream entityStream) {
+        Type elementType = JsonElementStreamReader.elementType(genericType);
+        if (isEventStream(mediaType)) {
+            return new ElementPublisher(entityStream, events(elementType, annotations, mediaType, httpHeaders, entityStream),
+                    executor);
+        }
+        if (JsonElementStreamReader.isJson(mediaType) || JsonElementStreamReader.isLineDelimited(mediaType)) {
+            JsonElementSource source = JsonElementStreamReader.source(elementType, annotations, mediaType, httpHeaders,
+                    entityStream);
+            return new ElementPublisher(source, () -> {
+                try {
+                    return source.hasNext() ? source.next() : null;
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }, executor);
+        }
+        return new ElementPublisher(entityStream, chunks(elementType, mediaType, entityStream), executor);
+    }
+
+    private static ElementPublisher.Elements events(Type elementType, Annotation[] annotations, MediaType mediaType,
+                                                    MultivaluedMap<String, String> httpHeaders, InputStream entityStream) {
+        SseEventInputImpl input = new SseEventInputImpl(annotations, mediaType, MediaType.TEXT_PLAIN_TYPE, httpHeaders,
+                entityStream);
+        // the providers are only available while the entity is read, not when the events are
+        input.setProviders(ResteasyProviderFactory.getContextData(Providers.class));
+        if (elementType == InboundSseEvent.class || elementType == Object.class) {
+            return input::read;
+        }
+        JsonElementConverter converter = elementType == String.class
+                ? null
+                : JsonElementStreamReader.converter(elementType, annotations, httpHeaders);
+        return () -> {
+            InboundSseEvent event;
+            do {
+                event = input.read();
+                if (event == null) {
+                    return null;
+                }
+                // comments and events without data, such as keep-alives
+            } while (event.isEmpty());
+            return converter == null ? event.readData() : converter.convert(event.readData());
+        };
+    }
+
+    private static ElementPublisher.Elements chunks(Type elementType, MediaType mediaType, InputStream entityStream) {
+        if (elementType == String.class) {
+            String charset = mediaType.getParameters().get(MediaType.CHARSET_PARAMETER);
+            Reader reader = new InputStreamReader(entityStream,
+                    charset != null ? Charset.forName(charset) : StandardCharsets.UTF_8);
+            char[] chunk = new char[CHUNK_SIZE];
+            return () -> {
+                int read = reader.read(chunk);
+                return read == -1 ? null : new String(chunk, 0, read);
+            };
+        }
+        byte[] chunk = new byte[CHUNK_SIZE];
+        return () -> {
+            int read = entityStream.read(chunk);
+            return read == -1 ? null : Arrays.copyOf(chunk, read);
+        };
+    }
+
+    private static boolean isEventStream(MediaType mediaType) {
+        return MediaType.SERVER_SENT_EVENTS_TYPE.isCompatible(mediaType) && !mediaType.isWildcardSubtype();
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.timeout;
+
+import org.jboss.logging.Logger;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks after a delay, with a single thread for any number of pending tasks.
+ *
+ * Time is split into ticks and pending tasks are kept in a wheel of buckets, one per tick; a task lands in the bucket
+ * of the tick it expires in, along with the number of turns of the wheel left before it's due. Scheduling and
+ * cancelling a task only touch a queue and a flag, so they're cheap enough to arm a timer for every invocation, and most
+ * invocations complete and cancel theirs long before they expire. Cancelled tasks are dropped the next time the wheel
+ * reaches their bucket.
+ *
+ * Tasks run on the thread of the timer, late by up to a tick. They have to be short and must not block.
+ */
+public class HashedWheelTimer {
+
+    private static final Logger LOGGER = Logger.getLogger(HashedWheelTimer.class);
+
+    private static final HashedWheelTimer SHARED = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 512);
+
+    private final long tickNanos;
+
+    private final Bucket[] wheel;
+
+    private final int mask;
+
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private final long startTime = System.nanoTime();
+
+    /**
+     * @param tickDuration duration of a tick, the precision of the timer
+     * @param unit unit of the tick duration
+     * @param ticksPerWheel number of buckets of the wheel, rounded up to a power of two
+     */
+    public HashedWheelTimer(long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        if (tickDuration <= 0 || ticksPerWheel <= 0 || ticksPerWheel > 1 << 30) {
+            throw new IllegalArgumentException("Invalid tick duration or number of ticks per wheel");
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        int size = Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        this.wheel = new Bucket[Math.max(size, 1)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheel.length - 1;
+    }
+
+    /**
+     * @return the timer shared by the clients, with ticks of 10 milliseconds
+     */
+    public static HashedWheelTimer shared() {
+        return SHARED;
+    }
+
+    /**
+     * Schedules a task, starting the thread of the timer if it isn't running yet.
+     *
+     * @param task task to run
+     * @param delay delay after which the task runs
+     * @param unit unit of the delay
+     * @return the scheduled task, to cancel it
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        start();
+        Timeout timeout = new Timeout(task, System.nanoTime() - startTime + unit.toNanos(Math.max(delay, 0)));
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    private void start() {
+        if (started.compareAndSet(false, true)) {
+            Thread worker = new Thread(this::run, "smallrye-rest-client-timer");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    private void run() {
+        long tick = (System.nanoTime() - startTime) / tickNanos;
+        while (true) {
+            long deadline = tickNanos * (tick + 1);
+            long sleepNanos;
+            while ((sleepNanos = deadline - (System.nanoTime() - startTime)) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException ignored) {
+                    // the timer is shared, it keeps running
+                }
+            }
+            enqueueScheduled(tick);
+            wheel[(int) (tick & mask)].expire(deadline);
+            tick++;
+        }
+    }
+
+    private void enqueueScheduled(long currentTick) {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            long dueTick = timeout.deadline / tickNanos;
+            // a task due before the current tick runs now rather than a full turn later
+            long tick = Math.max(dueTick, currentTick);
+            timeout.remainingRounds = (tick - currentTick) / wheel.length;
+            wheel[(int) (tick & mask)].add(timeout);
+        }
+    }
+
+    /**
+     * A scheduled task
+     */
+    public static final class Timeout {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+
+        private final long deadline;
+
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        private long remainingRounds;
+
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the task, unless it has run already
+         *
+         * @return true if the task won't run
+         */
+        public boolean cancel() {
+            return state.compareAndSet(PENDING, CANCELLED) || state.get() == CANCELLED;
+        }
+
+        /**
+         * @return whether the task was cancelled
+         */
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        /**
+         * @return whether the task has run, or is running
+         */
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        private void expire() {
+            if (state.compareAndSet(PENDING, EXPIRED)) {
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    LOGGER.warn("A timer task failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tasks of one tick of the wheel, only accessed by the thread of the timer
+     */
+    private static final class Bucket {
+
+        private Timeout head;
+
+        void add(Timeout timeout) {
+            timeout.next = head;
+            head = timeout;
+        }
+
+        void expire(long deadline) {
+            Timeout previous = null;
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                boolean remove;
+                if (timeout.isCancelled()) {
+                    remove = true;
+                } else if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+                    timeout.expire();
+                    remove = true;
+                } else {
+                    timeout.remainingRounds--;
+                    remove = false;
+                }
+                if (remove) {
+                    if (previous == null) {
+                        head = next;
+                    } else {
+                        previous.next = next;
+                    }
+                    timeout.next = null;
+                } else {
+                    previous = timeout;
+                }
+                timeout = next;
+            }
+        }
+    }
+}
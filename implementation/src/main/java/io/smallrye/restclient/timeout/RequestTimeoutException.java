@@ -0,0 +1,40 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.timeout;
+
+import javax.ws.rs.ProcessingException;
+
+/**
+ * Fails an invocation that didn't complete within the request timeout of its client method.
+ *
+ * The exchange of the invocation is aborted along with it.
+ */
+public class RequestTimeoutException extends ProcessingException {
+
+    private final long timeoutMillis;
+
+    public RequestTimeoutException(long timeoutMillis) {
+        super("The request did not complete within " + timeoutMillis + " ms");
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @return the request timeout, in milliseconds
+     */
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+}
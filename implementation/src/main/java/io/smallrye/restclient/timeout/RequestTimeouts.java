@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.timeout;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * The request timeouts of the methods of a client, a client property.
+ *
+ * A request timeout bounds a whole invocation, from the moment it's submitted to the moment its result is available,
+ * unlike the connect and read timeouts that bound single socket operations.
+ */
+public class RequestTimeouts {
+
+    /**
+     * Name of the client property holding the request timeouts
+     */
+    public static final String PROPERTY = RequestTimeouts.class.getName();
+
+    /**
+     * Timeout of methods without a request timeout
+     */
+    public static final long NONE = -1;
+
+    private final Map<Method, Long> timeouts;
+
+    private final long defaultTimeout;
+
+    /**
+     * @param timeouts request timeouts of client methods in milliseconds, negative for none
+     * @param defaultTimeout request timeout of the other methods in milliseconds, negative for none
+     */
+    public RequestTimeouts(Map<Method, Long> timeouts, long defaultTimeout) {
+        this.timeouts = timeouts;
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    /**
+     * @param method a client method, may be null
+     * @return the request timeout of the method in milliseconds, negative for none
+     */
+    public long get(Method method) {
+        return timeouts.getOrDefault(method, defaultTimeout);
+    }
+}
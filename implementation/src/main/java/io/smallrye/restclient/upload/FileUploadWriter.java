@@ -0,0 +1,115 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.upload;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sends a {@link Path}, a {@link FileChannel} or a {@link ByteBuffer} (e.g. a {@link java.nio.MappedByteBuffer})
+ * entity as the request body.
+ *
+ * Files are moved to the request with {@link FileChannel#transferTo}, heap buffers are written straight from their
+ * backing array. A {@link FileChannel} is sent from its current position to its end, a {@link ByteBuffer} from its
+ * position to its limit; neither is moved nor closed, so the same entity can be sent again.
+ * The length of the body is known up front, see {@link #size(Object)}.
+ */
+public class FileUploadWriter implements MessageBodyWriter<Object> {
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return isUploadable(type);
+    }
+
+    @Override
+    public long getSize(Object entity, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        try {
+            return size(entity);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void writeTo(Object entity, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        if (entity instanceof ByteBuffer) {
+            write((ByteBuffer) entity, entityStream);
+        } else if (entity instanceof FileChannel) {
+            FileChannel file = (FileChannel) entity;
+            transfer(file, file.position(), entityStream);
+        } else {
+            try (FileChannel file = FileChannel.open((Path) entity, StandardOpenOption.READ)) {
+                transfer(file, 0, entityStream);
+            }
+        }
+    }
+
+    public static boolean isUploadable(Class<?> type) {
+        return Path.class.isAssignableFrom(type) || FileChannel.class.isAssignableFrom(type)
+                || ByteBuffer.class.isAssignableFrom(type);
+    }
+
+    /**
+     * @return the number of bytes {@link #writeTo} sends for the given entity
+     */
+    public static long size(Object entity) throws IOException {
+        if (entity instanceof ByteBuffer) {
+            return ((ByteBuffer) entity).remaining();
+        } else if (entity instanceof FileChannel) {
+            FileChannel file = (FileChannel) entity;
+            return Math.max(0, file.size() - file.position());
+        } else {
+            return Files.size((Path) entity);
+        }
+    }
+
+    private static void write(ByteBuffer buffer, OutputStream out) throws IOException {
+        if (buffer.hasArray()) {
+            out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            return;
+        }
+        ByteBuffer source = buffer.duplicate();
+        WritableByteChannel target = Channels.newChannel(out);
+        while (source.hasRemaining()) {
+            target.write(source);
+        }
+    }
+
+    private static void transfer(FileChannel file, long position, OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        long end = file.size();
+        while (position < end) {
+            long transferred = file.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                break;
+            }
+            position += transferred;
+        }
+    }
+}
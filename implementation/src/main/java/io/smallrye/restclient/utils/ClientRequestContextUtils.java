@@ -34,11 +34,13 @@ public class ClientRequestContextUtils {
     /**
      * Get {@link Method} for the client call from {@link ClientRequestContext}
      * @param requestContext the context
-     * @return the method
+     * @return the method, or null if the request was not sent through a rest client proxy
      */
     public static Method getMethod(ClientRequestContext requestContext) {
         ClientInvocation invocation = shellClientInvocation(requestContext);
-        return invocation.getClientInvoker().getMethod();
+        return invocation.getClientInvoker() != null
+                ? invocation.getClientInvoker().getMethod()
+                : null;
     }
 
     private static ClientInvocation shellClientInvocation(ClientRequestContext requestContext) {
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient;
+
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.ClientResponseContext;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EntityBufferTest {
+
+    @Test
+    public void testInMemory() throws IOException {
+        EntityBuffer buffer = EntityBuffer.read(stream("line 1\r\nline 2\n"), 1024, 1024);
+
+        assertTrue(buffer.isInMemory());
+        assertFalse(buffer.isTruncated());
+        assertEquals("line 1\r\nline 2\n", PartialResponse.readStringEntity(buffer.open()));
+        assertEquals("line 1\r\nline 2\n", PartialResponse.readStringEntity(buffer.open()));
+    }
+
+    @Test
+    public void testSpill() throws IOException {
+        byte[] entity = bytes(3 * EntityBuffer.CHUNK_SIZE + 17);
+        EntityBuffer buffer = EntityBuffer.read(new ByteArrayInputStream(entity), Long.MAX_VALUE, EntityBuffer.CHUNK_SIZE);
+
+        assertFalse(buffer.isInMemory());
+        assertEquals(entity.length, buffer.length());
+        assertArrayEquals(entity, readAll(buffer.open()));
+        assertArrayEquals(entity, readAll(buffer.open()));
+    }
+
+    @Test
+    public void testCloseReleasesTheSpilledFile() throws IOException {
+        byte[] entity = bytes(2 * EntityBuffer.CHUNK_SIZE + 1);
+        EntityBuffer buffer = EntityBuffer.read(new ByteArrayInputStream(entity), Long.MAX_VALUE, EntityBuffer.CHUNK_SIZE);
+        InputStream open = buffer.open();
+        buffer.close();
+
+        assertFails(open);
+        assertFails(buffer.open());
+    }
+
+    @Test
+    public void testBufferedEntityOfAClosedResponseIsReadOnce() throws IOException {
+        String entity = String.join("", Collections.nCopies(2 * EntityBuffer.CHUNK_SIZE + 1, "e"));
+        ClientResponseContext responseContext = (ClientResponseContext) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{ClientResponseContext.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getEntityStream")) {
+                        return stream(entity);
+                    }
+                    return method.getName().equals("getStatus") ? 500 : null;
+                });
+        PartialResponse response = new PartialResponse(responseContext, Long.MAX_VALUE, EntityBuffer.CHUNK_SIZE);
+        assertTrue(response.bufferEntity());
+        response.close();
+
+        assertEquals(entity, response.readEntity(String.class));
+        // from the string kept, the buffer is released
+        assertTrue(response.bufferEntity());
+        assertEquals(entity, response.readEntity(String.class));
+    }
+
+    @Test
+    public void testSpilledErrorEntityIsReadThroughTheException() throws IOException {
+        String entity = String.join("", Collections.nCopies(200_000, "e"));
+        try (TestServer server = TestServer.start(exchange -> {
+            byte[] bytes = entity.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(500, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        })) {
+            Api api = RestClientBuilder.newBuilder().baseUri(server.getUri()).build(Api.class);
+            try {
+                api.get();
+                fail("The error response is mapped to an exception");
+            } catch (WebApplicationException e) {
+                assertEquals(entity, e.getResponse().readEntity(String.class));
+            } finally {
+                ((RestClientProxy) api).close();
+            }
+        }
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        byte[] entity = bytes(2 * EntityBuffer.CHUNK_SIZE);
+        EntityBuffer buffer = EntityBuffer.read(new ByteArrayInputStream(entity), 100, 1024);
+
+        assertTrue(buffer.isTruncated());
+        assertArrayEquals(Arrays.copyOf(entity, 100), readAll(buffer.open()));
+
+        buffer = EntityBuffer.read(new ByteArrayInputStream(entity), entity.length, 1024);
+        assertFalse(buffer.isTruncated());
+        assertArrayEquals(entity, readAll(buffer.open()));
+    }
+
+    private static void assertFails(InputStream in) {
+        try {
+            in.read();
+            fail("The spilled file is closed");
+        } catch (IOException expected) {
+        }
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31);
+        }
+        return bytes;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        byte[] result = new byte[0];
+        byte[] chunk = new byte[1000];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            int length = result.length;
+            result = Arrays.copyOf(result, length + read);
+            System.arraycopy(chunk, 0, result, length, read);
+        }
+        return result;
+    }
+
+    @Path("/")
+    public interface Api {
+        @GET
+        String get();
+    }
+}
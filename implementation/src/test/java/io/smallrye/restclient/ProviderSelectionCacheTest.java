@@ -0,0 +1,195 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient;
+
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class ProviderSelectionCacheTest {
+
+    @Path("/")
+    public interface Api {
+
+        @GET
+        @Produces(MediaType.TEXT_PLAIN)
+        Payload get();
+
+        @POST
+        @Consumes(MediaType.TEXT_PLAIN)
+        @Produces(MediaType.TEXT_PLAIN)
+        String post(Payload payload);
+    }
+
+    public static class Payload {
+
+        final String value;
+
+        Payload(String value) {
+            this.value = value;
+        }
+    }
+
+    public static class PayloadReader implements MessageBodyReader<Payload> {
+
+        @Override
+        public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+            return type == Payload.class;
+        }
+
+        @Override
+        public Payload readFrom(Class<Payload> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                                MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[256];
+            for (int read; (read = entityStream.read(buffer)) != -1; ) {
+                out.write(buffer, 0, read);
+            }
+            return new Payload(name() + ":" + new String(out.toByteArray(), StandardCharsets.UTF_8));
+        }
+
+        String name() {
+            return "first";
+        }
+    }
+
+    public static class OtherPayloadReader extends PayloadReader {
+
+        @Override
+        String name() {
+            return "second";
+        }
+    }
+
+    public static class PayloadWriter implements MessageBodyWriter<Payload> {
+
+        @Override
+        public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+            return type == Payload.class;
+        }
+
+        @Override
+        public void writeTo(Payload payload, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                            MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+            entityStream.write(payload.value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private TestServer server;
+
+    @Before
+    public void start() throws IOException {
+        // echoes the body of a POST
+        server = TestServer.start(exchange -> {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[256];
+            for (int read; (read = exchange.getRequestBody().read(buffer)) != -1; ) {
+                body.write(buffer, 0, read);
+            }
+            exchange.getResponseHeaders().add(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN);
+            exchange.getResponseHeaders().add(HttpHeaders.CACHE_CONTROL, "max-age=60");
+            TestServer.respond(exchange, body.size() > 0 ? new String(body.toByteArray(), StandardCharsets.UTF_8) : "body");
+        });
+    }
+
+    @After
+    public void stop() {
+        server.close();
+    }
+
+    @Test
+    public void testWriterAndReaderSelectionsAreCached() {
+        Api api = RestClientBuilder.newBuilder().baseUri(server.getUri()).register(new PayloadWriter()).build(Api.class);
+        try {
+            assertEquals("one", api.post(new Payload("one")));
+            // the writer of the payload and the reader of the string
+            assertEquals(2, cache(api).size());
+            assertEquals("two", api.post(new Payload("two")));
+            assertEquals(2, cache(api).size());
+        } finally {
+            ((RestClientProxy) api).close();
+        }
+    }
+
+    @Test
+    public void testClientsOfABuilderSelectTheirOwnProviders() {
+        RestClientBuilder builder = RestClientBuilder.newBuilder().baseUri(server.getUri()).register(new PayloadReader(), 5000);
+        Api first = builder.build(Api.class);
+        try {
+            assertEquals("first:body", first.get().value);
+            builder.register(new OtherPayloadReader(), 10);
+            Api second = builder.build(Api.class);
+            try {
+                assertEquals("second:body", second.get().value);
+                // the providers registered after a client was built don't reach it
+                assertEquals("first:body", first.get().value);
+            } finally {
+                ((RestClientProxy) second).close();
+            }
+        } finally {
+            ((RestClientProxy) first).close();
+        }
+    }
+
+    @Test
+    public void testClientsOfABuilderHaveTheirOwnResponseCache() {
+        RestClientBuilder builder = RestClientBuilder.newBuilder().baseUri(server.getUri())
+                .property(RestClientOptions.PROPERTY_PREFIX + RestClientOptions.RESPONSE_CACHE, true)
+                .register(new PayloadReader());
+        Api first = builder.build(Api.class);
+        Api second = builder.build(Api.class);
+        try {
+            first.get();
+            first.get();
+            assertEquals(1, server.getRequests());
+            second.get();
+            second.get();
+            assertEquals(2, server.getRequests());
+        } finally {
+            ((RestClientProxy) first).close();
+            ((RestClientProxy) second).close();
+        }
+    }
+
+    private static ProviderSelectionCache cache(Api api) {
+        return ((RestClientProxy) api).getClient().getConfiguration().getInstances().stream()
+                .filter(ProviderSelectionCache.class::isInstance)
+                .map(ProviderSelectionCache.class::cast)
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.async;
+
+import org.eclipse.microprofile.rest.client.ext.AsyncInvocationInterceptor;
+import org.eclipse.microprofile.rest.client.ext.AsyncInvocationInterceptorFactory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class AsyncContextTest {
+
+    @Test
+    public void testSnapshotIsImmutable() {
+        List<String> events = new ArrayList<>();
+        AsyncContext context = AsyncContext.prepare(Collections.singletonList(() -> new Recording("a", events)));
+        assertEquals(Arrays.asList("a.prepare"), events);
+
+        AsyncContext extended = context.with(new Recording("b", events));
+        context.wrap(() -> events.add("task")).run();
+        assertEquals(Arrays.asList("a.prepare", "a.apply", "task", "a.remove"), events);
+
+        events.clear();
+        extended.wrap(() -> events.add("task")).run();
+        assertEquals(Arrays.asList("a.apply", "b.apply", "task", "a.remove", "b.remove"), events);
+    }
+
+    @Test
+    public void testEmpty() {
+        Runnable task = () -> {
+        };
+        AsyncContext context = AsyncContext.prepare(Collections.<AsyncInvocationInterceptorFactory>emptyList());
+        assertSame(AsyncContext.EMPTY, context);
+        assertSame(task, context.wrap(task));
+    }
+
+    @Test
+    public void testContextIsClaimedOnce() {
+        AsyncContext outer = AsyncContext.EMPTY.with(new Recording("a", new ArrayList<>()));
+        AsyncContext inner = AsyncContext.EMPTY.with(new Recording("b", new ArrayList<>()));
+        assertNull(AsyncContext.bind(outer));
+        AsyncContext previous = AsyncContext.bind(inner);
+        assertSame(inner, AsyncContext.claim());
+        assertSame(AsyncContext.EMPTY, AsyncContext.claim());
+        AsyncContext.bind(previous);
+        assertSame(outer, AsyncContext.claim());
+        AsyncContext.bind(null);
+        assertSame(AsyncContext.EMPTY, AsyncContext.claim());
+    }
+
+    private static class Recording implements AsyncInvocationInterceptor {
+
+        private final String name;
+
+        private final List<String> events;
+
+        Recording(String name, List<String> events) {
+            this.name = name;
+            this.events = events;
+        }
+
+        @Override
+        public void prepareContext() {
+            events.add(name + ".prepare");
+        }
+
+        @Override
+        public void applyContext() {
+            events.add(name + ".apply");
+        }
+
+        @Override
+        public void removeContext() {
+            events.add(name + ".remove");
+        }
+    }
+}
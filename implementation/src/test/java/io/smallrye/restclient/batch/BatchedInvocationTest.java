@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.batch;
+
+import io.smallrye.restclient.RestClientProxy;
+import io.smallrye.restclient.TestServer;
+import io.smallrye.restclient.header.AsyncClientHeadersFactory;
+import io.smallrye.restclient.header.IncomingHeaders;
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import org.junit.Test;
+
+import javax.json.JsonArray;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+
+public class BatchedInvocationTest {
+
+    @Test
+    public void testBulkInvocationPropagatesTheIncomingHeaders() throws Exception {
+        try (TestServer server = TestServer.start(exchange -> {
+            String requestId = String.valueOf(exchange.getRequestHeaders().getFirst("X-Request-Id"));
+            byte[] body = ("[\"" + requestId + "\"]").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", MediaType.APPLICATION_JSON);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        })) {
+            AsyncClientHeadersFactory propagation = (incoming, outgoing) -> {
+                MultivaluedMap<String, String> result = new MultivaluedHashMap<>(outgoing);
+                result.putSingle("X-Request-Id", incoming.getFirst("X-Request-Id"));
+                return CompletableFuture.completedFuture(result);
+            };
+            Api api = RestClientBuilder.newBuilder()
+                    .baseUri(server.getUri())
+                    .register(propagation)
+                    .build(Api.class);
+            try {
+                MultivaluedMap<String, String> incoming = new MultivaluedHashMap<>();
+                incoming.putSingle("X-Request-Id", "42");
+                // as an IncomingHeadersProvider would have them for the request being served
+                IncomingHeaders.bind(incoming);
+                try {
+                    assertEquals("42", ((JsonString) api.get("a")).getString());
+                } finally {
+                    IncomingHeaders.unbind();
+                }
+            } finally {
+                ((RestClientProxy) api).close();
+            }
+        }
+    }
+
+    @Path("/items")
+    public interface Api {
+
+        @GET
+        @Batched("getAll")
+        JsonValue get(@QueryParam("id") String id);
+
+        @GET
+        @Produces(MediaType.APPLICATION_JSON)
+        JsonArray getAll(@QueryParam("id") List<String> ids);
+    }
+}
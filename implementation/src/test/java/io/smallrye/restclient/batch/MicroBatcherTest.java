@@ -0,0 +1,140 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.batch;
+
+import io.smallrye.restclient.async.AsyncContext;
+import org.eclipse.microprofile.rest.client.ext.AsyncInvocationInterceptor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MicroBatcherTest {
+
+    @Test
+    public void testFullBatchIsSentRightAway() throws Exception {
+        List<List<Object>> sent = new ArrayList<>();
+        MicroBatcher batcher = new MicroBatcher(null, 60000, 2, Runnable::run);
+        MicroBatcher.Bulk bulk = keys -> {
+            sent.add(keys);
+            return keys.stream().map(key -> "item-" + key).collect(Collectors.toList());
+        };
+
+        CompletableFuture<Object> first = batcher.submit("a", bulk);
+        CompletableFuture<Object> same = batcher.submit("a", bulk);
+        assertFalse(first.isDone());
+        CompletableFuture<Object> second = batcher.submit("b", bulk);
+
+        assertEquals(Collections.singletonList(Arrays.asList("a", "b")), sent);
+        assertEquals("item-a", first.get());
+        assertEquals("item-a", same.get());
+        assertEquals("item-b", second.get());
+    }
+
+    @Test
+    public void testBulkIsSentWithTheContextOfTheFirstInvocation() throws Exception {
+        ThreadLocal<String> context = new ThreadLocal<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            MicroBatcher batcher = new MicroBatcher(null, 60000, 2, executor);
+            MicroBatcher.Bulk bulk = keys -> Arrays.asList(context.get(), context.get());
+
+            CompletableFuture<Object> first = batcher.submit("a", bulk, () -> context(context, "first"));
+            CompletableFuture<Object> second = batcher.submit("b", bulk, () -> context(context, "second"));
+
+            assertEquals("first", first.get(5, TimeUnit.SECONDS));
+            assertEquals("first", second.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBatchIsSentAfterDelay() throws Exception {
+        MicroBatcher batcher = new MicroBatcher(null, 20, 100, Runnable::run);
+        CompletableFuture<Object> item = batcher.submit("a",
+                keys -> CompletableFuture.completedFuture(Collections.singletonMap("a", "item-a")));
+        assertEquals("item-a", item.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testMissingItemOfMapIsNull() throws Exception {
+        MicroBatcher batcher = new MicroBatcher(null, 60000, 2, Runnable::run);
+        MicroBatcher.Bulk bulk = keys -> Collections.singletonMap("a", "item-a");
+        CompletableFuture<Object> a = batcher.submit("a", bulk);
+        CompletableFuture<Object> b = batcher.submit("b", bulk);
+        assertEquals("item-a", a.get());
+        assertNull(b.get());
+    }
+
+    @Test
+    public void testFailures() throws Exception {
+        MicroBatcher batcher = new MicroBatcher(null, 60000, 2, Runnable::run);
+        MicroBatcher.Bulk shortList = keys -> Collections.singletonList("item");
+        batcher.submit("a", shortList);
+        assertFailed(batcher.submit("b", shortList), IllegalStateException.class);
+
+        IllegalArgumentException failure = new IllegalArgumentException();
+        MicroBatcher.Bulk failing = keys -> {
+            throw failure;
+        };
+        CompletableFuture<Object> a = batcher.submit("a", failing);
+        batcher.submit("b", failing);
+        assertFailed(a, IllegalArgumentException.class);
+    }
+
+    private static void assertFailed(CompletableFuture<Object> item, Class<? extends Throwable> type)
+            throws InterruptedException {
+        try {
+            item.get();
+            fail("Expected a failure");
+        } catch (ExecutionException e) {
+            assertTrue(type.isInstance(e.getCause()));
+        }
+    }
+
+    private static AsyncContext context(ThreadLocal<String> context, String value) {
+        return AsyncContext.EMPTY.with(new AsyncInvocationInterceptor() {
+            @Override
+            public void prepareContext() {
+            }
+
+            @Override
+            public void applyContext() {
+                context.set(value);
+            }
+
+            @Override
+            public void removeContext() {
+                context.remove();
+            }
+        });
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.cache;
+
+import io.smallrye.restclient.RestClientOptions;
+import io.smallrye.restclient.RestClientProxy;
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DiskResponseCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSurvivesRestart() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (DiskResponseCache cache = new DiskResponseCache(directory, 1024 * 1024, 1024, 16)) {
+            assertTrue(cache.put("http://localhost/a", response("hello")));
+        }
+        try (DiskResponseCache cache = new DiskResponseCache(directory, 1024 * 1024, 1024, 16)) {
+            CachedResponse cached = cache.get("http://localhost/a");
+            assertNotNull(cached);
+            assertFalse(cached.body.isInMemory());
+            assertEquals("hello", read(cached.body));
+            assertEquals("max-age=60", cached.headers.getFirst(HttpHeaders.CACHE_CONTROL));
+            assertNull(cache.get("http://localhost/b"));
+        }
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        try (DiskResponseCache cache = new DiskResponseCache(folder.getRoot().toPath(), 1024 * 1024, 1024, 2)) {
+            cache.put("a", response("a"));
+            cache.put("b", response("b"));
+            cache.put("c", response("c"));
+            assertEquals(2, cache.size());
+            assertNull(cache.get("a"));
+            assertEquals("c", read(cache.get("c").body));
+        }
+    }
+
+    @Test
+    public void testBodyWriter() throws IOException {
+        try (DiskResponseCache cache = new DiskResponseCache(folder.getRoot().toPath(), 1024 * 1024, 4, 16)) {
+            byte[] bytes = "abcdef".getBytes(StandardCharsets.UTF_8);
+
+            DiskResponseCache.BodyWriter writer = cache.newBody();
+            assertTrue(writer.write(bytes, 0, 4));
+            CachedBody body = writer.finish();
+            assertEquals("abcd", read(body));
+            assertTrue(cache.put("a", response("").withBody(body)));
+            assertEquals("abcd", read(cache.get("a").body));
+
+            writer = cache.newBody();
+            assertFalse(writer.write(bytes, 0, 6));
+            assertEquals("abcdef", read(writer::abandon));
+        }
+    }
+
+    @Test
+    public void testCacheIsClosedOnceReleasedByAllItsClients() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        DiskResponseCache cache = DiskResponseCache.open(directory, 1024 * 1024, 1024);
+        assertSame(cache, DiskResponseCache.open(directory, 1024 * 1024, 1024));
+
+        cache.release();
+        assertTrue(cache.put("a", response("a")));
+        assertSame(cache, DiskResponseCache.open(directory, 1024 * 1024, 1024));
+        cache.release();
+
+        cache.release();
+        DiskResponseCache reopened = DiskResponseCache.open(directory, 1024 * 1024, 1024);
+        try {
+            assertNotSame(cache, reopened);
+            assertEquals("a", read(reopened.get("a").body));
+        } finally {
+            reopened.release();
+        }
+    }
+
+    @Test
+    public void testClosingTheClientsReleasesTheCache() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        List<Api> clients = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            clients.add(RestClientBuilder.newBuilder()
+                    .baseUri(URI.create("http://localhost:8080"))
+                    .property(RestClientOptions.PROPERTY_PREFIX + RestClientOptions.RESPONSE_CACHE_DIRECTORY, directory.toString())
+                    .build(Api.class));
+        }
+        for (Api client : clients) {
+            ((RestClientProxy) client).close();
+        }
+        // fails while the directory is locked by a cache still open
+        new DiskResponseCache(directory, 1024 * 1024, 1024, 16).close();
+    }
+
+    private static CachedResponse response(String body) {
+        MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+        headers.putSingle(HttpHeaders.CACHE_CONTROL, "max-age=60");
+        return CachedResponse.create(null, 200, headers, 0)
+                .withBody(new CachedBody.Bytes(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String read(CachedBody body) throws IOException {
+        return read(body::open);
+    }
+
+    private static String read(StreamSupplier supplier) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = supplier.open()) {
+            byte[] buffer = new byte[64];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @javax.ws.rs.Path("/")
+    public interface Api {
+        @GET
+        String get();
+    }
+
+    private interface StreamSupplier {
+        InputStream open() throws IOException;
+    }
+}
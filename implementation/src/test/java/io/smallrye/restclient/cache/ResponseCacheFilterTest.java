@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.cache;
+
+import io.smallrye.restclient.RestClientOptions;
+import io.smallrye.restclient.RestClientProxy;
+import io.smallrye.restclient.TestServer;
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.HttpHeaders;
+import static org.junit.Assert.assertEquals;
+
+public class ResponseCacheFilterTest {
+
+    @Path("/")
+    public interface Api {
+
+        @GET
+        String get(@HeaderParam(HttpHeaders.ACCEPT_LANGUAGE) String language);
+    }
+
+    @Test
+    public void testBodyWithoutContentType() throws Exception {
+        try (TestServer server = TestServer.start(exchange -> {
+            exchange.getResponseHeaders().add(HttpHeaders.CACHE_CONTROL, "max-age=60");
+            TestServer.respond(exchange, "cached body");
+        })) {
+            Api api = client(server);
+            try {
+                assertEquals("cached body", api.get(null));
+                assertEquals("cached body", api.get(null));
+                assertEquals(1, server.getRequests());
+            } finally {
+                ((RestClientProxy) api).close();
+            }
+        }
+    }
+
+    @Test
+    public void testVariantsAreCachedSideBySide() throws Exception {
+        try (TestServer server = TestServer.start(exchange -> {
+            exchange.getResponseHeaders().add(HttpHeaders.CACHE_CONTROL, "max-age=60");
+            exchange.getResponseHeaders().add(HttpHeaders.VARY, "Accept-Language");
+            TestServer.respond(exchange, "body " + exchange.getRequestHeaders().getFirst(HttpHeaders.ACCEPT_LANGUAGE));
+        })) {
+            Api api = client(server);
+            try {
+                for (int i = 0; i < 3; i++) {
+                    assertEquals("body en", api.get("en"));
+                    assertEquals("body fr", api.get("fr"));
+                }
+                assertEquals(2, server.getRequests());
+            } finally {
+                ((RestClientProxy) api).close();
+            }
+        }
+    }
+
+    private static Api client(TestServer server) {
+        return RestClientBuilder.newBuilder()
+                .baseUri(server.getUri())
+                .property(RestClientOptions.PROPERTY_PREFIX + RestClientOptions.RESPONSE_CACHE, true)
+                .build(Api.class);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.cache;
+
+import org.junit.Test;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResponseCacheTest {
+
+    @Test
+    public void testDirectives() {
+        CacheDirectives directives = CacheDirectives.parse(Arrays.asList("max-age=\"60\", no-cache", "stale-while-revalidate=5"));
+        assertEquals(60, directives.maxAge);
+        assertEquals(5, directives.staleWhileRevalidate);
+        assertTrue(directives.noCache);
+        assertFalse(directives.noStore);
+
+        assertEquals(0, CacheDirectives.parse("max-age=invalid").maxAge);
+    }
+
+    @Test
+    public void testFreshness() {
+        MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+        headers.putSingle(HttpHeaders.CACHE_CONTROL, "max-age=10, stale-while-revalidate=5");
+        headers.putSingle("Age", "4");
+        CachedResponse response = CachedResponse.create(null, 200, headers, 0);
+
+        assertNotNull(response);
+        assertTrue(response.isFresh(5_999));
+        assertFalse(response.isFresh(6_000));
+        assertTrue(response.isUsableWhileRevalidating(10_999));
+        assertFalse(response.isUsableWhileRevalidating(11_000));
+        assertFalse(response.headers.containsKey("Age"));
+    }
+
+    @Test
+    public void testNotStorable() {
+        MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+        assertNull(CachedResponse.create(null, 200, headers, 0));
+
+        headers.putSingle(HttpHeaders.ETAG, "\"v1\"");
+        assertNotNull(CachedResponse.create(null, 200, headers, 0));
+
+        headers.putSingle(HttpHeaders.VARY, "*");
+        assertNull(CachedResponse.create(null, 200, headers, 0));
+
+        headers.remove(HttpHeaders.VARY);
+        headers.putSingle(HttpHeaders.CACHE_CONTROL, "no-store");
+        assertNull(CachedResponse.create(null, 200, headers, 0));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        CachedResponse response = response(100);
+        ResponseCache cache = new ResponseCache(response.weight() * 2, 1000);
+        cache.put("a", response);
+        cache.put("b", response(100));
+        cache.get("a");
+        cache.put("c", response(100));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(response.weight() * 2, cache.getSizeInBytes());
+    }
+
+    private static CachedResponse response(int bodySize) {
+        MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+        headers.putSingle(HttpHeaders.CACHE_CONTROL, "max-age=60");
+        return CachedResponse.create(null, 200, headers, 0).withBody(new CachedBody.Bytes(new byte[bodySize]));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.compression;
+
+import org.junit.Test;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CompressionTest {
+
+    private static final String BODY = "{\"items\":[\"a\",\"a\",\"a\",\"a\",\"a\",\"a\",\"a\",\"a\"]}";
+
+    @Test
+    public void testDecoding() throws IOException {
+        assertEquals(BODY, decode(compress(GZIPOutputStream::new), true));
+        assertEquals(BODY, decode(compress(DeflaterOutputStream::new), false));
+        assertEquals(BODY, decode(compress(out -> new DeflaterOutputStream(out,
+                new Deflater(Deflater.DEFAULT_COMPRESSION, true))), false));
+        assertEquals("", decode(new byte[0], true));
+        assertEquals("", decode(new byte[0], false));
+    }
+
+    @Test
+    public void testRequestBelowThreshold() throws IOException {
+        MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RequestCompressionInterceptor.CompressingOutputStream compressing =
+                new RequestCompressionInterceptor.CompressingOutputStream(out, BODY.length(), headers);
+        compressing.write(BODY.getBytes(StandardCharsets.UTF_8));
+        compressing.finish();
+
+        assertNull(headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(BODY, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRequestAboveThreshold() throws IOException {
+        MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RequestCompressionInterceptor.CompressingOutputStream compressing =
+                new RequestCompressionInterceptor.CompressingOutputStream(out, 10, headers);
+        byte[] bytes = BODY.getBytes(StandardCharsets.UTF_8);
+        compressing.write(bytes, 0, 5);
+        compressing.write(bytes, 5, bytes.length - 5);
+        compressing.finish();
+
+        assertEquals("gzip", headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(BODY, read(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))));
+    }
+
+    private static byte[] compress(Encoder encoder) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream stream = encoder.wrap(out)) {
+            stream.write(BODY.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    private static String decode(byte[] encoded, boolean gzip) throws IOException {
+        return read(new DecodingInputStream(new ByteArrayInputStream(encoded), gzip));
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[7];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private interface Encoder {
+        OutputStream wrap(OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.concurrency;
+
+import org.junit.Test;
+
+import javax.ws.rs.ProcessingException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void testQueuedInvocationGetsReleasedPermit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1);
+        assertTrue(limiter.acquire().isDone());
+        CompletableFuture<Void> queued = limiter.acquire();
+        assertFalse(queued.isDone());
+        assertEquals(1, limiter.getQueued());
+
+        limiter.release();
+        assertTrue(queued.isDone());
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(0, limiter.getQueued());
+    }
+
+    @Test
+    public void testRejectedWhenQueueIsFull() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 0);
+        limiter.acquire();
+        try {
+            limiter.acquire().get();
+            fail("The invocation should be rejected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ConcurrencyLimitException);
+        }
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test
+    public void testCancelledWaitLeavesQueue() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1);
+        limiter.acquire();
+        CompletableFuture<Void> queued = limiter.acquire();
+        queued.cancel(false);
+        assertEquals(0, limiter.getQueued());
+
+        limiter.release();
+        assertEquals(0, limiter.getInFlight());
+        assertTrue(limiter.acquire().isDone());
+    }
+
+    @Test
+    public void testSubmittedInvocationReleasesItsPermit() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1);
+        CompletableFuture<String> sent = new CompletableFuture<>();
+        CompletableFuture<String> first = limiter.submit(() -> sent);
+        CompletableFuture<String> second = limiter.submit(() -> CompletableFuture.completedFuture("second"));
+        assertEquals(1, limiter.getQueued());
+
+        sent.complete("first");
+        assertEquals("first", first.get());
+        assertEquals("second", second.get());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testInvocationCancelledRightAfterTheGrantReleasesThePermit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1);
+        limiter.acquire();
+        CompletableFuture<Void> permit = limiter.acquire();
+        AtomicInteger sent = new AtomicInteger();
+        CompletableFuture<String> result = limiter.submit(permit, () -> {
+            sent.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        // runs before the dependents registered earlier, once the permit is granted
+        permit.thenRun(() -> result.cancel(false));
+
+        limiter.release();
+        assertTrue(result.isCancelled());
+        assertEquals(0, sent.get());
+        assertEquals(0, limiter.getInFlight());
+        assertTrue(limiter.acquire().isDone());
+    }
+
+    @Test
+    public void testPermitGrantedAsTheWaitIsInterruptedIsReleased() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1) {
+            @Override
+            public CompletableFuture<Void> acquire() {
+                CompletableFuture<Void> permit = super.acquire();
+                if (permit.isDone()) {
+                    return permit;
+                }
+                return new CompletableFuture<Void>() {
+                    @Override
+                    public Void get() throws InterruptedException {
+                        // the permit is handed over just as the waiting thread is interrupted
+                        release();
+                        throw new InterruptedException();
+                    }
+
+                    @Override
+                    public boolean cancel(boolean mayInterruptIfRunning) {
+                        return permit.cancel(mayInterruptIfRunning);
+                    }
+
+                    @Override
+                    public boolean isCompletedExceptionally() {
+                        return permit.isCompletedExceptionally();
+                    }
+                };
+            }
+        };
+        limiter.acquire();
+        try {
+            limiter.acquireBlocking();
+            fail("The interrupted wait should fail");
+        } catch (ProcessingException expected) {
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(0, limiter.getQueued());
+    }
+}
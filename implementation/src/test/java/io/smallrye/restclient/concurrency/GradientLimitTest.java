@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.concurrency;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GradientLimitTest {
+
+    private static final long RTT = 10_000_000;
+
+    @Test
+    public void testGrowsWhileLatencyIsSteady() {
+        GradientLimit limit = new GradientLimit(10, 1, 100);
+        for (int i = 0; i < 20; i++) {
+            limit.update(RTT, limit.getLimit(), false);
+        }
+        assertTrue(limit.getLimit() > 10);
+    }
+
+    @Test
+    public void testShrinksWhenLatencyGoesUp() {
+        GradientLimit limit = new GradientLimit(50, 1, 100);
+        for (int i = 0; i < 10; i++) {
+            limit.update(RTT, limit.getLimit(), false);
+        }
+        int steady = limit.getLimit();
+        for (int i = 0; i < 10; i++) {
+            limit.update(4 * RTT, limit.getLimit(), false);
+        }
+        assertTrue(limit.getLimit() < steady);
+    }
+
+    @Test
+    public void testBacksOffOnDrop() {
+        GradientLimit limit = new GradientLimit(50, 1, 100);
+        assertEquals(45, limit.update(RTT, 50, true));
+    }
+
+    @Test
+    public void testIgnoresSamplesWhileUnderused() {
+        GradientLimit limit = new GradientLimit(50, 1, 100);
+        for (int i = 0; i < 10; i++) {
+            limit.update(RTT, 5, false);
+        }
+        assertEquals(50, limit.getLimit());
+    }
+}
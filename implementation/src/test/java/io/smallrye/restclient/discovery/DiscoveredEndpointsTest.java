@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.discovery;
+
+import io.smallrye.restclient.loadbalance.Endpoint;
+import io.smallrye.restclient.loadbalance.LoadBalancer;
+import org.eclipse.microprofile.config.Config;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class DiscoveredEndpointsTest {
+
+    private static final URI A = URI.create("http://a:8080");
+    private static final URI B = URI.create("http://b:8080");
+    private static final URI C = URI.create("http://c:8080");
+
+    @Test
+    public void testRefreshKeepsTheEndpointsOfKnownUris() {
+        StubDiscovery discovery = new StubDiscovery(Arrays.asList(A, B, A));
+        AtomicInteger created = new AtomicInteger();
+        DiscoveredEndpoints endpoints = new DiscoveredEndpoints(discovery, "service", null, LoadBalancer.ROUND_ROBIN,
+                uri -> created.incrementAndGet(), DiscoveredEndpoints.resolve(discovery, "service", null));
+        assertEquals(Arrays.asList(A, B), uris(endpoints.get()));
+        Endpoint b = endpoints.get().getEndpoints().get(1);
+
+        discovery.uris = Arrays.asList(B, C);
+        endpoints.refresh();
+        assertEquals(Arrays.asList(B, C), uris(endpoints.get()));
+        assertSame(b, endpoints.get().getEndpoints().get(0));
+        assertEquals(3, created.get());
+    }
+
+    @Test
+    public void testUnchangedOrFailedResolutionKeepsTheLoadBalancer() {
+        StubDiscovery discovery = new StubDiscovery(Arrays.asList(A, B));
+        DiscoveredEndpoints endpoints = new DiscoveredEndpoints(discovery, "service", null, LoadBalancer.ROUND_ROBIN,
+                uri -> uri, discovery.uris);
+        LoadBalancer loadBalancer = endpoints.get();
+
+        discovery.uris = Arrays.asList(B, A);
+        endpoints.refresh();
+        discovery.uris = Collections.emptyList();
+        endpoints.refresh();
+        discovery.uris = null;
+        endpoints.refresh();
+        assertSame(loadBalancer, endpoints.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNoInitialInstances() {
+        DiscoveredEndpoints.resolve(new StubDiscovery(Collections.emptyList()), "service", null);
+    }
+
+    private static List<URI> uris(LoadBalancer loadBalancer) {
+        return loadBalancer.getEndpoints().stream().map(Endpoint::getUri).collect(Collectors.toList());
+    }
+
+    private static class StubDiscovery implements ServiceDiscovery {
+
+        volatile List<URI> uris;
+
+        StubDiscovery(List<URI> uris) {
+            this.uris = uris;
+        }
+
+        @Override
+        public String getName() {
+            return "stub";
+        }
+
+        @Override
+        public List<URI> resolve(String service, Config config) throws IOException {
+            if (uris == null) {
+                throw new IOException("Unavailable");
+            }
+            return uris;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.download;
+
+import io.smallrye.restclient.RestClientOptions;
+import io.smallrye.restclient.RestClientProxy;
+import io.smallrye.restclient.TestServer;
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.core.Context;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class DownloadTest {
+
+    private static final byte[] BODY = new byte[200_000];
+
+    static {
+        for (int i = 0; i < BODY.length; i++) {
+            BODY[i] = (byte) i;
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TestServer server;
+
+    @Before
+    public void start() throws IOException {
+        server = TestServer.start(exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+            exchange.sendResponseHeaders(200, BODY.length);
+            exchange.getResponseBody().write(BODY);
+        });
+    }
+
+    @After
+    public void stop() {
+        server.close();
+    }
+
+    @Test
+    public void testDownloadToTarget() throws IOException {
+        Path target = folder.getRoot().toPath().resolve("artifact.bin");
+        Api api = client(false);
+        try {
+            assertEquals(target, api.downloadTo(target));
+        } finally {
+            ((RestClientProxy) api).close();
+        }
+        assertArrayEquals(BODY, Files.readAllBytes(target));
+    }
+
+    @Test
+    public void testDownloadToTemporaryFile() throws IOException {
+        Api api = client(false);
+        Path file;
+        try {
+            file = api.download();
+        } finally {
+            ((RestClientProxy) api).close();
+        }
+        try {
+            assertArrayEquals(BODY, Files.readAllBytes(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testDownloadToChannel() throws IOException {
+        Api api = client(false);
+        try (FileChannel channel = api.channel()) {
+            assertEquals(0, channel.position());
+            assertArrayEquals(BODY, read(channel));
+        } finally {
+            ((RestClientProxy) api).close();
+        }
+    }
+
+    @Test
+    public void testAsyncDownloadToTarget() throws Exception {
+        testAsyncDownloadToTarget(false);
+    }
+
+    @Test
+    public void testNonBlockingDownloadToTarget() throws Exception {
+        testAsyncDownloadToTarget(true);
+    }
+
+    @Test
+    public void testAsyncDownloadToChannel() throws Exception {
+        Api api = client(false);
+        try (FileChannel channel = api.channelAsync().toCompletableFuture().get(10, TimeUnit.SECONDS)) {
+            assertArrayEquals(BODY, read(channel));
+        } finally {
+            ((RestClientProxy) api).close();
+        }
+    }
+
+    private void testAsyncDownloadToTarget(boolean nonBlocking) throws Exception {
+        Path target = folder.getRoot().toPath().resolve("artifact.bin");
+        Path other = folder.getRoot().toPath().resolve("other.bin");
+        Api api = client(nonBlocking);
+        try {
+            CompletionStage<Path> download = api.downloadToAsync(target);
+            // the target is bound to the invocation, not to the thread that sent it
+            CompletionStage<Path> otherDownload = api.downloadToAsync(other);
+            assertEquals(target, download.toCompletableFuture().get(10, TimeUnit.SECONDS));
+            assertEquals(other, otherDownload.toCompletableFuture().get(10, TimeUnit.SECONDS));
+        } finally {
+            ((RestClientProxy) api).close();
+        }
+        assertArrayEquals(BODY, Files.readAllBytes(target));
+        assertArrayEquals(BODY, Files.readAllBytes(other));
+    }
+
+    private Api client(boolean nonBlocking) {
+        return RestClientBuilder.newBuilder()
+                .baseUri(server.getUri())
+                .property(RestClientOptions.PROPERTY_PREFIX + RestClientOptions.ASYNC_ENGINE, nonBlocking)
+                .build(Api.class);
+    }
+
+    private static byte[] read(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+            // reads the whole file
+        }
+        return buffer.array();
+    }
+
+    @javax.ws.rs.Path("/")
+    public interface Api {
+        @GET
+        Path download();
+
+        @GET
+        FileChannel channel();
+
+        @GET
+        Path downloadTo(@Context Path target);
+
+        @GET
+        CompletionStage<Path> downloadToAsync(@Context Path target);
+
+        @GET
+        CompletionStage<FileChannel> channelAsync();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.download;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class FileDownloadReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final FileDownloadReader reader = new FileDownloadReader();
+
+    @Test
+    public void testDownloadToTarget() throws IOException {
+        Path target = folder.getRoot().toPath().resolve("artifact.bin");
+        Files.write(target, new byte[100_000]);
+        byte[] body = new byte[50_000];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) i;
+        }
+
+        DownloadTarget.bind(target);
+        try {
+            assertEquals(target, read(Path.class, body));
+        } finally {
+            DownloadTarget.unbind();
+        }
+        assertArrayEquals(body, Files.readAllBytes(target));
+    }
+
+    @Test
+    public void testTemporaryChannel() throws IOException {
+        try (FileChannel channel = (FileChannel) read(FileChannel.class, "hello".getBytes(StandardCharsets.UTF_8))) {
+            assertEquals(0, channel.position());
+            assertEquals(5, channel.size());
+            ByteBuffer buffer = ByteBuffer.allocate(16);
+            channel.read(buffer);
+            assertEquals("hello", new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testTemporaryPath() throws IOException {
+        Path file = (Path) read(Path.class, "hello".getBytes(StandardCharsets.UTF_8));
+        try {
+            assertEquals("hello", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object read(Class<?> type, byte[] body) throws IOException {
+        return reader.readFrom((Class<Object>) type, type, new Annotation[0], MediaType.APPLICATION_OCTET_STREAM_TYPE,
+                new MultivaluedHashMap<>(), new ByteArrayInputStream(body));
+    }
+}
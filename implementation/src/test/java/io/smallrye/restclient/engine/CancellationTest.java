@@ -0,0 +1,114 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.engine;
+
+import io.smallrye.restclient.RestClientProxy;
+import io.smallrye.restclient.TestServer;
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CancellationTest {
+
+    @Test
+    public void testCancelAbortsAttachedConnection() {
+        AtomicInteger aborts = new AtomicInteger();
+        Cancellation cancellation = new Cancellation();
+        cancellation.attach(aborts::incrementAndGet);
+        assertEquals(0, aborts.get());
+
+        cancellation.cancel();
+        assertEquals(1, aborts.get());
+    }
+
+    @Test
+    public void testConnectionAttachedAfterCancelIsAborted() {
+        AtomicInteger aborts = new AtomicInteger();
+        Cancellation cancellation = new Cancellation();
+        cancellation.cancel();
+
+        cancellation.attach(aborts::incrementAndGet);
+        assertEquals(1, aborts.get());
+    }
+
+    @Test
+    public void testCancellingAnInvocationAbortsItsExchange() throws Exception {
+        CountDownLatch received = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        AtomicInteger stalledPort = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (TestServer server = TestServer.start(exchange -> {
+            int port = exchange.getRemoteAddress().getPort();
+            if (exchange.getRequestURI().getPath().equals("/stall")) {
+                stalledPort.set(port);
+                received.countDown();
+                try {
+                    released.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            TestServer.respond(exchange, String.valueOf(port));
+        })) {
+            Api api = RestClientBuilder.newBuilder()
+                    .baseUri(server.getUri())
+                    .executorService(executor)
+                    .build(Api.class);
+            try {
+                CompletableFuture<String> stalled = api.stall().toCompletableFuture();
+                assertTrue(received.await(5, TimeUnit.SECONDS));
+
+                stalled.cancel(false);
+                // the executor thread running the exchange is freed right away
+                assertEquals("free", executor.submit(() -> "free").get(2, TimeUnit.SECONDS));
+
+                released.countDown();
+                // the aborted connection is not reused
+                String port = api.port().toCompletableFuture().get(5, TimeUnit.SECONDS);
+                assertNotEquals(String.valueOf(stalledPort.get()), port);
+            } finally {
+                released.countDown();
+                ((RestClientProxy) api).close();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Path("/")
+    public interface Api {
+        @GET
+        @Path("stall")
+        CompletionStage<String> stall();
+
+        @GET
+        @Path("port")
+        CompletionStage<String> port();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.engine;
+
+import io.smallrye.restclient.RestClientProxy;
+import io.smallrye.restclient.TestServer;
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import org.jboss.resteasy.client.jaxrs.internal.ClientRequestContextImpl;
+import org.junit.Test;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.core.MediaType;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertTrue;
+
+public class ClientEngineBuilderTest {
+
+    @Path("/")
+    public interface Api {
+
+        @POST
+        @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+        void upload(ByteBuffer body);
+    }
+
+    @Test
+    public void testUploadsAreStreamedAlongTheProviderSelectionCache() throws Exception {
+        AtomicBoolean upload = new AtomicBoolean();
+        try (TestServer server = TestServer.start(exchange -> TestServer.respond(exchange, ""))) {
+            Api api = RestClientBuilder.newBuilder()
+                    .baseUri(server.getUri())
+                    .register((ClientRequestFilter) context -> upload.set(
+                            ClientEngineBuilder.isUpload(((ClientRequestContextImpl) context).getInvocation())))
+                    .build(Api.class);
+            try {
+                api.upload(ByteBuffer.wrap("body".getBytes(StandardCharsets.UTF_8)));
+            } finally {
+                ((RestClientProxy) api).close();
+            }
+        }
+        assertTrue(upload.get());
+    }
+}
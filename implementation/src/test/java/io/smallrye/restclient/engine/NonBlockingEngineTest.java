@@ -0,0 +1,242 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.engine;
+
+import com.sun.net.httpserver.HttpExchange;
+import io.smallrye.restclient.RestClientOptions;
+import io.smallrye.restclient.RestClientProxy;
+import io.smallrye.restclient.TestServer;
+import io.smallrye.restclient.limit.ResponseTooLargeException;
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.ResponseProcessingException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class NonBlockingEngineTest {
+
+    @Path("/")
+    public interface Api {
+
+        @GET
+        CompletionStage<String> get();
+
+        @POST
+        @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+        CompletionStage<String> upload(java.nio.file.Path body);
+
+        @POST
+        @Consumes(MediaType.APPLICATION_OCTET_STREAM)
+        CompletionStage<String> upload(ByteBuffer body);
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TestServer server;
+
+    private Api api;
+
+    @After
+    public void close() {
+        if (api != null) {
+            ((RestClientProxy) api).close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testResponseLargerThanTheBuffer() throws Exception {
+        String body = body(4 * PipedResponseConsumer.BUFFER_SIZE + 1);
+        server = TestServer.start(exchange -> TestServer.respond(exchange, body));
+        api = client(server.getUri(), RestClientBuilder.newBuilder());
+
+        assertEquals(body, api.get().toCompletableFuture().get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testUploadsAreStreamed() throws Exception {
+        server = TestServer.start(exchange -> TestServer.respond(exchange,
+                exchange.getRequestHeaders().getFirst(HttpHeaders.CONTENT_LENGTH) + ":" + read(exchange)));
+        api = client(server.getUri(), RestClientBuilder.newBuilder());
+        String body = body(3 * 64 * 1024 + 1);
+        java.nio.file.Path file = folder.newFile().toPath();
+        Files.write(file, body.getBytes(StandardCharsets.UTF_8));
+        ByteBuffer buffer = ByteBuffer.wrap(("xx" + body).getBytes(StandardCharsets.UTF_8));
+        buffer.position(2);
+
+        assertEquals(body.length() + ":" + body, api.upload(file).toCompletableFuture().get(5, TimeUnit.SECONDS));
+        assertEquals(body.length() + ":" + body, api.upload(buffer).toCompletableFuture().get(5, TimeUnit.SECONDS));
+        assertEquals(2, buffer.position());
+    }
+
+    @Test
+    public void testErrorResponse() throws Exception {
+        server = TestServer.start(exchange -> exchange.sendResponseHeaders(500, -1));
+        api = client(server.getUri(), RestClientBuilder.newBuilder());
+
+        assertEquals(WebApplicationException.class, failure(api.get()).getClass());
+    }
+
+    @Test
+    public void testConnectionFailure() throws Exception {
+        URI closed;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closed = URI.create("http://localhost:" + socket.getLocalPort());
+        }
+        api = client(closed, RestClientBuilder.newBuilder());
+
+        assertTrue(failure(api.get()) instanceof ProcessingException);
+    }
+
+    @Test
+    public void testMaximumResponseSizeAbortsTheExchange() throws Exception {
+        AtomicLong written = new AtomicLong();
+        CountDownLatch aborted = new CountDownLatch(1);
+        server = TestServer.start(exchange -> writeEndlessly(exchange, written, aborted));
+        api = client(server.getUri(), RestClientBuilder.newBuilder()
+                .property(RestClientOptions.PROPERTY_PREFIX + RestClientOptions.MAX_RESPONSE_SIZE, 1000));
+
+        assertTrue(failure(api.get()) instanceof ResponseTooLargeException);
+        assertTrue(aborted.await(5, TimeUnit.SECONDS));
+        // what the connection buffers, far from the whole body
+        assertTrue(written.get() < 64 * 1024 * 1024);
+    }
+
+    @Test
+    public void testCancellationAbortsTheExchange() throws Exception {
+        AtomicLong written = new AtomicLong();
+        CountDownLatch aborted = new CountDownLatch(1);
+        server = TestServer.start(exchange -> writeEndlessly(exchange, written, aborted));
+        api = client(server.getUri(), RestClientBuilder.newBuilder());
+
+        CompletableFuture<String> result = api.get().toCompletableFuture();
+        while (written.get() == 0) {
+            Thread.sleep(10);
+        }
+        result.cancel(true);
+        assertTrue(aborted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRejectedProcessingFailsTheInvocation() throws Exception {
+        CountDownLatch respond = new CountDownLatch(1);
+        server = TestServer.start(exchange -> {
+            try {
+                respond.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            TestServer.respond(exchange, "late");
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        api = client(server.getUri(), RestClientBuilder.newBuilder().executorService(executor));
+
+        CompletionStage<String> result = api.get();
+        executor.shutdown();
+        respond.countDown();
+        Throwable failure = failure(result);
+        assertTrue(failure instanceof ProcessingException);
+    }
+
+    private static Api client(URI uri, RestClientBuilder builder) {
+        return builder.baseUri(uri)
+                .property(RestClientOptions.PROPERTY_PREFIX + RestClientOptions.ASYNC_ENGINE, true)
+                .build(Api.class);
+    }
+
+    private static Throwable failure(CompletionStage<?> stage) throws Exception {
+        try {
+            stage.toCompletableFuture().get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            // RESTEasy wraps what the response filters throw
+            if (cause instanceof ResponseProcessingException && cause.getCause() != null) {
+                return cause.getCause();
+            }
+            return cause;
+        }
+        fail("The invocation succeeded");
+        return null;
+    }
+
+    private static void writeEndlessly(HttpExchange exchange, AtomicLong written, CountDownLatch aborted)
+            throws IOException {
+        byte[] chunk = new byte[8 * 1024];
+        Arrays.fill(chunk, (byte) 'x');
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        try {
+            while (written.get() < 1024 * 1024 * 1024) {
+                out.write(chunk);
+                out.flush();
+                written.addAndGet(chunk.length);
+            }
+        } catch (IOException e) {
+            aborted.countDown();
+        }
+    }
+
+    private static String read(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8 * 1024];
+        for (int read; (read = exchange.getRequestBody().read(buffer)) != -1; ) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String body(int length) {
+        StringBuilder body = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            body.append((char) ('a' + i % 26));
+        }
+        return body.toString();
+    }
+}
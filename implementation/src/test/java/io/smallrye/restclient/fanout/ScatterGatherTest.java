@@ -0,0 +1,226 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.fanout;
+
+import io.smallrye.restclient.RestClientOptions;
+import io.smallrye.restclient.TestServer;
+import io.smallrye.restclient.timeout.RequestTimeoutException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ScatterGatherTest {
+
+    private final CountDownLatch released = new CountDownLatch(1);
+
+    private TestServer server;
+
+    private URI a;
+    private URI b;
+    private URI slow;
+
+    @Before
+    public void start() throws Exception {
+        // every endpoint is a path of the same server, answering with its path
+        server = TestServer.start(exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/failing")) {
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            if (path.equals("/slow")) {
+                try {
+                    released.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            TestServer.respond(exchange, path);
+        });
+        a = server.getUri().resolve("/a");
+        b = server.getUri().resolve("/b");
+        slow = server.getUri().resolve("/slow");
+    }
+
+    @After
+    public void stop() {
+        released.countDown();
+        server.close();
+    }
+
+    @Test
+    public void testResultsOfAllEndpointsAreGathered() throws Exception {
+        try (ScatterGather<Api> endpoints = ScatterGather.create(Api.class, Arrays.asList(b, a))) {
+            GatheredResults<String> gathered = gather(endpoints.invoke(Api::get, 5, TimeUnit.SECONDS));
+
+            assertTrue(gathered.isComplete());
+            assertEquals(Arrays.asList(b, a), Arrays.asList(gathered.getResults().keySet().toArray()));
+            assertEquals("/a", gathered.getResults().get(a));
+            assertEquals("/b", gathered.getResults().get(b));
+        }
+    }
+
+    @Test
+    public void testFailuresAreCollected() throws Exception {
+        URI failing = server.getUri().resolve("/failing");
+        try (ScatterGather<Api> endpoints = ScatterGather.create(Api.class, Arrays.asList(a, failing))) {
+            GatheredResults<String> gathered = gather(endpoints.invoke(Api::get, 5, TimeUnit.SECONDS));
+
+            assertFalse(gathered.isComplete());
+            assertEquals(Collections.singleton(a), gathered.getResults().keySet());
+            assertEquals(Collections.singleton(failing), gathered.getFailures().keySet());
+            assertTrue(gathered.getTimedOut().isEmpty());
+        }
+    }
+
+    @Test
+    public void testInvocationThrowingIsCollected() throws Exception {
+        try (ScatterGather<Api> endpoints = ScatterGather.create(Api.class, Arrays.asList(a, b))) {
+            IllegalStateException thrown = new IllegalStateException();
+            GatheredResults<String> gathered = gather(endpoints.invoke(api -> {
+                if (api == endpoints.getClients().get(b)) {
+                    throw thrown;
+                }
+                return api.get();
+            }, 5, TimeUnit.SECONDS));
+
+            assertEquals(Collections.singleton(a), gathered.getResults().keySet());
+            assertEquals(thrown, gathered.getFailures().get(b));
+        }
+    }
+
+    @Test
+    public void testEndpointTimingOutItsRequestIsCollected() throws Exception {
+        try (ScatterGather<Api> endpoints = ScatterGather.create(Api.class, Arrays.asList(a, slow),
+                builder -> builder.property(RestClientOptions.PROPERTY_PREFIX + RestClientOptions.REQUEST_TIMEOUT, 100))) {
+            GatheredResults<String> gathered = gather(endpoints.invoke(Api::get, 5, TimeUnit.SECONDS));
+
+            assertEquals(Collections.singleton(a), gathered.getResults().keySet());
+            assertTrue(gathered.getFailures().get(slow) instanceof RequestTimeoutException);
+            assertTrue(gathered.getTimedOut().isEmpty());
+        }
+    }
+
+    @Test
+    public void testEndpointsStillRunningAtTheDeadlineAreCancelled() throws Exception {
+        List<CompletionStage<String>> invocations = new CopyOnWriteArrayList<>();
+        try (ScatterGather<Api> endpoints = ScatterGather.create(Api.class, Arrays.asList(a, slow))) {
+            long start = System.nanoTime();
+            GatheredResults<String> gathered = gather(endpoints.invoke(api -> record(invocations, api.get()),
+                    1, TimeUnit.SECONDS));
+
+            assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5);
+            assertEquals(Collections.singleton(a), gathered.getResults().keySet());
+            assertEquals(Collections.singleton(slow), gathered.getTimedOut());
+            assertTrue(gathered.getFailures().isEmpty());
+            assertFalse(invocations.get(0).toCompletableFuture().isCancelled());
+            assertTrue(invocations.get(1).toCompletableFuture().isCancelled());
+        }
+    }
+
+    @Test
+    public void testResultsGatheredAtTheDeadlineAreNotCompletedOnTheTimerThread() throws Exception {
+        try (ScatterGather<Api> endpoints = ScatterGather.create(Api.class, Arrays.asList(a, slow))) {
+            String thread = endpoints.invoke(Api::get, 200, TimeUnit.MILLISECONDS)
+                    .thenApply(gathered -> Thread.currentThread().getName())
+                    .toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+            assertNotEquals("smallrye-rest-client-timer", thread);
+        }
+    }
+
+    @Test
+    public void testEndpointsNotStartedByTheDeadlineAreTimedOut() throws Exception {
+        List<CompletionStage<String>> invocations = new CopyOnWriteArrayList<>();
+        try (ScatterGather<Api> endpoints = ScatterGather.create(Api.class, Arrays.asList(a, b))) {
+            GatheredResults<String> gathered = gather(endpoints.invoke(api -> {
+                try {
+                    // the deadline passes before the invocation is sent
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return record(invocations, api.get());
+            }, 100, TimeUnit.MILLISECONDS));
+
+            assertEquals(new LinkedHashSet<>(Arrays.asList(a, b)), gathered.getTimedOut());
+            assertTrue(gathered.getResults().isEmpty());
+            assertTrue(gathered.getFailures().isEmpty());
+            assertEquals(1, invocations.size());
+            assertTrue(invocations.get(0).toCompletableFuture().isCancelled());
+        }
+    }
+
+    @Test
+    public void testCancellingTheGatheringCancelsTheEndpointsStillRunning() throws Exception {
+        URI otherSlow = server.getUri().resolve("/slow?other");
+        List<CompletionStage<String>> invocations = new CopyOnWriteArrayList<>();
+        try (ScatterGather<Api> endpoints = ScatterGather.create(Api.class, Arrays.asList(slow, otherSlow))) {
+            CompletableFuture<GatheredResults<String>> gathering = endpoints.invoke(api -> record(invocations, api.get()),
+                    5, TimeUnit.SECONDS).toCompletableFuture();
+            assertEquals(2, invocations.size());
+
+            gathering.cancel(false);
+            for (CompletionStage<String> invocation : invocations) {
+                assertTrue(invocation.toCompletableFuture().isCancelled());
+            }
+        }
+    }
+
+    @Test
+    public void testNoEndpoint() {
+        try {
+            ScatterGather.create(Api.class, Collections.emptyList());
+            fail("A scatter-gather without endpoints was created");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static <R> GatheredResults<R> gather(CompletionStage<GatheredResults<R>> gathering) throws Exception {
+        return gathering.toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+
+    private static CompletionStage<String> record(List<CompletionStage<String>> invocations,
+                                                  CompletionStage<String> invocation) {
+        invocations.add(invocation);
+        return invocation;
+    }
+
+    @Path("/")
+    public interface Api {
+        @GET
+        CompletionStage<String> get();
+    }
+}
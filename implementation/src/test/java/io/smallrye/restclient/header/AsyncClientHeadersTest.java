@@ -0,0 +1,139 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.header;
+
+import io.smallrye.restclient.RestClientOptions;
+import io.smallrye.restclient.RestClientProxy;
+import io.smallrye.restclient.TestServer;
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import org.eclipse.microprofile.rest.client.annotation.ClientHeaderParam;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class AsyncClientHeadersTest {
+
+    private static final AtomicInteger computed = new AtomicInteger();
+
+    @Test
+    public void testFactoriesAreChained() throws Exception {
+        CompletableFuture<MultivaluedMap<String, String>> token = new CompletableFuture<>();
+
+        AsyncClientHeadersFactory auth = (incoming, outgoing) -> token.thenApply(t -> {
+            MultivaluedMap<String, String> result = new MultivaluedHashMap<>(outgoing);
+            result.putAll(t);
+            return result;
+        });
+        AsyncClientHeadersFactory signature = (incoming, outgoing) -> {
+            MultivaluedMap<String, String> result = new MultivaluedHashMap<>(outgoing);
+            result.putSingle("X-Signature", "signed:" + outgoing.getFirst("Authorization"));
+            return CompletableFuture.completedFuture(result);
+        };
+
+        CompletionStage<MultivaluedMap<String, String>> headers =
+                AsyncClientHeaders.resolve(Client.class.getMethod("get"), Arrays.asList(auth, signature));
+        assertFalse(headers.toCompletableFuture().isDone());
+
+        MultivaluedMap<String, String> tokenHeaders = new MultivaluedHashMap<>();
+        tokenHeaders.putSingle("Authorization", "Bearer 42");
+        token.complete(tokenHeaders);
+
+        MultivaluedMap<String, String> resolved = headers.toCompletableFuture().get();
+        assertEquals("Bearer 42", resolved.getFirst("Authorization"));
+        assertEquals("signed:Bearer 42", resolved.getFirst("X-Signature"));
+    }
+
+    @Test
+    public void testHeadersReachTheNonBlockingEngine() throws Exception {
+        CompletableFuture<MultivaluedMap<String, String>> token = new CompletableFuture<>();
+        AsyncClientHeadersFactory auth = (incoming, outgoing) -> token.thenApply(t -> {
+            MultivaluedMap<String, String> result = new MultivaluedHashMap<>(outgoing);
+            result.putAll(t);
+            return result;
+        });
+        try (TestServer server = TestServer.start(exchange ->
+                TestServer.respond(exchange, exchange.getRequestHeaders().getFirst("Authorization")))) {
+            AsyncClient client = RestClientBuilder.newBuilder()
+                    .baseUri(server.getUri())
+                    .property(RestClientOptions.PROPERTY_PREFIX + RestClientOptions.ASYNC_ENGINE, true)
+                    .register(auth)
+                    .build(AsyncClient.class);
+            try {
+                CompletionStage<String> result = client.get();
+                MultivaluedMap<String, String> tokenHeaders = new MultivaluedHashMap<>();
+                tokenHeaders.putSingle("Authorization", "Bearer 42");
+                // the request is sent by the thread completing the headers
+                new Thread(() -> token.complete(tokenHeaders)).start();
+
+                assertEquals("Bearer 42", result.toCompletableFuture().get(5, TimeUnit.SECONDS));
+            } finally {
+                ((RestClientProxy) client).close();
+            }
+        }
+    }
+
+    @Test
+    public void testClientHeaderParamIsComputedOnce() throws Exception {
+        computed.set(0);
+        AsyncClientHeadersFactory passThrough = (incoming, outgoing) -> CompletableFuture.completedFuture(outgoing);
+        try (TestServer server = TestServer.start(exchange ->
+                TestServer.respond(exchange, exchange.getRequestHeaders().getFirst("X-Computed")))) {
+            ComputedClient client = RestClientBuilder.newBuilder()
+                    .baseUri(server.getUri())
+                    .register(passThrough)
+                    .build(ComputedClient.class);
+            try {
+                assertEquals("1", client.get());
+                assertEquals(1, computed.get());
+            } finally {
+                ((RestClientProxy) client).close();
+            }
+        }
+    }
+
+    public static String compute() {
+        return String.valueOf(computed.incrementAndGet());
+    }
+
+    interface Client {
+        @GET
+        String get();
+    }
+
+    @Path("/")
+    @ClientHeaderParam(name = "X-Computed", value = "{io.smallrye.restclient.header.AsyncClientHeadersTest.compute}")
+    public interface ComputedClient {
+        @GET
+        String get();
+    }
+
+    @Path("/")
+    public interface AsyncClient {
+        @GET
+        CompletionStage<String> get();
+    }
+}
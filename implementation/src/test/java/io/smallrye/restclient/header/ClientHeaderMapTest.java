@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.header;
+
+import org.junit.Test;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ClientHeaderMapTest {
+
+    @Test
+    public void testCaseInsensitiveLookup() {
+        ClientHeaderMap headers = new ClientHeaderMap();
+        headers.putSingle("x-custom", "a");
+        headers.add("X-CUSTOM", "b");
+
+        assertEquals(1, headers.size());
+        assertEquals(Arrays.asList("a", "b"), headers.get("X-Custom"));
+        assertTrue(headers.containsKey("X-Custom"));
+        assertEquals("x-custom", headers.keySet().iterator().next());
+
+        headers.remove("X-CUSTOM");
+        assertTrue(headers.isEmpty());
+        assertNull(headers.getFirst("x-custom"));
+    }
+
+    @Test
+    public void testNullValues() {
+        ClientHeaderMap headers = new ClientHeaderMap();
+        headers.put("X-Custom", null);
+        headers.add("x-custom", "a");
+        assertEquals(Arrays.asList("a"), headers.get("X-Custom"));
+
+        headers.entrySet().iterator().next().setValue(null);
+        headers.addFirst("X-CUSTOM", "b");
+        assertEquals(Arrays.asList("b"), headers.get("X-Custom"));
+    }
+
+    @Test
+    public void testHeaderParamReplacesClientHeaderParamOfAnotherSpelling() {
+        ClientHeaderMap headers = new ClientHeaderMap();
+        headers.putSingle("X-Custom", "from-client-header-param");
+        MultivaluedMap<String, Object> requestHeaders = new MultivaluedHashMap<>();
+        requestHeaders.putSingle("x-custom", "from-header-param");
+        headers.putAllAsStrings(requestHeaders);
+
+        assertEquals(1, headers.size());
+        assertEquals(Arrays.asList("from-header-param"), headers.get("X-CUSTOM"));
+    }
+
+    @Test
+    public void testWellKnownNamesAreInterned() {
+        ClientHeaderMap headers = new ClientHeaderMap();
+        headers.putSingle(new String("content-type"), "text/plain");
+
+        assertSame(HttpHeaders.CONTENT_TYPE, headers.keySet().iterator().next());
+        assertSame(HttpHeaders.AUTHORIZATION, ClientHeaderMap.intern("AUTHORIZATION"));
+        assertEquals("X-Unknown", ClientHeaderMap.intern("X-Unknown"));
+    }
+
+    @Test
+    public void testGrowAndRemoveWhileIterating() {
+        ClientHeaderMap headers = new ClientHeaderMap(1);
+        for (int i = 0; i < 20; i++) {
+            headers.putSingle("Header-" + i, String.valueOf(i));
+        }
+        assertEquals(20, headers.size());
+
+        Iterator<Map.Entry<String, List<String>>> iterator = headers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (Integer.parseInt(iterator.next().getValue().get(0)) % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        assertEquals(10, headers.size());
+        assertFalse(headers.containsKey("header-0"));
+        assertEquals("19", headers.getFirst("HEADER-19"));
+    }
+
+    @Test
+    public void testCopyAndWrite() {
+        MultivaluedMap<String, Object> source = new MultivaluedHashMap<>();
+        source.add("Content-Length", 42);
+        source.add("Accept", "text/plain");
+        source.add("Accept", "application/json");
+
+        ClientHeaderMap copy = ClientHeaderMap.copyOf(source);
+        assertEquals("42", copy.getFirst("content-length"));
+        assertTrue(copy.equalsIgnoreValueOrder(copyOf("accept", "application/json", "accept", "text/plain", "content-length", "42")));
+
+        MultivaluedMap<String, Object> target = new MultivaluedHashMap<>();
+        copy.writeTo(target);
+        assertEquals(Arrays.asList("text/plain", "application/json"), target.get("Accept"));
+    }
+
+    private static MultivaluedMap<String, String> copyOf(String... keysAndValues) {
+        ClientHeaderMap result = new ClientHeaderMap();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            result.add(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return result;
+    }
+}
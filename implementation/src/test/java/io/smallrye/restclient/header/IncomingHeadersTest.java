@@ -0,0 +1,98 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.header;
+
+import io.smallrye.restclient.RestClientOptions;
+import io.smallrye.restclient.RestClientProxy;
+import io.smallrye.restclient.TestServer;
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class IncomingHeadersTest {
+
+    @Test
+    public void testQueuedInvocationPropagatesTheIncomingHeadersOfItsCaller() throws Exception {
+        CountDownLatch queued = new CountDownLatch(1);
+        try (TestServer server = TestServer.start(exchange -> {
+            String requestId = exchange.getRequestHeaders().getFirst("X-Request-Id");
+            if ("first".equals(requestId)) {
+                try {
+                    queued.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            TestServer.respond(exchange, String.valueOf(requestId));
+        })) {
+            AsyncClientHeadersFactory propagation = (incoming, outgoing) -> {
+                MultivaluedMap<String, String> result = new MultivaluedHashMap<>(outgoing);
+                result.putSingle("X-Request-Id", incoming.getFirst("X-Request-Id"));
+                return CompletableFuture.completedFuture(result);
+            };
+            Client client = RestClientBuilder.newBuilder()
+                    .baseUri(server.getUri())
+                    .register(propagation)
+                    .property(RestClientOptions.PROPERTY_PREFIX + RestClientOptions.CONCURRENCY_LIMIT, 1)
+                    .property(RestClientOptions.PROPERTY_PREFIX + RestClientOptions.CONCURRENCY_LIMIT_QUEUE, 1)
+                    .build(Client.class);
+            try {
+                CompletionStage<String> first;
+                CompletionStage<String> second;
+                try {
+                    // as an IncomingHeadersProvider would have them for the requests being served
+                    IncomingHeaders.bind(requestId("first"));
+                    first = client.get();
+                    IncomingHeaders.bind(requestId("second"));
+                    second = client.get();
+                } finally {
+                    IncomingHeaders.unbind();
+                }
+                assertFalse(second.toCompletableFuture().isDone());
+                // the second invocation is sent by the thread completing the first one
+                queued.countDown();
+
+                assertEquals("first", first.toCompletableFuture().get(5, TimeUnit.SECONDS));
+                assertEquals("second", second.toCompletableFuture().get(5, TimeUnit.SECONDS));
+            } finally {
+                ((RestClientProxy) client).close();
+            }
+        }
+    }
+
+    private static MultivaluedMap<String, String> requestId(String id) {
+        MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+        headers.putSingle("X-Request-Id", id);
+        return headers;
+    }
+
+    @Path("/")
+    public interface Client {
+        @GET
+        CompletionStage<String> get();
+    }
+}
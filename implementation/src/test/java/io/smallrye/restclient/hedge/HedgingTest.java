@@ -0,0 +1,283 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.hedge;
+
+import io.smallrye.restclient.RestClientOptions;
+import io.smallrye.restclient.RestClientProxy;
+import io.smallrye.restclient.TestServer;
+import io.smallrye.restclient.async.AsyncContext;
+import io.smallrye.restclient.header.AsyncClientHeadersFactory;
+import io.smallrye.restclient.header.IncomingHeaders;
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import org.eclipse.microprofile.rest.client.ext.AsyncInvocationInterceptor;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HedgingTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testHedgeIsSentAfterTheDelay() throws Throwable {
+        Hedging hedging = new Hedging(100, 0, new HedgeBudget(1, 10), executor);
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicLong hedgedAfter = new AtomicLong();
+        CountDownLatch hedged = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        Object result = hedging.invoke(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                hedged.await(5, TimeUnit.SECONDS);
+                throw new IOException("The first request failed");
+            }
+            hedgedAfter.set(System.nanoTime() - start);
+            hedged.countDown();
+            return "hedge";
+        });
+
+        assertEquals("hedge", result);
+        assertEquals(2, attempts.get());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(hedgedAfter.get()) >= 90);
+    }
+
+    @Test
+    public void testFastInvocationIsNotHedged() throws Throwable {
+        Hedging hedging = new Hedging(50, 0, new HedgeBudget(1, 10), executor);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertEquals("first", hedging.invoke(() -> {
+            attempts.incrementAndGet();
+            return "first";
+        }));
+        Thread.sleep(200);
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void testFirstResultWins() throws Exception {
+        Hedging hedging = new Hedging(10, 0, new HedgeBudget(1, 10), executor);
+        List<CompletableFuture<Object>> requests = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<Object> result = hedging.invokeAsync(() -> request(requests)).toCompletableFuture();
+        awaitRequests(requests, 2);
+        requests.get(1).complete("hedge");
+
+        assertEquals("hedge", result.get(5, TimeUnit.SECONDS));
+        assertTrue(requests.get(0).isCancelled());
+    }
+
+    @Test
+    public void testLosingResultIsClosed() throws Exception {
+        Hedging hedging = new Hedging(10, 0, new HedgeBudget(1, 10), executor);
+        List<CompletableFuture<Object>> requests = new CopyOnWriteArrayList<>();
+        Resource first = new Resource();
+        Resource hedge = new Resource();
+
+        CompletableFuture<Object> result = hedging.invokeAsync(() -> {
+            // too far along to be cancelled, as a response arriving just as the other one wins
+            CompletableFuture<Object> request = new CompletableFuture<Object>() {
+                @Override
+                public boolean cancel(boolean mayInterruptIfRunning) {
+                    return false;
+                }
+            };
+            requests.add(request);
+            return request;
+        }).toCompletableFuture();
+        awaitRequests(requests, 2);
+        requests.get(0).complete(first);
+        requests.get(1).complete(hedge);
+
+        assertSame(first, result.get(5, TimeUnit.SECONDS));
+        assertFalse(first.closed.await(0, TimeUnit.SECONDS));
+        assertTrue(hedge.closed.await(0, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testLosingResultOfSynchronousInvocationIsClosed() throws Throwable {
+        Hedging hedging = new Hedging(10, 0, new HedgeBudget(1, 10), executor);
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch hedged = new CountDownLatch(1);
+        Resource first = new Resource();
+        Resource hedge = new Resource();
+
+        Object result = hedging.invoke(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                hedged.await(5, TimeUnit.SECONDS);
+                return first;
+            }
+            hedged.countDown();
+            return hedge;
+        });
+
+        Resource loser = result == first ? hedge : first;
+        assertTrue(loser.closed.await(5, TimeUnit.SECONDS));
+        assertFalse(((Resource) result).closed.await(0, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testNoHedgeOnceTheBudgetIsSpent() throws Exception {
+        Hedging hedging = new Hedging(10, 0, new HedgeBudget(0, 1), executor);
+        List<CompletableFuture<Object>> requests = new CopyOnWriteArrayList<>();
+
+        CompletionStage<Object> hedged = hedging.invokeAsync(() -> request(requests));
+        awaitRequests(requests, 2);
+        CompletionStage<Object> notHedged = hedging.invokeAsync(() -> request(requests));
+        Thread.sleep(200);
+        assertEquals(3, requests.size());
+
+        requests.get(2).complete("first");
+        assertEquals("first", notHedged.toCompletableFuture().get(5, TimeUnit.SECONDS));
+        hedged.toCompletableFuture().cancel(false);
+    }
+
+    @Test
+    public void testHedgeIsSentWithTheContextOfTheCaller() throws Throwable {
+        Hedging hedging = new Hedging(10, 0, new HedgeBudget(1, 10), executor);
+        ThreadLocal<String> context = new ThreadLocal<>();
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch hedged = new CountDownLatch(1);
+
+        Object result = hedging.invoke(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                hedged.await(5, TimeUnit.SECONDS);
+                throw new IOException("The first request failed");
+            }
+            hedged.countDown();
+            return context.get();
+        }, AsyncContext.EMPTY.with(binder(context, "caller")));
+
+        assertEquals("caller", result);
+    }
+
+    @Test
+    public void testSynchronousHedgeHasTheIncomingHeadersOfItsCaller() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch hedged = new CountDownLatch(1);
+        try (TestServer server = TestServer.start(exchange -> {
+            if (requests.incrementAndGet() == 1) {
+                try {
+                    hedged.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                TestServer.respond(exchange, "late");
+                return;
+            }
+            TestServer.respond(exchange, String.valueOf(exchange.getRequestHeaders().getFirst("X-Request-Id")));
+        })) {
+            AsyncClientHeadersFactory propagation = (incoming, outgoing) -> {
+                MultivaluedMap<String, String> result = new MultivaluedHashMap<>(outgoing);
+                result.putSingle("X-Request-Id", incoming.getFirst("X-Request-Id"));
+                return CompletableFuture.completedFuture(result);
+            };
+            Client client = RestClientBuilder.newBuilder()
+                    .baseUri(server.getUri())
+                    .property(RestClientOptions.PROPERTY_PREFIX + RestClientOptions.HEDGE_DELAY, 50)
+                    .register(propagation)
+                    .build(Client.class);
+            try {
+                MultivaluedMap<String, String> incoming = new MultivaluedHashMap<>();
+                incoming.putSingle("X-Request-Id", "42");
+                // as an IncomingHeadersProvider would have them for the request being served
+                IncomingHeaders.bind(incoming);
+                try {
+                    assertEquals("42", client.get());
+                } finally {
+                    IncomingHeaders.unbind();
+                    hedged.countDown();
+                }
+            } finally {
+                ((RestClientProxy) client).close();
+            }
+        }
+    }
+
+    private static CompletionStage<Object> request(List<CompletableFuture<Object>> requests) {
+        CompletableFuture<Object> request = new CompletableFuture<>();
+        requests.add(request);
+        return request;
+    }
+
+    private static void awaitRequests(List<?> requests, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (requests.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, requests.size());
+    }
+
+    private static AsyncInvocationInterceptor binder(ThreadLocal<String> context, String value) {
+        return new AsyncInvocationInterceptor() {
+            @Override
+            public void prepareContext() {
+            }
+
+            @Override
+            public void applyContext() {
+                context.set(value);
+            }
+
+            @Override
+            public void removeContext() {
+                context.remove();
+            }
+        };
+    }
+
+    private static class Resource implements Closeable {
+
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+    }
+
+    @Path("/")
+    public interface Client {
+        @GET
+        String get();
+    }
+}
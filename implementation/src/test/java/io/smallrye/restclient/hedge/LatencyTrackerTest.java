@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.hedge;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyTrackerTest {
+
+    @Test
+    public void testBucketsCoverTheirValues() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 100, 1000, 123456789, Long.MAX_VALUE}) {
+            int bucket = LatencyTracker.bucket(value);
+            assertTrue(value + " above its bucket", value <= LatencyTracker.upperBound(bucket));
+            if (bucket > 0) {
+                assertTrue(value + " below its bucket", value > LatencyTracker.upperBound(bucket - 1));
+            }
+        }
+    }
+
+    @Test
+    public void testPrecision() {
+        long upperBound = LatencyTracker.upperBound(LatencyTracker.bucket(1000));
+        assertTrue(upperBound - 1000 < 1000 / 8);
+    }
+
+    @Test
+    public void testPercentile() {
+        LatencyTracker tracker = new LatencyTracker();
+        for (int i = 0; i < 19; i++) {
+            tracker.record(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        assertEquals(-1, tracker.percentile(50));
+
+        for (int i = 0; i < 81; i++) {
+            tracker.record(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        for (int i = 0; i < 10; i++) {
+            tracker.record(TimeUnit.MILLISECONDS.toNanos(500));
+        }
+        long median = TimeUnit.NANOSECONDS.toMillis(tracker.percentile(50));
+        assertTrue(median >= 10 && median < 12);
+        long p95 = TimeUnit.NANOSECONDS.toMillis(tracker.percentile(95));
+        assertTrue(p95 >= 500 && p95 < 570);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.limit;
+
+import io.smallrye.restclient.engine.Abortable;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LimitedInputStreamTest {
+
+    @Test
+    public void testBodyWithinLimit() throws IOException {
+        AbortableStream body = new AbortableStream(10);
+        LimitedInputStream in = new LimitedInputStream(body, body, 10);
+
+        byte[] buffer = new byte[64];
+        assertEquals(10, in.read(buffer));
+        assertEquals(-1, in.read(buffer));
+        assertFalse(body.aborted);
+    }
+
+    @Test
+    public void testBodyOverLimit() throws IOException {
+        AbortableStream body = new AbortableStream(1000);
+        LimitedInputStream in = new LimitedInputStream(body, body, 100);
+
+        byte[] buffer = new byte[64];
+        assertEquals(64, in.read(buffer));
+        try {
+            in.read(buffer);
+            fail("Expected ResponseTooLargeException");
+        } catch (ResponseTooLargeException e) {
+            assertEquals(100, e.getMaxBytes());
+        }
+        assertTrue(body.aborted);
+        // no more than a byte past the limit was read
+        assertEquals(1000 - 101, body.available());
+    }
+
+    @Test
+    public void testSingleBytesOverLimit() throws IOException {
+        AbortableStream body = new AbortableStream(3);
+        LimitedInputStream in = new LimitedInputStream(body, body, 2);
+
+        in.read();
+        in.read();
+        try {
+            in.read();
+            fail("Expected ResponseTooLargeException");
+        } catch (ResponseTooLargeException expected) {
+        }
+        assertTrue(body.aborted);
+    }
+
+    private static class AbortableStream extends ByteArrayInputStream implements Abortable {
+
+        boolean aborted;
+
+        AbortableStream(int length) {
+            super(new byte[length]);
+        }
+
+        @Override
+        public void abort() {
+            aborted = true;
+        }
+    }
+}
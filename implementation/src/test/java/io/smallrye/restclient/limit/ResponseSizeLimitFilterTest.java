@@ -0,0 +1,182 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.limit;
+
+import io.smallrye.restclient.RestClientOptions;
+import io.smallrye.restclient.RestClientProxy;
+import io.smallrye.restclient.TestServer;
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.ProcessingException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResponseSizeLimitFilterTest {
+
+    private static final String BODY = String.join("", Collections.nCopies(5000, "a"));
+
+    private static final String LARGE_LIMIT_KEY = Api.class.getName() + "/mp-rest/large/"
+            + RestClientOptions.MAX_RESPONSE_SIZE;
+
+    private final CountDownLatch released = new CountDownLatch(1);
+
+    private TestServer server;
+
+    @Before
+    public void start() throws IOException {
+        server = TestServer.start(exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/announced")) {
+                // announces more than the limit, then stalls
+                exchange.sendResponseHeaders(200, 1_000_000);
+                exchange.getResponseBody().write(new byte[10]);
+                exchange.getResponseBody().flush();
+                try {
+                    released.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            } else if (path.equals("/compressed")) {
+                byte[] compressed = gzip(BODY);
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                exchange.sendResponseHeaders(200, compressed.length);
+                exchange.getResponseBody().write(compressed);
+            } else {
+                TestServer.respond(exchange, BODY);
+            }
+        });
+    }
+
+    @After
+    public void stop() {
+        released.countDown();
+        System.clearProperty(LARGE_LIMIT_KEY);
+        server.close();
+    }
+
+    @Test
+    public void testAnnouncedLengthFailsBeforeTheBodyIsRead() {
+        Api api = client(1000, false);
+        try {
+            long start = System.nanoTime();
+            try {
+                api.announced();
+                fail("The response should be too large");
+            } catch (ProcessingException e) {
+                assertEquals(1000, tooLarge(e).getMaxBytes());
+            }
+            // the stalled body is not waited for
+            assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5);
+        } finally {
+            ((RestClientProxy) api).close();
+        }
+    }
+
+    @Test
+    public void testMethodLimitOverridesTheClientLimit() {
+        System.setProperty(LARGE_LIMIT_KEY, "10000");
+        Api api = client(1000, false);
+        try {
+            assertEquals(BODY, api.large());
+            try {
+                api.get();
+                fail("The response should be too large");
+            } catch (ProcessingException e) {
+                assertEquals(1000, tooLarge(e).getMaxBytes());
+            }
+        } finally {
+            ((RestClientProxy) api).close();
+        }
+    }
+
+    @Test
+    public void testLimitAppliesToTheDecodedBody() {
+        Api api = client(1000, true);
+        try {
+            api.compressed();
+            fail("The decoded response should be too large");
+        } catch (ProcessingException e) {
+            assertEquals(1000, tooLarge(e).getMaxBytes());
+        } finally {
+            ((RestClientProxy) api).close();
+        }
+        Api unlimited = client(10000, true);
+        try {
+            assertEquals(BODY, unlimited.compressed());
+        } finally {
+            ((RestClientProxy) unlimited).close();
+        }
+    }
+
+    private Api client(long maxBytes, boolean compression) {
+        return RestClientBuilder.newBuilder()
+                .baseUri(server.getUri())
+                .property(RestClientOptions.PROPERTY_PREFIX + RestClientOptions.MAX_RESPONSE_SIZE, maxBytes)
+                .property(RestClientOptions.PROPERTY_PREFIX + RestClientOptions.COMPRESSION, compression)
+                .build(Api.class);
+    }
+
+    private static ResponseTooLargeException tooLarge(ProcessingException e) {
+        Throwable failure = e;
+        while (failure != null && !(failure instanceof ResponseTooLargeException)) {
+            failure = failure.getCause();
+        }
+        if (failure == null) {
+            throw new AssertionError("Not failed by the response size limit", e);
+        }
+        return (ResponseTooLargeException) failure;
+    }
+
+    private static byte[] gzip(String body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    @Path("/")
+    public interface Api {
+        @GET
+        String get();
+
+        @GET
+        String large();
+
+        @GET
+        @Path("announced")
+        String announced();
+
+        @GET
+        @Path("compressed")
+        String compressed();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.loadbalance;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertSame;
+
+public class LoadBalancerTest {
+
+    private final Endpoint a = new Endpoint(URI.create("http://a"), "a");
+
+    private final Endpoint b = new Endpoint(URI.create("http://b"), "b");
+
+    private final Endpoint c = new Endpoint(URI.create("http://c"), "c");
+
+    private final List<Endpoint> endpoints = Arrays.asList(a, b, c);
+
+    @Test
+    public void testRoundRobin() {
+        LoadBalancer loadBalancer = LoadBalancer.create(LoadBalancer.ROUND_ROBIN, endpoints);
+        for (int i = 0; i < 2; i++) {
+            assertSame(a, loadBalancer.select());
+            assertSame(b, loadBalancer.select());
+            assertSame(c, loadBalancer.select());
+        }
+    }
+
+    @Test
+    public void testLeastOutstanding() {
+        LoadBalancer loadBalancer = LoadBalancer.create(LoadBalancer.LEAST_OUTSTANDING, endpoints);
+        a.started();
+        c.started();
+        for (int i = 0; i < 3; i++) {
+            assertSame(b, loadBalancer.select());
+        }
+        b.started();
+        b.started();
+        a.finished();
+        for (int i = 0; i < 3; i++) {
+            assertSame(a, loadBalancer.select());
+        }
+    }
+
+    @Test
+    public void testPowerOfTwoChoices() {
+        LoadBalancer loadBalancer = LoadBalancer.create(LoadBalancer.POWER_OF_TWO_CHOICES, Arrays.asList(a, b));
+        b.started();
+        for (int i = 0; i < 10; i++) {
+            // the two choices are always different endpoints
+            assertSame(a, loadBalancer.select());
+        }
+    }
+
+    @Test
+    public void testSingleEndpoint() {
+        LoadBalancer loadBalancer = LoadBalancer.create(LoadBalancer.LEAST_OUTSTANDING, Collections.singletonList(a));
+        assertSame(a, loadBalancer.select());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownStrategy() {
+        LoadBalancer.create("random", endpoints);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.priority;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PriorityExecutorServiceTest {
+
+    @Test
+    public void testWaitingTasksRunByPriority() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(1);
+        try {
+            PriorityExecutorService executor = new PriorityExecutorService(pool,
+                    PriorityExecutorService.parallelismOf(pool), -1, Collections.emptyMap());
+            List<String> order = new CopyOnWriteArrayList<>();
+            CountDownLatch blocked = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(4);
+            executor.execute(() -> {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            executor.execute(task("low", order, done), InvocationPriority.LOW, shed -> order.add("shed"));
+            executor.execute(task("normal", order, done));
+            executor.execute(task("high", order, done), InvocationPriority.HIGH, shed -> order.add("shed"));
+            executor.execute(task("low2", order, done), InvocationPriority.LOW, shed -> order.add("shed"));
+            blocked.countDown();
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList("high", "normal", "low", "low2"), order);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testLowPriorityTasksAreShed() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(1);
+        try {
+            PriorityExecutorService executor = new PriorityExecutorService(pool, 1, 0, Collections.emptyMap());
+            List<String> order = new CopyOnWriteArrayList<>();
+            CountDownLatch blocked = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(2);
+            executor.execute(() -> {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            executor.execute(task("low", order, done), InvocationPriority.LOW, shed -> {
+                order.add("shed");
+                done.countDown();
+            });
+            executor.execute(task("high", order, done), InvocationPriority.HIGH, shed -> order.add("shed"));
+            Thread.sleep(10);
+            blocked.countDown();
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList("shed", "high"), order);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Runnable task(String name, List<String> order, CountDownLatch done) {
+        return () -> {
+            order.add(name);
+            done.countDown();
+        };
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.singleflight;
+
+import io.smallrye.restclient.RestClientOptions;
+import io.smallrye.restclient.RestClientProxy;
+import io.smallrye.restclient.TestServer;
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.ProcessingException;
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SingleFlightFilterTest {
+
+    @Path("/")
+    public interface Api {
+
+        @GET
+        String get();
+
+        @GET
+        CompletionStage<String> getAsync();
+
+        @GET
+        InputStream stream();
+    }
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private TestServer server;
+
+    private Api api;
+
+    @After
+    public void close() {
+        release.countDown();
+        if (api != null) {
+            ((RestClientProxy) api).close();
+        }
+        if (server != null) {
+            server.close();
+        }
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testWaitersShareTheBodyWithoutContentType() throws Exception {
+        start(false, 0);
+        List<Future<String>> results = new ArrayList<>();
+        results.add(executor.submit(api::get));
+        awaitLeader();
+        for (int i = 0; i < 3; i++) {
+            results.add(executor.submit(api::get));
+        }
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("shared", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, server.getRequests());
+    }
+
+    @Test
+    public void testLeaderFailureReachesWaiters() throws Exception {
+        start(true, 0);
+        Future<String> leader = executor.submit(api::get);
+        awaitLeader();
+        Future<String> waiter = executor.submit(api::get);
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Future<String> result : new Future[]{leader, waiter}) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                fail("The shared request failed");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof ProcessingException);
+            }
+        }
+        try {
+            waiter.get();
+        } catch (ExecutionException e) {
+            assertEquals("Identical request failed", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testAsynchronousWaitersDoNotBlock() throws Exception {
+        start(false, 0);
+        CompletableFuture<String> leader = api.getAsync().toCompletableFuture();
+        awaitLeader();
+        List<CompletableFuture<String>> waiters = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            waiters.add(api.getAsync().toCompletableFuture());
+        }
+        // the calls return while the leader is still waiting for its response, which takes up to 5 seconds
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertFalse(waiters.get(0).isDone());
+        release.countDown();
+
+        assertEquals("shared", leader.get(5, TimeUnit.SECONDS));
+        for (CompletableFuture<String> waiter : waiters) {
+            assertEquals("shared", waiter.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, server.getRequests());
+    }
+
+    @Test
+    public void testWaitIsBounded() throws Exception {
+        start(false, 100);
+        Future<String> leader = executor.submit(api::get);
+        awaitLeader();
+
+        assertEquals("shared", api.get());
+        assertEquals(2, server.getRequests());
+        release.countDown();
+        assertEquals("shared", leader.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testStreamingMethodDeliversItsFirstElementAtOnce() throws Exception {
+        server = TestServer.start(exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            exchange.getResponseBody().write("first\n".getBytes(StandardCharsets.UTF_8));
+            exchange.getResponseBody().flush();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        api = RestClientBuilder.newBuilder()
+                .baseUri(server.getUri())
+                .property(RestClientOptions.PROPERTY_PREFIX + RestClientOptions.SINGLE_FLIGHT, true)
+                .build(Api.class);
+
+        Future<BufferedReader> stream = executor.submit(() ->
+                new BufferedReader(new InputStreamReader(api.stream(), StandardCharsets.UTF_8)));
+        // the rest of the body only comes once released
+        try (BufferedReader reader = stream.get(2, TimeUnit.SECONDS)) {
+            assertEquals("first", reader.readLine());
+            release.countDown();
+        }
+    }
+
+    private void start(boolean failLeader, long maxWait) throws Exception {
+        server = TestServer.start(exchange -> {
+            if (release.getCount() > 0 && server.getRequests() == 1) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (!failLeader) {
+                TestServer.respond(exchange, "shared");
+            }
+            // closes the connection without a response otherwise, every retry of the request fails as well
+        });
+        RestClientBuilder builder = RestClientBuilder.newBuilder()
+                .baseUri(server.getUri())
+                .property(RestClientOptions.PROPERTY_PREFIX + RestClientOptions.SINGLE_FLIGHT, true)
+                .property(RestClientOptions.PROPERTY_PREFIX + RestClientOptions.ASYNC_ENGINE, true);
+        if (maxWait > 0) {
+            builder.property(RestClientOptions.PROPERTY_PREFIX + RestClientOptions.SINGLE_FLIGHT_MAX_WAIT, maxWait);
+        }
+        api = builder.build(Api.class);
+    }
+
+    private void awaitLeader() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.getRequests() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.stream;
+
+import org.junit.Test;
+
+import javax.json.JsonObject;
+import javax.json.stream.JsonParsingException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JsonElementSourceTest {
+
+    @Test
+    public void testArrayElements() throws Exception {
+        TrackingStream body = new TrackingStream("[{\"id\":1},{\"id\":2}, {\"id\":3}]");
+        Iterator<?> elements = read(Iterator.class, JsonObject.class, MediaType.APPLICATION_JSON_TYPE, body);
+
+        assertTrue(elements.hasNext());
+        assertEquals(1, ((JsonObject) elements.next()).getInt("id"));
+        assertFalse(body.closed);
+        assertEquals(2, ((JsonObject) elements.next()).getInt("id"));
+        assertEquals(3, ((JsonObject) elements.next()).getInt("id"));
+        assertFalse(elements.hasNext());
+        assertTrue(body.closed);
+    }
+
+    @Test
+    public void testLineElements() throws Exception {
+        TrackingStream body = new TrackingStream("\"a\"\n\n\"b\"\r\n\"c\"\n");
+        JsonElementSource source = read(Stream.class, String.class, new MediaType("application", "x-ndjson"), body);
+
+        try (Stream<Object> elements = source.stream()) {
+            List<Object> first = elements.limit(2).collect(Collectors.toList());
+            assertEquals("a", first.get(0));
+            assertEquals("b", first.get(1));
+        }
+        assertTrue(body.closed);
+    }
+
+    @Test
+    public void testSingleValue() throws Exception {
+        Iterator<?> elements = read(Iterator.class, String.class, MediaType.APPLICATION_JSON_TYPE, new TrackingStream("\"only\""));
+        assertEquals("only", elements.next());
+        assertFalse(elements.hasNext());
+    }
+
+    @Test
+    public void testArrayElementsAreHandedOverUnparsed() {
+        TrackingStream body = new TrackingStream(
+                "[{\"id\":1}, {\"s\":\"a,]}\\\"\"} ,3,\"x\\\"]\",[1,[2]],\n null,true]");
+        JsonElementSource source = new JsonElementSource.RawArrayElements(body, rawConverter());
+
+        List<String> elements = new ArrayList<>();
+        source.forEachRemaining(element -> elements.add(((RawElement) element).json));
+        assertEquals(Arrays.asList("{\"id\":1}", "{\"s\":\"a,]}\\\"\"}", "3", "\"x\\\"]\"", "[1,[2]]", "null", "true"),
+                elements);
+        assertTrue(body.closed);
+    }
+
+    @Test
+    public void testBodyThatIsNotAnArrayIsHandedOverWhole() {
+        JsonElementSource source = new JsonElementSource.RawArrayElements(new TrackingStream(" {\"id\":1}"), rawConverter());
+        assertEquals("{\"id\":1}", ((RawElement) source.next()).json);
+        assertFalse(source.hasNext());
+
+        assertFalse(new JsonElementSource.RawArrayElements(new TrackingStream("[ ]"), rawConverter()).hasNext());
+    }
+
+    @Test
+    public void testTruncatedArrayFails() {
+        TrackingStream body = new TrackingStream("[1,{\"a\":");
+        JsonElementSource source = new JsonElementSource.RawArrayElements(body, rawConverter());
+        assertEquals("1", ((RawElement) source.next()).json);
+        try {
+            source.next();
+            fail("The truncated element should fail");
+        } catch (JsonParsingException expected) {
+        }
+        assertTrue(body.closed);
+    }
+
+    @Test
+    public void testLinesAreHandedOverUnparsed() {
+        TrackingStream body = new TrackingStream("{\"id\":1}\n \n{\"id\":2}\r\n{\"id\":3}");
+        JsonElementSource source = new JsonElementSource.LineElements(body, rawConverter());
+
+        List<String> elements = new ArrayList<>();
+        source.forEachRemaining(element -> elements.add(((RawElement) element).json.trim()));
+        assertEquals(Arrays.asList("{\"id\":1}", "{\"id\":2}", "{\"id\":3}"), elements);
+        assertTrue(body.closed);
+    }
+
+    /**
+     * @return a converter reading the elements with a reader that keeps their raw JSON
+     */
+    @SuppressWarnings("unchecked")
+    private static JsonElementConverter rawConverter() {
+        MessageBodyReader<Object> reader = new MessageBodyReader<Object>() {
+            @Override
+            public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+                return true;
+            }
+
+            @Override
+            public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                                   MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+                ByteArrayOutputStream json = new ByteArrayOutputStream();
+                int c;
+                while ((c = entityStream.read()) != -1) {
+                    json.write(c);
+                }
+                return new RawElement(new String(json.toByteArray(), StandardCharsets.UTF_8));
+            }
+        };
+        return new JsonElementConverter((Class<Object>) (Class<?>) RawElement.class, RawElement.class, new Annotation[0],
+                new MultivaluedHashMap<>(), reader);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JsonElementSource read(Class<?> type, Class<?> elementType, MediaType mediaType, TrackingStream body) {
+        Type genericType = new java.lang.reflect.ParameterizedType() {
+            @Override
+            public Type[] getActualTypeArguments() {
+                return new Type[]{elementType};
+            }
+
+            @Override
+            public Type getRawType() {
+                return type;
+            }
+
+            @Override
+            public Type getOwnerType() {
+                return null;
+            }
+        };
+        JsonElementStreamReader reader = new JsonElementStreamReader();
+        assertTrue(reader.isReadable(type, genericType, new Annotation[0], mediaType));
+        return (JsonElementSource) reader.readFrom((Class<Object>) type, genericType, new Annotation[0], mediaType,
+                new MultivaluedHashMap<>(), body);
+    }
+
+    private static class RawElement {
+
+        final String json;
+
+        RawElement(String json) {
+            this.json = json;
+        }
+    }
+
+    private static class TrackingStream extends ByteArrayInputStream {
+
+        boolean closed;
+
+        TrackingStream(String content) {
+            super(content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.stream;
+
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PublisherReaderTest {
+
+    @Test
+    public void testEventsAreReadOnDemand() throws Exception {
+        TrackingStream body = new TrackingStream("data: one\n\n: keep-alive\n\nevent: x\ndata: two\n\ndata: three\n\n");
+        RecordingSubscriber subscriber = subscribe(String.class, MediaType.SERVER_SENT_EVENTS_TYPE, body);
+
+        assertTrue(subscriber.elements.isEmpty());
+        subscriber.subscription.request(1);
+        assertEquals(Arrays.asList("one"), subscriber.elements);
+        assertFalse(subscriber.completed);
+        assertFalse(body.closed);
+
+        subscriber.subscription.request(5);
+        assertEquals(Arrays.asList("one", "two", "three"), subscriber.elements);
+        assertTrue(subscriber.completed);
+        assertTrue(body.closed);
+    }
+
+    @Test
+    public void testChunks() throws Exception {
+        byte[] content = new byte[20000];
+        Arrays.fill(content, (byte) 'a');
+        TrackingStream body = new TrackingStream(new String(content, StandardCharsets.US_ASCII));
+        RecordingSubscriber subscriber = subscribe(byte[].class, MediaType.APPLICATION_OCTET_STREAM_TYPE, body);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(3, subscriber.elements.size());
+        assertArrayEquals(Arrays.copyOf(content, 8192), (byte[]) subscriber.elements.get(0));
+        assertEquals(20000 - 2 * 8192, ((byte[]) subscriber.elements.get(2)).length);
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        TrackingStream body = new TrackingStream("data: one\n\ndata: two\n\n");
+        RecordingSubscriber subscriber = subscribe(String.class, MediaType.SERVER_SENT_EVENTS_TYPE, body);
+
+        subscriber.subscription.request(1);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(1);
+        assertEquals(Arrays.asList("one"), subscriber.elements);
+        assertFalse(subscriber.completed);
+        assertNull(subscriber.error);
+        assertTrue(body.closed);
+    }
+
+    @Test
+    public void testInvalidDemand() throws Exception {
+        RecordingSubscriber subscriber = subscribe(String.class, MediaType.SERVER_SENT_EVENTS_TYPE,
+                new TrackingStream("data: one\n\n"));
+
+        subscriber.subscription.request(0);
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertTrue(subscriber.elements.isEmpty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RecordingSubscriber subscribe(Class<?> elementType, MediaType mediaType, TrackingStream body)
+            throws IOException {
+        Type genericType = new ParameterizedType() {
+            @Override
+            public Type[] getActualTypeArguments() {
+                return new Type[]{elementType};
+            }
+
+            @Override
+            public Type getRawType() {
+                return Publisher.class;
+            }
+
+            @Override
+            public Type getOwnerType() {
+                return null;
+            }
+        };
+        PublisherReader reader = new PublisherReader(Runnable::run);
+        assertTrue(reader.isReadable(Publisher.class, genericType, new Annotation[0], mediaType));
+        Publisher<Object> publisher = (Publisher<Object>) reader.readFrom((Class<Object>) (Class<?>) Publisher.class,
+                genericType, new Annotation[0], mediaType, new MultivaluedHashMap<>(), body);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        return subscriber;
+    }
+
+    private static class RecordingSubscriber implements Subscriber<Object> {
+
+        final List<Object> elements = new ArrayList<>();
+
+        Subscription subscription;
+
+        boolean completed;
+
+        Throwable error;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Object element) {
+            elements.add(element);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    private static class TrackingStream extends ByteArrayInputStream {
+
+        boolean closed;
+
+        TrackingStream(String content) {
+            super(content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.timeout;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HashedWheelTimerTest {
+
+    @Test
+    public void testTaskRunsAfterDelay() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 8);
+        CountDownLatch ran = new CountDownLatch(1);
+        long start = System.nanoTime();
+        // longer than a turn of the wheel
+        HashedWheelTimer.Timeout timeout = timer.schedule(ran::countDown, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    public void testCancelledTaskDoesNotRun() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 8);
+        AtomicBoolean cancelledRan = new AtomicBoolean();
+        HashedWheelTimer.Timeout timeout = timer.schedule(() -> cancelledRan.set(true), 20, TimeUnit.MILLISECONDS);
+        assertTrue(timeout.cancel());
+
+        CountDownLatch later = new CountDownLatch(1);
+        timer.schedule(later::countDown, 40, TimeUnit.MILLISECONDS);
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+        assertFalse(cancelledRan.get());
+        assertTrue(timeout.isCancelled());
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.timeout;
+
+import io.smallrye.restclient.RestClientOptions;
+import io.smallrye.restclient.RestClientProxy;
+import io.smallrye.restclient.TestServer;
+import org.eclipse.microprofile.rest.client.RestClientBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class RequestTimeoutTest {
+
+    @Path("/")
+    public interface Api {
+
+        @GET
+        CompletionStage<String> get();
+    }
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private TestServer server;
+
+    @Before
+    public void start() throws IOException {
+        server = TestServer.start(exchange -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            TestServer.respond(exchange, "late");
+        });
+    }
+
+    @After
+    public void stop() {
+        release.countDown();
+        server.close();
+    }
+
+    @Test
+    public void testTimeoutCompletesOnTheExecutor() throws Exception {
+        assertTimeoutCompletesOnTheExecutor(false);
+    }
+
+    @Test
+    public void testTimeoutCompletesOnTheExecutorWithTheNonBlockingEngine() throws Exception {
+        assertTimeoutCompletesOnTheExecutor(true);
+    }
+
+    private void assertTimeoutCompletesOnTheExecutor(boolean nonBlocking) throws Exception {
+        Api api = RestClientBuilder.newBuilder()
+                .baseUri(server.getUri())
+                .property(RestClientOptions.PROPERTY_PREFIX + RestClientOptions.REQUEST_TIMEOUT, 100)
+                .property(RestClientOptions.PROPERTY_PREFIX + RestClientOptions.ASYNC_ENGINE, nonBlocking)
+                .build(Api.class);
+        try {
+            CompletableFuture<String> completion = api.get().toCompletableFuture()
+                    .handle((value, failure) -> failure.getClass().getSimpleName() + " on " + Thread.currentThread().getName());
+
+            String completed = completion.get(5, TimeUnit.SECONDS);
+            assertEquals(RequestTimeoutException.class.getSimpleName(), completed.substring(0, completed.indexOf(' ')));
+            assertNotEquals("smallrye-rest-client-timer", completed.substring(completed.lastIndexOf(' ') + 1));
+        } finally {
+            ((RestClientProxy) api).close();
+        }
+    }
+}
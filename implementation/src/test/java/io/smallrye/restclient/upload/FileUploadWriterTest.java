@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.smallrye.restclient.upload;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FileUploadWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final FileUploadWriter writer = new FileUploadWriter();
+
+    @Test
+    public void testPath() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("upload.txt");
+        Files.write(file, "hello world".getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(writer.isWriteable(file.getClass(), file.getClass(), new Annotation[0], MediaType.WILDCARD_TYPE));
+        assertEquals(11, size(file));
+        assertEquals("hello world", write(file));
+    }
+
+    @Test
+    public void testChannelFromPosition() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("upload.txt");
+        Files.write(file, "hello world".getBytes(StandardCharsets.UTF_8));
+
+        try (FileChannel channel = FileChannel.open(file)) {
+            channel.position(6);
+            assertEquals(5, size(channel));
+            assertEquals("world", write(channel));
+            assertEquals("world", write(channel));
+            assertEquals(6, channel.position());
+        }
+    }
+
+    @Test
+    public void testBuffers() throws IOException {
+        ByteBuffer heap = ByteBuffer.wrap("xxhello".getBytes(StandardCharsets.UTF_8));
+        heap.position(2);
+        assertEquals(5, size(heap));
+        assertEquals("hello", write(heap));
+        assertEquals(2, heap.position());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(5);
+        direct.put("hello".getBytes(StandardCharsets.UTF_8)).flip();
+        assertEquals(5, size(direct));
+        assertEquals("hello", write(direct));
+        assertEquals(0, direct.position());
+    }
+
+    private long size(Object entity) {
+        return writer.getSize(entity, entity.getClass(), entity.getClass(), new Annotation[0],
+                MediaType.APPLICATION_OCTET_STREAM_TYPE);
+    }
+
+    private String write(Object entity) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(entity, entity.getClass(), entity.getClass(), new Annotation[0],
+                MediaType.APPLICATION_OCTET_STREAM_TYPE, new MultivaluedHashMap<>(), out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}